@@ -22,9 +22,12 @@ import java.util.Date;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.json.JSONArray;
 import org.json.JSONObject;
 import org.schedulesdirect.api.exception.InvalidJsonObjectException;
+import org.schedulesdirect.api.utils.DateTimeUtils;
+import org.schedulesdirect.api.utils.JsonNodeUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 /**
  * An Airing represents a scheduled broadcast of a Program object.
@@ -195,36 +198,68 @@ public class Airing {
 		UNKNOWN
 	}
 	
+	/**
+	 * The boolean attributes of an airing
+	 * 
+	 * <p>
+	 * 	Each flag is a single bit of an airing's packed state; <code>mask()</code> values can be or'd
+	 *  together to test several flags at once, i.e. with <code>AiringTable.findAll()</code>.
+	 * </p>
+	 */
+	static public enum Flag {
+		SUBJECT_TO_BLACKOUT,
+		EDUCATIONAL,
+		JOINED_IN_PROGRESS,
+		LEFT_IN_PROGRESS,
+		CLOSED_CAPTIONED,
+		STEREO,
+		NEW_AIRING,
+		HDTV,
+		LETTERBOXED,
+		DESCRIPTIVE_VIDEO,
+		THREE_D,
+		CABLE_IN_THE_CLASSROOM,
+		ENHANCED,
+		SAP,
+		SUBTITLED,
+		TIME_APPROXIMATE;
+		
+		/**
+		 * @return The bit of an airing's packed state that holds this flag
+		 */
+		public long mask() {
+			return 1L << ordinal();
+		}
+	}
+	
+	/*
+	 * Airings are by far the most numerous objects in a guide, so their state is packed: the boolean
+	 * flags are the low 16 bits of state, each enum is stored in a 4 bit slot above those as
+	 * its ordinal + 1 (0 being null) and the start time is kept as epoch seconds.
+	 */
+	static private final int DOLBY_STATUS_SHIFT = 16;
+	static private final int LIVE_STATUS_SHIFT = 20;
+	static private final int PREMIERE_STATUS_SHIFT = 24;
+	static private final int FINALE_STATUS_SHIFT = 28;
+	static private final int CONTENT_TYPE_SHIFT = 32;
+	static private final long ENUM_MASK = 0xFL;
+	static private final DolbyStatus[] DOLBY_STATUS_VALUES = DolbyStatus.values();
+	static private final LiveStatus[] LIVE_STATUS_VALUES = LiveStatus.values();
+	static private final PremiereStatus[] PREMIERE_STATUS_VALUES = PremiereStatus.values();
+	static private final FinaleStatus[] FINALE_STATUS_VALUES = FinaleStatus.values();
+	static private final ContentType[] CONTENT_TYPE_VALUES = ContentType.values();
+	static private final long NO_START = Long.MIN_VALUE;
+
+	private long state;
+	private long gmtStart = NO_START;
 	private String id;
-	private boolean subjectToBlackout;
-	private boolean educational;
-	private boolean joinedInProgress;
-	private boolean leftInProgress;
 	private String contentSource;
 	private int partNum;
-	private boolean closedCaptioned;
-	private boolean stereo;
-	private boolean newAiring;
 	private int duration;
 	private int totalParts;
-	private DolbyStatus dolbyStatus;
-	private LiveStatus liveStatus;
-	private boolean hdtv;
-	private PremiereStatus premiereStatus;
-	private FinaleStatus finaleStatus;
 	private ContentRating[] tvRatings;
-	private ContentType contentType;
-	private boolean letterboxed;
-	private Date gmtStart;
-	private boolean descriptiveVideo;
-	private boolean is3d;
-	private boolean cableInTheClassroom;
-	private boolean enhanced;
-	private boolean sap;
 	private String sapLanguage;
-	private boolean subtitled;
 	private String subtitleLanguage;
-	private boolean timeApproximate;
 	private String broadcastLanguage;
 	private Station station;
 	private Program program;
@@ -238,123 +273,203 @@ public class Airing {
 	 * @throws IllegalArgumentException Thrown if the Program or Station argument is null or if the Program's id does not match the id of this Airing
 	 */
 	Airing(JSONObject src, Program prog, Station station) throws InvalidJsonObjectException, IllegalArgumentException {
+		this(JsonNodeUtils.toNode(src), prog, station);
+	}
+
+	/**
+	 * Constructor; rebuilds an airing from its stored parts, i.e. a row of an AiringTable
+	 */
+	Airing(String id, Program prog, Station station, long gmtStart, int duration, long state, String contentSource, int partNum, int totalParts, ContentRating[] tvRatings, String sapLanguage, String subtitleLanguage, String broadcastLanguage) {
+		this.id = id;
+		program = prog;
+		this.station = station;
+		this.gmtStart = gmtStart;
+		this.duration = duration;
+		this.state = state;
+		this.contentSource = contentSource;
+		this.partNum = partNum;
+		this.totalParts = totalParts;
+		this.tvRatings = tvRatings;
+		this.sapLanguage = sapLanguage;
+		this.subtitleLanguage = subtitleLanguage;
+		this.broadcastLanguage = broadcastLanguage;
+	}
+
+	/**
+	 * Decode an airing straight from the Jackson tree, without an intermediate org.json object
+	 * @param src The upstream raw data source from which the instance will be constructed
+	 * @param prog The Program to associate with this Airing
+	 * @param station The Station to associate with this Airing
+	 * @return The decoded airing
+	 * @throws InvalidJsonObjectException Thrown if the src is not in the expected format
+	 * @throws IllegalArgumentException Thrown if the Program or Station argument is null or if the Program's id does not match the id of this Airing
+	 */
+	static Airing fromNode(JsonNode src, Program prog, Station station) throws InvalidJsonObjectException, IllegalArgumentException {
+		return new Airing(src, prog, station);
+	}
+
+	/*
+	 * Private, and reached through fromNode(), so that a null src isn't ambiguous for the JSONObject constructor
+	 */
+	private Airing(JsonNode src, Program prog, Station station) throws InvalidJsonObjectException, IllegalArgumentException {
 		if(prog == null)
 			throw new IllegalArgumentException("An Airing's Program cannot be null!");
 		if(station == null)
 			throw new IllegalArgumentException("An Airing's Station cannot be null!");
 		program = prog;
 		this.station = station;
+		EpgClient clnt = station.getEpgClient();
 
 		try {
-			id = src.getString("programID");
+			id = JsonNodeUtils.getString(src, "programID");
 			if(!program.getId().equals(id))
 				throw new IllegalArgumentException("Received Program does not match id of Airing!");
-			duration = Integer.parseInt(src.get("duration").toString());
-			gmtStart = Config.get().getDateTimeFormat().parse(src.getString("airDateTime"));
-			JSONArray audioOpts = src.optJSONArray("audioProperties");
-			dolbyStatus = DolbyStatus.NONE;
+			duration = Integer.parseInt(JsonNodeUtils.optString(src, "duration"));
+			setGmtStart(DateTimeUtils.parseDateTime(JsonNodeUtils.getString(src, "airDateTime")));
+			JsonNode audioOpts = JsonNodeUtils.optArray(src, "audioProperties");
+			setDolbyStatus(DolbyStatus.NONE);
 			if(audioOpts != null) {
-				for(int i = 0; i < audioOpts.length(); ++i) {
-					String val = audioOpts.getString(i);
+				for(int i = 0; i < audioOpts.size(); ++i) {
+					String val = JsonNodeUtils.getString(audioOpts, i);
 					switch(val) {
-						case "cc": closedCaptioned = true; break;
-						case "stereo": stereo = true; break;
-						case "dvs": descriptiveVideo = true; break;
-						case "subtitled": subtitled = true; break;
-						case "SAP": sap = true; break;
+						case "cc": setFlag(Flag.CLOSED_CAPTIONED, true); break;
+						case "stereo": setFlag(Flag.STEREO, true); break;
+						case "dvs": setFlag(Flag.DESCRIPTIVE_VIDEO, true); break;
+						case "subtitled": setFlag(Flag.SUBTITLED, true); break;
+						case "SAP": setFlag(Flag.SAP, true); break;
 						default:
 							if(val.startsWith("D")) { // This is a Dolby marker
-								dolbyStatus = DolbyStatus.fromValue(val);
+								setDolbyStatus(DolbyStatus.fromValue(val));
 							} else
 								LOG.warn(String.format("Unknown audio property encountered! [%s]", val));
 					}
 				}
 			}
-			timeApproximate = src.optBoolean("timeApproximate");
-			if(subtitled && src.has("subtitledLanguage"))
-				subtitleLanguage = src.getString("subtitledLanguage");
-			cableInTheClassroom = src.optBoolean("cableInTheClassroom");
-			subjectToBlackout = src.optBoolean("subjectToBlackout");
-			educational = src.optBoolean("educational");
-			joinedInProgress = src.optBoolean("joinedInProgress");
-			leftInProgress = src.optBoolean("leftInProgress");
-			contentSource = src.optString("netSyndicationSource");
-			JSONObject partInfo = src.optJSONObject("multipart");
+			setFlag(Flag.TIME_APPROXIMATE, JsonNodeUtils.optBoolean(src, "timeApproximate"));
+			if(isSubtitled() && src.has("subtitledLanguage"))
+				subtitleLanguage = EpgClient.intern(clnt, JsonNodeUtils.getString(src, "subtitledLanguage"));
+			setFlag(Flag.CABLE_IN_THE_CLASSROOM, JsonNodeUtils.optBoolean(src, "cableInTheClassroom"));
+			setFlag(Flag.SUBJECT_TO_BLACKOUT, JsonNodeUtils.optBoolean(src, "subjectToBlackout"));
+			setFlag(Flag.EDUCATIONAL, JsonNodeUtils.optBoolean(src, "educational"));
+			setFlag(Flag.JOINED_IN_PROGRESS, JsonNodeUtils.optBoolean(src, "joinedInProgress"));
+			setFlag(Flag.LEFT_IN_PROGRESS, JsonNodeUtils.optBoolean(src, "leftInProgress"));
+			contentSource = EpgClient.intern(clnt, JsonNodeUtils.optString(src, "netSyndicationSource"));
+			JsonNode partInfo = JsonNodeUtils.optObject(src, "multipart");
 			if(partInfo != null) {
-				partNum = partInfo.getInt("partNumber");
-				totalParts = partInfo.getInt("totalParts");
+				partNum = JsonNodeUtils.getInt(partInfo, "partNumber");
+				totalParts = JsonNodeUtils.getInt(partInfo, "totalParts");
 			} else {
 				partNum = 0;
 				totalParts = 0;
 			}
-			newAiring = src.optBoolean("new");
-			String live = src.optString("liveTapeDelay", LiveStatus.NONE.toString()).toUpperCase();
+			setFlag(Flag.NEW_AIRING, JsonNodeUtils.optBoolean(src, "new"));
+			String live = JsonNodeUtils.optString(src, "liveTapeDelay", LiveStatus.NONE.toString()).toUpperCase();
 			try {
-				liveStatus = live.length() == 0 ? LiveStatus.NONE : LiveStatus.valueOf(live);
+				setLiveStatus(live.length() == 0 ? LiveStatus.NONE : LiveStatus.valueOf(live));
 			} catch(IllegalArgumentException e) {
 				LOG.warn(String.format("Unknown LiveStatus encountered! [%s]", live));
-				liveStatus = LiveStatus.UNKNOWN;
+				setLiveStatus(LiveStatus.UNKNOWN);
 			}
-			JSONArray videoOpts = src.optJSONArray("videoProperties");
+			JsonNode videoOpts = JsonNodeUtils.optArray(src, "videoProperties");
 			if(videoOpts != null)  {
-				for(int i = 0; i < videoOpts.length(); ++i) {
-					String val = videoOpts.getString(i);
+				for(int i = 0; i < videoOpts.size(); ++i) {
+					String val = JsonNodeUtils.getString(videoOpts, i);
 					switch(val) {
-						case "hdtv": hdtv = true; break;
-						case "letterbox": letterboxed = true; break;
-						case "enhanced": enhanced = true; break;
-						case "3d": is3d = true; break;
+						case "hdtv": setFlag(Flag.HDTV, true); break;
+						case "letterbox": setFlag(Flag.LETTERBOXED, true); break;
+						case "enhanced": setFlag(Flag.ENHANCED, true); break;
+						case "3d": setFlag(Flag.THREE_D, true); break;
 					}
 				}
 			}
-			String premiereFinale = src.optString("isPremiereOrFinale").toUpperCase().replace(' ', '_');
+			String premiereFinale = JsonNodeUtils.optString(src, "isPremiereOrFinale").toUpperCase().replace(' ', '_');
 			if(premiereFinale.length() == 0) {
-				premiereStatus = PremiereStatus.NONE;
-				finaleStatus = FinaleStatus.NONE;
+				setPremiereStatus(PremiereStatus.NONE);
+				setFinaleStatus(FinaleStatus.NONE);
 			} else if(premiereFinale.contains("PREMIERE")) {
-				finaleStatus = FinaleStatus.NONE;
+				setFinaleStatus(FinaleStatus.NONE);
 				try {
-					premiereStatus = PremiereStatus.valueOf(premiereFinale);
+					setPremiereStatus(PremiereStatus.valueOf(premiereFinale));
 				} catch(IllegalArgumentException e) {
 					LOG.warn(String.format("Unknown PremiereStatus encountered! [%s]", premiereFinale));
-					premiereStatus = PremiereStatus.UNKNOWN;
+					setPremiereStatus(PremiereStatus.UNKNOWN);
 				}
 			} else {
-				premiereStatus = PremiereStatus.NONE;
+				setPremiereStatus(PremiereStatus.NONE);
 				try {
-					finaleStatus = FinaleStatus.valueOf(premiereFinale);
+					setFinaleStatus(FinaleStatus.valueOf(premiereFinale));
 				} catch(IllegalArgumentException e) {
 					LOG.warn(String.format("Unknown FinaleStatus encountered! [%s]", premiereFinale));
-					finaleStatus = FinaleStatus.UNKNOWN;
+					setFinaleStatus(FinaleStatus.UNKNOWN);
 				}
 			}
-			JSONArray ratings = src.optJSONArray("contentRating");
+			JsonNode ratings = JsonNodeUtils.optArray(src, "contentRating");
 			if(ratings != null) {
 				Collection<ContentRating> ratingsColl = new ArrayList<>();
-				for(int i = 0; i < ratings.length(); ++i) {
-					JSONObject o = ratings.getJSONObject(i);
-					ratingsColl.add(new ContentRating(o.getString("body"), o.getString("code")));
-				}
+				for(JsonNode o : ratings)
+					ratingsColl.add(ContentRating.valueOf(JsonNodeUtils.getString(o, "body"), JsonNodeUtils.getString(o, "code")));
 				tvRatings = ratingsColl.toArray(new ContentRating[0]);
 			} else
 				tvRatings = new ContentRating[0];
-			JSONObject content = src.optJSONObject("syndication");
+			JsonNode content = JsonNodeUtils.optObject(src, "syndication");
 			if(content != null) {
 				try {
-					String type = content.getString("type").toUpperCase().replace(' ', '_');
-					contentType = type.length() == 0 ? ContentType.NONE : ContentType.valueOf(type);
+					String type = JsonNodeUtils.getString(content, "type").toUpperCase().replace(' ', '_');
+					setContentType(type.length() == 0 ? ContentType.NONE : ContentType.valueOf(type));
 				} catch(IllegalArgumentException e) {
 					LOG.warn(String.format("Unknwon ContentType encountered! [%s]", content));
-					contentType = ContentType.UNKNOWN;
+					setContentType(ContentType.UNKNOWN);
 				}				
 			} else
-				contentType = ContentType.NONE;
-			broadcastLanguage = src.optString("programLanguage", null);
+				setContentType(ContentType.NONE);
+			broadcastLanguage = EpgClient.intern(clnt, JsonNodeUtils.optString(src, "programLanguage", null));
 		} catch(Throwable t) {
-			throw new InvalidJsonObjectException(String.format("Airing[%s]: %s", id, t.getMessage()), t, src.toString(3));
+			throw new InvalidJsonObjectException(String.format("Airing[%s]: %s", id, t.getMessage()), t, JsonNodeUtils.toString(src));
 		}
 	}
 
+	private boolean isFlagSet(Flag flag) {
+		return (state & flag.mask()) != 0;
+	}
+	
+	private void setFlag(Flag flag, boolean val) {
+		if(val)
+			state |= flag.mask();
+		else
+			state &= ~flag.mask();
+	}
+	
+	/**
+	 * @param flag The flag to test
+	 * @return True if the given flag is set for this airing or false otherwise
+	 */
+	public boolean hasFlag(Flag flag) {
+		return isFlagSet(flag);
+	}
+	
+	/**
+	 * @return The packed flags and enums of this airing
+	 */
+	long getState() {
+		return state;
+	}
+	
+	/**
+	 * @return The start time of this airing, in epoch seconds
+	 */
+	long getGmtStartSeconds() {
+		return gmtStart;
+	}
+	
+	private <T extends Enum<T>> T getEnum(T[] values, int shift) {
+		int val = (int)((state >>> shift) & ENUM_MASK);
+		return val != 0 ? values[val - 1] : null;
+	}
+	
+	private void setEnum(int shift, Enum<?> val) {
+		state = (state & ~(ENUM_MASK << shift)) | ((val != null ? val.ordinal() + 1L : 0L) << shift);
+	}
+
 	/**
 	 * Get the language this airing broadcasts in.
 	 * <p>This field is a hint and not 100% accurate; if null assume English, but not guaranteed.</p>
@@ -376,28 +491,28 @@ public class Airing {
 	 * @return True if this airing is subject to blackout or false otherwise
 	 */
 	public boolean isSubjectToBlackout() {
-		return subjectToBlackout;
+		return isFlagSet(Flag.SUBJECT_TO_BLACKOUT);
 	}
 
 	/**
 	 * @return True if this airing is that of an educational or informational nature or false otherwise
 	 */
 	public boolean isEducational() {
-		return educational;
+		return isFlagSet(Flag.EDUCATIONAL);
 	}
 
 	/**
 	 * @return True if this airing is joining a live event in progress or false otherwise
 	 */
 	public boolean isJoinedInProgress() {
-		return joinedInProgress;
+		return isFlagSet(Flag.JOINED_IN_PROGRESS);
 	}
 
 	/**
 	 * @return True if this airing is scheduled to end while the live event is expected to still be in progress or false otherwise
 	 */
 	public boolean isLeftInProgress() {
-		return leftInProgress;
+		return isFlagSet(Flag.LEFT_IN_PROGRESS);
 	}
 
 	/**
@@ -418,21 +533,21 @@ public class Airing {
 	 * @return True if this airing is closed captioned or false otherwise
 	 */
 	public boolean isClosedCaptioned() {
-		return closedCaptioned;
+		return isFlagSet(Flag.CLOSED_CAPTIONED);
 	}
 
 	/**
 	 * @return True if this airing is in stereo sound or false otherwise
 	 */
 	public boolean isStereo() {
-		return stereo;
+		return isFlagSet(Flag.STEREO);
 	}
 
 	/**
 	 * @return True if this airing is new (as determined by the upstream) or false otherwise
 	 */
 	public boolean isNewAiring() {
-		return newAiring;
+		return isFlagSet(Flag.NEW_AIRING);
 	}
 
 	/**
@@ -453,35 +568,35 @@ public class Airing {
 	 * @return Return the Dolby sound status of this airing
 	 */
 	public DolbyStatus getDolbyStatus() {
-		return dolbyStatus;
+		return getEnum(DOLBY_STATUS_VALUES, DOLBY_STATUS_SHIFT);
 	}
 
 	/**
 	 * @return Returns the live status of this airing
 	 */
 	public LiveStatus getLiveStatus() {
-		return liveStatus;
+		return getEnum(LIVE_STATUS_VALUES, LIVE_STATUS_SHIFT);
 	}
 
 	/**
 	 * @return True if this airing is in HD or false otherwise
 	 */
 	public boolean isHdtv() {
-		return hdtv;
+		return isFlagSet(Flag.HDTV);
 	}
 
 	/**
 	 * @return Returns the premiere status of this airing
 	 */
 	public PremiereStatus getPremiereStatus() {
-		return premiereStatus;
+		return getEnum(PREMIERE_STATUS_VALUES, PREMIERE_STATUS_SHIFT);
 	}
 
 	/**
 	 * @return Returns the finale status of this airing
 	 */
 	public FinaleStatus getFinaleStatus() {
-		return finaleStatus;
+		return getEnum(FINALE_STATUS_VALUES, FINALE_STATUS_SHIFT);
 	}
 
 	/**
@@ -502,56 +617,56 @@ public class Airing {
 	 * @return Returns the content type of this airing
 	 */
 	public ContentType getContentType() {
-		return contentType;
+		return getEnum(CONTENT_TYPE_VALUES, CONTENT_TYPE_SHIFT);
 	}
 
 	/**
 	 * @return True if this airing is letterboxed or false otherwise
 	 */
 	public boolean isLetterboxed() {
-		return letterboxed;
+		return isFlagSet(Flag.LETTERBOXED);
 	}
 
 	/**
 	 * @return Returns the scheduled start time of this airing, represented in GMT time zone
 	 */
 	public Date getGmtStart() {
-		return gmtStart;
+		return gmtStart != NO_START ? new Date(gmtStart * 1000L) : null;
 	}
 
 	/**
 	 * @return True if this airing provies descriptive video or false otherwise
 	 */
 	public boolean isDescriptiveVideo() {
-		return descriptiveVideo;
+		return isFlagSet(Flag.DESCRIPTIVE_VIDEO);
 	}
 
 	/**
 	 * @return True if this airing is in 3D or false otherwise 
 	 */
 	public boolean is3d() {
-		return is3d;
+		return isFlagSet(Flag.THREE_D);
 	}
 
 	/**
 	 * @return True if this airing is available via Cable in the Classroom or false otherwise
 	 */
 	public boolean isCableInTheClassroom() {
-		return cableInTheClassroom;
+		return isFlagSet(Flag.CABLE_IN_THE_CLASSROOM);
 	}
 
 	/**
 	 * @return True if this airing is enhanced or false otherwise (NOTE: I really don't know what this means)
 	 */
 	public boolean isEnhanced() {
-		return enhanced;
+		return isFlagSet(Flag.ENHANCED);
 	}
 
 	/**
 	 * @return True if this airing provides SAP or false otherwise
 	 */
 	public boolean isSap() {
-		return sap;
+		return isFlagSet(Flag.SAP);
 	}
 
 	/**
@@ -565,7 +680,7 @@ public class Airing {
 	 * @return True if this airing is subtitled or false otherwise
 	 */
 	public boolean isSubtitled() {
-		return subtitled;
+		return isFlagSet(Flag.SUBTITLED);
 	}
 
 	/**
@@ -579,7 +694,7 @@ public class Airing {
 	 * @return True if the duration is approximate or false otherwise
 	 */
 	public boolean isTimeApproximate() {
-		return timeApproximate;
+		return isFlagSet(Flag.TIME_APPROXIMATE);
 	}
 
 	/**
@@ -597,28 +712,28 @@ public class Airing {
 	 * @param subjectToBlackout the subjectToBlackout to set
 	 */
 	public void setSubjectToBlackout(boolean subjectToBlackout) {
-		this.subjectToBlackout = subjectToBlackout;
+		setFlag(Flag.SUBJECT_TO_BLACKOUT, subjectToBlackout);
 	}
 
 	/**
 	 * @param educational the educational to set
 	 */
 	public void setEducational(boolean educational) {
-		this.educational = educational;
+		setFlag(Flag.EDUCATIONAL, educational);
 	}
 
 	/**
 	 * @param joinedInProgress the joinedInProgress to set
 	 */
 	public void setJoinedInProgress(boolean joinedInProgress) {
-		this.joinedInProgress = joinedInProgress;
+		setFlag(Flag.JOINED_IN_PROGRESS, joinedInProgress);
 	}
 
 	/**
 	 * @param leftInProgress the leftInProgress to set
 	 */
 	public void setLeftInProgress(boolean leftInProgress) {
-		this.leftInProgress = leftInProgress;
+		setFlag(Flag.LEFT_IN_PROGRESS, leftInProgress);
 	}
 
 	/**
@@ -639,21 +754,21 @@ public class Airing {
 	 * @param closedCaptioned the closedCaptioned to set
 	 */
 	public void setClosedCaptioned(boolean closedCaptioned) {
-		this.closedCaptioned = closedCaptioned;
+		setFlag(Flag.CLOSED_CAPTIONED, closedCaptioned);
 	}
 
 	/**
 	 * @param stereo the stereo to set
 	 */
 	public void setStereo(boolean stereo) {
-		this.stereo = stereo;
+		setFlag(Flag.STEREO, stereo);
 	}
 
 	/**
 	 * @param newAiring the newAiring to set
 	 */
 	public void setNewAiring(boolean newAiring) {
-		this.newAiring = newAiring;
+		setFlag(Flag.NEW_AIRING, newAiring);
 	}
 
 	/**
@@ -674,35 +789,35 @@ public class Airing {
 	 * @param dolbyStatus the dolbyStatus to set
 	 */
 	public void setDolbyStatus(DolbyStatus dolbyStatus) {
-		this.dolbyStatus = dolbyStatus;
+		setEnum(DOLBY_STATUS_SHIFT, dolbyStatus);
 	}
 
 	/**
 	 * @param liveStatus the liveStatus to set
 	 */
 	public void setLiveStatus(LiveStatus liveStatus) {
-		this.liveStatus = liveStatus;
+		setEnum(LIVE_STATUS_SHIFT, liveStatus);
 	}
 
 	/**
 	 * @param hdtv the hdtv to set
 	 */
 	public void setHdtv(boolean hdtv) {
-		this.hdtv = hdtv;
+		setFlag(Flag.HDTV, hdtv);
 	}
 
 	/**
 	 * @param premiereStatus the premiereStatus to set
 	 */
 	public void setPremiereStatus(PremiereStatus premiereStatus) {
-		this.premiereStatus = premiereStatus;
+		setEnum(PREMIERE_STATUS_SHIFT, premiereStatus);
 	}
 
 	/**
 	 * @param finaleStatus the finaleStatus to set
 	 */
 	public void setFinaleStatus(FinaleStatus finaleStatus) {
-		this.finaleStatus = finaleStatus;
+		setEnum(FINALE_STATUS_SHIFT, finaleStatus);
 	}
 
 	/**
@@ -716,56 +831,56 @@ public class Airing {
 	 * @param contentType the contentType to set
 	 */
 	public void setContentType(ContentType contentType) {
-		this.contentType = contentType;
+		setEnum(CONTENT_TYPE_SHIFT, contentType);
 	}
 
 	/**
 	 * @param letterboxed the letterboxed to set
 	 */
 	public void setLetterboxed(boolean letterboxed) {
-		this.letterboxed = letterboxed;
+		setFlag(Flag.LETTERBOXED, letterboxed);
 	}
 
 	/**
-	 * @param gmtStart the gmtStart to set
+	 * @param gmtStart the gmtStart to set; stored to the second, any millis are dropped
 	 */
 	public void setGmtStart(Date gmtStart) {
-		this.gmtStart = gmtStart;
+		this.gmtStart = gmtStart != null ? gmtStart.getTime() / 1000L : NO_START;
 	}
 
 	/**
 	 * @param descriptiveVideo the descriptiveVideo to set
 	 */
 	public void setDescriptiveVideo(boolean descriptiveVideo) {
-		this.descriptiveVideo = descriptiveVideo;
+		setFlag(Flag.DESCRIPTIVE_VIDEO, descriptiveVideo);
 	}
 
 	/**
 	 * @param is3d the is3d to set
 	 */
 	public void setIs3d(boolean is3d) {
-		this.is3d = is3d;
+		setFlag(Flag.THREE_D, is3d);
 	}
 
 	/**
 	 * @param cableInTheClassroom the cableInTheClassroom to set
 	 */
 	public void setCableInTheClassroom(boolean cableInTheClassroom) {
-		this.cableInTheClassroom = cableInTheClassroom;
+		setFlag(Flag.CABLE_IN_THE_CLASSROOM, cableInTheClassroom);
 	}
 
 	/**
 	 * @param enhanced the enhanced to set
 	 */
 	public void setEnhanced(boolean enhanced) {
-		this.enhanced = enhanced;
+		setFlag(Flag.ENHANCED, enhanced);
 	}
 
 	/**
 	 * @param sap the sap to set
 	 */
 	public void setSap(boolean sap) {
-		this.sap = sap;
+		setFlag(Flag.SAP, sap);
 	}
 
 	/**
@@ -779,7 +894,7 @@ public class Airing {
 	 * @param subtitled the subtitled to set
 	 */
 	public void setSubtitled(boolean subtitled) {
-		this.subtitled = subtitled;
+		setFlag(Flag.SUBTITLED, subtitled);
 	}
 
 	/**
@@ -793,7 +908,7 @@ public class Airing {
 	 * @param timeApproximate the timeApproximate to set
 	 */
 	public void setTimeApproximate(boolean timeApproximate) {
-		this.timeApproximate = timeApproximate;
+		setFlag(Flag.TIME_APPROXIMATE, timeApproximate);
 	}
 
 	/**
@@ -840,8 +955,9 @@ public class Airing {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
+		long startMillis = gmtStart * 1000L;
 		result = prime * result
-				+ ((gmtStart == null) ? 0 : gmtStart.hashCode());
+				+ ((gmtStart == NO_START) ? 0 : (int)(startMillis ^ (startMillis >>> 32)));
 		result = prime * result + ((id == null) ? 0 : id.hashCode());
 		result = prime * result + ((program == null) ? 0 : program.hashCode());
 		result = prime * result + ((station == null) ? 0 : station.hashCode());
@@ -863,11 +979,7 @@ public class Airing {
 			return false;
 		}
 		Airing other = (Airing) obj;
-		if (gmtStart == null) {
-			if (other.gmtStart != null) {
-				return false;
-			}
-		} else if (!gmtStart.equals(other.gmtStart)) {
+		if (gmtStart != other.gmtStart) {
 			return false;
 		}
 		if (id == null) {
@@ -903,48 +1015,48 @@ public class Airing {
 		return "Airing [id="
 				+ id
 				+ ", subjectToBlackout="
-				+ subjectToBlackout
+				+ isSubjectToBlackout()
 				+ ", educational="
-				+ educational
+				+ isEducational()
 				+ ", joinedInProgress="
-				+ joinedInProgress
+				+ isJoinedInProgress()
 				+ ", leftInProgress="
-				+ leftInProgress
+				+ isLeftInProgress()
 				+ ", contentSource="
 				+ contentSource
 				+ ", partNum="
 				+ partNum
 				+ ", closedCaptioned="
-				+ closedCaptioned
+				+ isClosedCaptioned()
 				+ ", stereo="
-				+ stereo
+				+ isStereo()
 				+ ", newAiring="
-				+ newAiring
+				+ isNewAiring()
 				+ ", duration="
 				+ duration
 				+ ", totalParts="
 				+ totalParts
 				+ ", dolbyStatus="
-				+ dolbyStatus
+				+ getDolbyStatus()
 				+ ", liveStatus="
-				+ liveStatus
+				+ getLiveStatus()
 				+ ", hdtv="
-				+ hdtv
+				+ isHdtv()
 				+ ", premiereStatus="
-				+ premiereStatus
+				+ getPremiereStatus()
 				+ ", finaleStatus="
-				+ finaleStatus
+				+ getFinaleStatus()
 				+ ", tvRatings="
 				+ (tvRatings != null ? Arrays.asList(tvRatings).subList(0,
 						Math.min(tvRatings.length, maxLen)) : null)
-				+ ", contentType=" + contentType + ", letterboxed="
-				+ letterboxed + ", gmtStart=" + gmtStart
-				+ ", descriptiveVideo=" + descriptiveVideo + ", is3d=" + is3d
-				+ ", cableInTheClassroom=" + cableInTheClassroom
-				+ ", enhanced=" + enhanced + ", sap=" + sap + ", sapLanguage="
-				+ sapLanguage + ", subtitled=" + subtitled
+				+ ", contentType=" + getContentType() + ", letterboxed="
+				+ isLetterboxed() + ", gmtStart=" + getGmtStart()
+				+ ", descriptiveVideo=" + isDescriptiveVideo() + ", is3d=" + is3d()
+				+ ", cableInTheClassroom=" + isCableInTheClassroom()
+				+ ", enhanced=" + isEnhanced() + ", sap=" + isSap() + ", sapLanguage="
+				+ sapLanguage + ", subtitled=" + isSubtitled()
 				+ ", subtitleLanguage=" + subtitleLanguage
-				+ ", timeApproximate=" + timeApproximate
+				+ ", timeApproximate=" + isTimeApproximate()
 				+ ", broadcastLanguage=" + broadcastLanguage + ", station="
 				+ station + ", program=" + program + "]";
 	}
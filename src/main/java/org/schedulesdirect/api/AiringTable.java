@@ -0,0 +1,253 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.schedulesdirect.api.Airing.Flag;
+
+/**
+ * A station's schedule stored column by column in primitive arrays
+ *
+ * <p>
+ * 	Each airing is a row; start times, durations, flags and program references are kept in
+ *  parallel arrays so that a schedule can be scanned and filtered without allocating anything
+ *  per airing.  Airing objects are only built when a row is asked for via <code>get()</code>,
+ *  and each call builds a new instance; changes made to one are not written back to the table.
+ * </p>
+ * <p>
+ *  Rows keep the order of the airings the table was built from.  Tables are immutable and thus
+ *  thread safe.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class AiringTable {
+	/**
+	 * Build the or'd mask of a set of flags, for use with <code>findAll()</code>
+	 * @param flags The flags to combine
+	 * @return The combined mask
+	 */
+	static public long mask(Flag... flags) {
+		long mask = 0;
+		for(Flag f : flags)
+			mask |= f.mask();
+		return mask;
+	}
+
+	/**
+	 * Build a table from an array of airings
+	 * @param station The station the airings belong to; all rows are associated with this station
+	 * @param airings The airings to store
+	 * @return The new table
+	 */
+	static public AiringTable build(Station station, Airing[] airings) {
+		return new AiringTable(station, airings);
+	}
+
+	private final Station station;
+	private final int size;
+	private final Program[] programs;
+	private final int[] programIdx;
+	private final long[] starts;
+	private final int[] durations;
+	private final long[] states;
+	/*
+	 * The rarely populated columns are only allocated when at least one row has a value
+	 */
+	private final String[] contentSources;
+	private final int[] parts;
+	private final ContentRating[][] tvRatings;
+	private final String[] sapLanguages;
+	private final String[] subtitleLanguages;
+	private final String[] broadcastLanguages;
+
+	private AiringTable(Station station, Airing[] airings) {
+		this.station = station;
+		size = airings.length;
+		programIdx = new int[size];
+		starts = new long[size];
+		durations = new int[size];
+		states = new long[size];
+		Map<Program, Integer> progs = new HashMap<>();
+		String[] contentSources = new String[size];
+		int[] parts = new int[size];
+		ContentRating[][] tvRatings = new ContentRating[size][];
+		String[] sapLanguages = new String[size];
+		String[] subtitleLanguages = new String[size];
+		String[] broadcastLanguages = new String[size];
+		boolean hasSources = false, hasParts = false, hasRatings = false, hasSap = false, hasSubtitles = false, hasLanguages = false;
+		for(int i = 0; i < size; ++i) {
+			Airing a = airings[i];
+			Integer idx = progs.get(a.getProgram());
+			if(idx == null) {
+				idx = progs.size();
+				progs.put(a.getProgram(), idx);
+			}
+			programIdx[i] = idx;
+			starts[i] = a.getGmtStartSeconds();
+			durations[i] = a.getDuration();
+			states[i] = a.getState();
+			contentSources[i] = a.getContentSource();
+			hasSources |= contentSources[i] != null && contentSources[i].length() > 0;
+			parts[i] = (a.getPartNum() << 16) | (a.getTotalParts() & 0xFFFF);
+			hasParts |= parts[i] != 0;
+			tvRatings[i] = a.getTvRatings();
+			hasRatings |= tvRatings[i] != null && tvRatings[i].length > 0;
+			sapLanguages[i] = a.getSapLanguage();
+			hasSap |= sapLanguages[i] != null;
+			subtitleLanguages[i] = a.getSubtitleLanguage();
+			hasSubtitles |= subtitleLanguages[i] != null;
+			broadcastLanguages[i] = a.getBroadcastLanguage();
+			hasLanguages |= broadcastLanguages[i] != null;
+		}
+		programs = new Program[progs.size()];
+		for(Map.Entry<Program, Integer> e : progs.entrySet())
+			programs[e.getValue()] = e.getKey();
+		this.contentSources = hasSources ? contentSources : null;
+		this.parts = hasParts ? parts : null;
+		this.tvRatings = hasRatings ? tvRatings : null;
+		this.sapLanguages = hasSap ? sapLanguages : null;
+		this.subtitleLanguages = hasSubtitles ? subtitleLanguages : null;
+		this.broadcastLanguages = hasLanguages ? broadcastLanguages : null;
+	}
+
+	/**
+	 * @return The station this schedule belongs to
+	 */
+	public Station getStation() {
+		return station;
+	}
+
+	/**
+	 * @return The number of airings in the table
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param row The row to read
+	 * @return The start time of the airing, in epoch seconds
+	 */
+	public long getStartSeconds(int row) {
+		return starts[row];
+	}
+
+	/**
+	 * @param row The row to read
+	 * @return The start time of the airing
+	 */
+	public Date getStart(int row) {
+		return new Date(starts[row] * 1000L);
+	}
+
+	/**
+	 * @param row The row to read
+	 * @return The duration of the airing, in seconds
+	 */
+	public int getDuration(int row) {
+		return durations[row];
+	}
+
+	/**
+	 * @param row The row to read
+	 * @return The program of the airing
+	 */
+	public Program getProgram(int row) {
+		return programs[programIdx[row]];
+	}
+
+	/**
+	 * @param row The row to read
+	 * @param flag The flag to test
+	 * @return True if the flag is set for the airing or false otherwise
+	 */
+	public boolean hasFlag(int row, Flag flag) {
+		return (states[row] & flag.mask()) != 0;
+	}
+
+	/**
+	 * @param row The row to read
+	 * @param mask The flags to test, as built by <code>mask()</code>
+	 * @return True if all of the flags are set for the airing or false otherwise
+	 */
+	public boolean hasAllFlags(int row, long mask) {
+		return (states[row] & mask) == mask;
+	}
+
+	/**
+	 * Find all airings with all of the given flags set
+	 * @param mask The flags to test, as built by <code>mask()</code>
+	 * @return The matching rows, in row order
+	 */
+	public int[] findAll(long mask) {
+		return findAll(mask, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Find all airings with all of the given flags set and that start in the given window
+	 * @param mask The flags to test, as built by <code>mask()</code>
+	 * @param fromSeconds The earliest start time to match, in epoch seconds; inclusive
+	 * @param toSeconds The latest start time to match, in epoch seconds; exclusive
+	 * @return The matching rows, in row order
+	 */
+	public int[] findAll(long mask, long fromSeconds, long toSeconds) {
+		int[] rows = new int[size];
+		int found = 0;
+		for(int i = 0; i < size; ++i)
+			if((states[i] & mask) == mask && starts[i] >= fromSeconds && starts[i] < toSeconds)
+				rows[found++] = i;
+		return Arrays.copyOf(rows, found);
+	}
+
+	/**
+	 * @return The distinct programs airing in this schedule
+	 */
+	public Program[] getPrograms() {
+		return programs.clone();
+	}
+
+	/**
+	 * Build the Airing object for a row
+	 * @param row The row to build
+	 * @return A new Airing instance holding the row's values
+	 */
+	public Airing get(int row) {
+		Program p = getProgram(row);
+		int part = parts != null ? parts[row] : 0;
+		return new Airing(p.getId(), p, station, starts[row], durations[row], states[row],
+				contentSources != null ? contentSources[row] : "",
+				part >>> 16, part & 0xFFFF,
+				tvRatings != null ? tvRatings[row] : new ContentRating[0],
+				sapLanguages != null ? sapLanguages[row] : null,
+				subtitleLanguages != null ? subtitleLanguages[row] : null,
+				broadcastLanguages != null ? broadcastLanguages[row] : null);
+	}
+
+	/**
+	 * @return A new Airing instance for every row, in row order
+	 */
+	public Airing[] toArray() {
+		Airing[] airings = new Airing[size];
+		for(int i = 0; i < size; ++i)
+			airings[i] = get(i);
+		return airings;
+	}
+}
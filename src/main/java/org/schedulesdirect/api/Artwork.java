@@ -42,14 +42,14 @@ public class Artwork {
 	private Size size;
 	
 	public Artwork(JSONObject obj, EpgClient clnt) {
-		aspect = obj.optString("aspect");
+		aspect = EpgClient.intern(clnt, obj.optString("aspect"));
 		String width = obj.optString("width");
 		this.width = width.length() == 0 ? 0 : Integer.parseInt(width);
 		String height = obj.optString("height");
 		this.height = height.length() == 0 ? 0 : Integer.parseInt(height);
 		text = "yes".equalsIgnoreCase(obj.optString("text"));
-		category = obj.optString("category");
-		tier = obj.optString("tier");
+		category = EpgClient.intern(clnt, obj.optString("category"));
+		tier = EpgClient.intern(clnt, obj.optString("tier"));
 		String uri = obj.optString("uri");
 		if(uri.matches("^https?:\\/\\/.*")) {
 			this.uri = uri;
@@ -0,0 +1,549 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.schedulesdirect.api.cache.RequestCoalescer;
+import org.schedulesdirect.api.exception.JsonEncodingException;
+import org.schedulesdirect.api.utils.ByteBufferInputStream;
+import org.schedulesdirect.api.utils.JsonNodeUtils;
+import org.schedulesdirect.api.utils.UriUtils;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * An implementation of EpgClient that uses a single, memory mapped binary cache file as its data source
+ *
+ * <p>
+ * 	The binary cache holds the same data as a zip cache and is built from one by BinaryEpgWriter.
+ *  Where the zip stores every program, artwork list and schedule as its own pretty printed JSON
+ *  file, the binary cache is one file, laid out to be read straight from a memory mapping:
+ * </p>
+ * <ul>
+ *   <li>A header: <code>MAGIC</code>, <code>FORMAT_VER</code>, then the offsets of the string
+ *   table, the program, artwork, logo, lineup and station tables and the offset and length of the
+ *   user data.</li>
+ *   <li>The blobs: compact program and artwork JSON, the lineups' channel maps, the logos and the
+ *   user data, referenced by offset and length from the tables.</li>
+ *   <li>The string table: every distinct short string (ids, languages, rating bodies and codes,
+ *   ...) stored once and referenced everywhere else by its index; -1 is null.</li>
+ *   <li>The program, artwork and logo tables: id ref, blob offset and blob length per row.</li>
+ *   <li>The lineup table: name, location, uri and transport refs and the channel map blob per row.</li>
+ *   <li>The station table: id ref, airing count and offset of the station's airing block per row;
+ *   this is the offset index into the airing blocks.</li>
+ *   <li>The airing blocks: each station's airings, sorted by start time, as fixed binary records
+ *   that refer to their program by its row in the program table.</li>
+ * </ul>
+ * <p>
+ *  All values are big endian.  Airings are rebuilt straight from their records, with no JSON
+ *  parsing at all; programs and artwork are parsed from their blobs on first access and cached,
+ *  just as ZipEpgClient does.  The airing records store Airing's packed flags and enums as is,
+ *  so <code>FORMAT_VER</code> must change whenever that packing does.  Files over 2GB aren't
+ *  supported.
+ * </p>
+ * <p>
+ *  Instances are safe for use by many concurrent threads.  The file is closed once mapped; the
+ *  mapping itself is released when the instance is collected.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public class BinaryEpgClient extends EpgClient {
+	static private final Log LOG = LogFactory.getLog(BinaryEpgClient.class);
+
+	/**
+	 * The first four bytes of every binary cache file ("SDJB")
+	 */
+	static public final int MAGIC = 0x53444A42;
+	/**
+	 * The binary cache format version this client reads and BinaryEpgWriter writes
+	 */
+	static public final int FORMAT_VER = 1;
+
+	/*
+	 * Header layout: magic, version, the six section offsets then the user data offset and length; all ints
+	 */
+	static final int HEADER_LEN = 40;
+	static final int NULL_REF = -1;
+	/*
+	 * Row sizes of the fixed width tables
+	 */
+	static final int BLOB_ROW_LEN = 12;
+	static final int LINEUP_ROW_LEN = 24;
+	static final int STATION_ROW_LEN = 12;
+
+	private final File src;
+	private final MappedByteBuffer map;
+	private final String[] strings;
+	private final int programTable;
+	private final int artworkTable;
+	private final int logoTable;
+	private final int stationTable;
+	private final int userOffset;
+	private final int userLength;
+	private final Map<String, Integer> programRows;
+	private final Map<String, Integer> artworkRows;
+	private final Map<String, Integer> logoRows;
+	private final Map<String, Integer> stationRows;
+	private final Map<String, Integer> lineupRows;
+	private final Map<String, Lineup> lineups;
+	private final ConcurrentMap<String, Program> progCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Artwork[]> artCache = new ConcurrentHashMap<>();
+	private final RequestCoalescer<String, Program> programLoads = new RequestCoalescer<>();
+	private final RequestCoalescer<String, Artwork[]> artworkLoads = new RequestCoalescer<>();
+	private final Object detailsLock = new Object();
+	private volatile boolean closed;
+	private volatile boolean detailsFetched;
+
+	/**
+	 * Constructor
+	 * @param bin The binary cache path to be used as the data source for this client implementation
+	 * @param baseUrl The base URL used to construct absolute URLs from relative URL data in the raw JSON
+	 * @throws IOException Thrown on any IO error reading the file or if it isn't a binary cache of the expected version
+	 */
+	public BinaryEpgClient(final Path bin, final String baseUrl) throws IOException {
+		this(bin.toFile(), baseUrl);
+	}
+
+	/**
+	 * Constructor
+	 * @param bin The binary cache file to be used as the data source for this client implementation
+	 * @param baseUrl The base URL used to construct absolute URLs from relative URL data in the raw JSON
+	 * @throws IOException Thrown on any IO error reading the file or if it isn't a binary cache of the expected version
+	 */
+	public BinaryEpgClient(final File bin, final String baseUrl) throws IOException {
+		super(null, baseUrl);
+		src = bin;
+		try(RandomAccessFile raf = new RandomAccessFile(bin, "r"); FileChannel chan = raf.getChannel()) {
+			long len = chan.size();
+			if(len > Integer.MAX_VALUE)
+				throw new IOException(String.format("Binary cache file is too large to map! [%s]", bin));
+			if(len < HEADER_LEN)
+				throw new IOException(String.format("Binary cache file is truncated! [%s]", bin));
+			map = chan.map(FileChannel.MapMode.READ_ONLY, 0, len);
+		}
+		if(map.getInt(0) != MAGIC)
+			throw new IOException(String.format("File is not a binary cache! [%s]", bin));
+		int ver = map.getInt(4);
+		if(ver != FORMAT_VER)
+			throw new IOException(String.format("Binary cache file is not expected version! [v=%d; e=%d]", ver, FORMAT_VER));
+		LOG.debug(String.format("Binary cache format validated! [version=%d]", FORMAT_VER));
+		try {
+			strings = readStrings(map.getInt(8));
+			programTable = map.getInt(12);
+			artworkTable = map.getInt(16);
+			logoTable = map.getInt(20);
+			int lineupTable = map.getInt(24);
+			stationTable = map.getInt(28);
+			userOffset = map.getInt(32);
+			userLength = map.getInt(36);
+			programRows = readRowIds(programTable, BLOB_ROW_LEN);
+			artworkRows = readRowIds(artworkTable, BLOB_ROW_LEN);
+			logoRows = readRowIds(logoTable, BLOB_ROW_LEN);
+			stationRows = readRowIds(stationTable, STATION_ROW_LEN);
+			Map<String, Integer> lineupIds = new HashMap<>();
+			Map<String, Lineup> found = new HashMap<>();
+			int count = map.getInt(lineupTable);
+			for(int i = 0; i < count; ++i) {
+				int row = lineupTable + 4 + i * LINEUP_ROW_LEN;
+				Lineup l = new Lineup(string(map.getInt(row)), string(map.getInt(row + 4)), string(map.getInt(row + 8)), string(map.getInt(row + 12)), this);
+				found.put(l.getUri(), l);
+				lineupIds.put(l.getId(), row);
+			}
+			lineupRows = Collections.unmodifiableMap(lineupIds);
+			lineups = Collections.unmodifiableMap(found);
+		} catch(IndexOutOfBoundsException e) {
+			throw new IOException(String.format("Binary cache file is corrupt! [%s]", bin), e);
+		}
+		closed = false;
+		detailsFetched = false;
+	}
+
+	/**
+	 * Constructor
+	 * @param bin The binary cache path to be used as the data source for this client implementation
+	 * @throws IOException Thrown on any IO error reading the file or if it isn't a binary cache of the expected version
+	 */
+	public BinaryEpgClient(final Path bin) throws IOException {
+		this(bin.toFile());
+	}
+
+	/**
+	 * Constructor
+	 * @param bin The binary cache file to be used as the data source for this client implementation
+	 * @throws IOException Thrown on any IO error reading the file or if it isn't a binary cache of the expected version
+	 */
+	public BinaryEpgClient(final File bin) throws IOException {
+		this(bin, null);
+	}
+
+	/*
+	 * The string table is decoded once; the strings are shared through the client's pool so values
+	 * decoded later from the JSON blobs share them too
+	 */
+	private String[] readStrings(int offset) {
+		ByteBuffer b = map.duplicate();
+		b.position(offset);
+		String[] vals = new String[b.getInt()];
+		byte[] buf = new byte[64];
+		for(int i = 0; i < vals.length; ++i) {
+			int len = b.getInt();
+			if(len > buf.length)
+				buf = new byte[Math.max(len, buf.length * 2)];
+			b.get(buf, 0, len);
+			vals[i] = intern(this, new String(buf, 0, len, ZipEpgClient.ZIP_CHARSET));
+		}
+		return vals;
+	}
+
+	/*
+	 * Map the id of each row of a table to the row's offset; a row's id ref is always its first int
+	 */
+	private Map<String, Integer> readRowIds(int table, int rowLen) {
+		int count = map.getInt(table);
+		Map<String, Integer> rows = new HashMap<>(count * 4 / 3 + 1);
+		for(int i = 0; i < count; ++i) {
+			int row = table + 4 + i * rowLen;
+			rows.put(strings[map.getInt(row)], row);
+		}
+		return Collections.unmodifiableMap(rows);
+	}
+
+	private String string(int ref) {
+		return ref != NULL_REF ? strings[ref] : null;
+	}
+
+	/*
+	 * Ids are stored under the same scrubbed names as the zip they were built from; see ZipIndex
+	 */
+	static private Integer find(Map<String, Integer> rows, String id) {
+		Integer row = rows.get(id);
+		if(row == null) {
+			String scrubbed = ZipEpgClient.scrubFileName(id);
+			if(!scrubbed.equals(id))
+				row = rows.get(scrubbed);
+		}
+		return row;
+	}
+
+	private ByteBuffer blob(int offset, int length) {
+		ByteBuffer b = map.duplicate();
+		b.position(offset);
+		b.limit(offset + length);
+		return b.slice();
+	}
+
+	private String blobText(int offset, int length) {
+		byte[] data = new byte[length];
+		blob(offset, length).get(data);
+		return new String(data, ZipEpgClient.ZIP_CHARSET);
+	}
+
+	/*
+	 * Parse a JSON blob straight from the mapping; the blob is only read as text to report a parse error
+	 */
+	private <T> T readJsonBlob(int offset, int length, Class<T> type, String ctx) throws IOException {
+		try(InputStream ins = new ByteBufferInputStream(blob(offset, length))) {
+			return Config.get().getObjectMapper().readValue(ins, type);
+		} catch(JsonParseException e) {
+			throw new JsonEncodingException(String.format("%s: %s", ctx, e.getMessage()), e, blobText(offset, length));
+		}
+	}
+
+	@Override
+	public UserStatus getUserStatus() throws IOException {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		return new UserStatus(readJsonBlob(userOffset, userLength, JSONObject.class, "BinaryUser"), null, this);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if(!closed) {
+			purgeCache();
+			closed = true;
+		}
+	}
+
+	@Override
+	protected Airing[] fetchSchedule(final Station station) throws IOException {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		Integer row = stationRows.get(station.getId());
+		if(row == null) {
+			if(LOG.isDebugEnabled())
+				LOG.debug("Requested schedule not available in cache: " + station.getId());
+			return new Airing[0];
+		}
+		int count = map.getInt(row + 4);
+		List<Airing> airs = new ArrayList<>(count);
+		ByteBuffer b = map.duplicate();
+		b.position(map.getInt(row + 8));
+		for(int i = 0; i < count; ++i) {
+			int progRow = b.getInt();
+			long start = b.getLong();
+			int duration = b.getInt();
+			long state = b.getLong();
+			String contentSource = string(b.getInt());
+			int partNum = b.getInt();
+			int totalParts = b.getInt();
+			String sap = string(b.getInt());
+			String subtitles = string(b.getInt());
+			String lang = string(b.getInt());
+			ContentRating[] ratings = new ContentRating[b.getShort()];
+			for(int j = 0; j < ratings.length; ++j)
+				ratings[j] = ContentRating.valueOf(string(b.getInt()), string(b.getInt()));
+			Program p = fetchProgram(strings[map.getInt(programTable + 4 + progRow * BLOB_ROW_LEN)]);
+			if(p != null)
+				airs.add(new Airing(p.getId(), p, station, start, duration, state, contentSource, partNum, totalParts, ratings, sap, subtitles, lang));
+		}
+		return airs.toArray(new Airing[0]);
+	}
+
+	/**
+	 * Concurrent calls for the same program id share a single parse of its blob
+	 */
+	@Override
+	protected Program fetchProgram(final String progId) throws IOException {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		Program p = progCache.get(progId);
+		if(p == null)
+			p = programLoads.load(progId, new Callable<Program>() {
+				@Override
+				public Program call() throws Exception {
+					Program p = progCache.get(progId);
+					return p != null ? p : readProgram(progId);
+				}
+			});
+		return p;
+	}
+
+	private Program readProgram(final String progId) throws IOException {
+		Program p = null;
+		Integer row = find(programRows, progId);
+		if(row != null) {
+			try {
+				JsonNode obj = readJsonBlob(map.getInt(row + 4), map.getInt(row + 8), JsonNode.class, String.format("BinaryProgram[%s]", progId));
+				String cachedMd5 = JsonNodeUtils.optString(obj, "md5", "");
+				if(cachedMd5 != null && !"".equals(cachedMd5)) {
+					p = Program.fromNode(obj, this);
+					progCache.put(progId, p);
+				}
+			} catch (JSONException e) {
+				throw new IOException("JSON error!", e);
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Concurrent calls for the same artwork (i.e. all episodes of a series) share a single parse of its blob
+	 */
+	@Override
+	protected Artwork[] fetchArtwork(String progId) throws IOException {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		final String aId = ZipEpgClient.artworkId(progId);
+		Artwork[] artworks = artCache.get(aId);
+		if(artworks == null)
+			artworks = artworkLoads.load(aId, new Callable<Artwork[]>() {
+				@Override
+				public Artwork[] call() throws Exception {
+					Artwork[] artworks = artCache.get(aId);
+					return artworks != null ? artworks : readArtwork(aId);
+				}
+			});
+		return artworks.clone();
+	}
+
+	private Artwork[] readArtwork(final String aId) throws IOException {
+		List<Artwork> artworks = new ArrayList<>();
+		Integer row = find(artworkRows, aId);
+		if(row != null) {
+			try {
+				JSONObject artworkInfo = readJsonBlob(map.getInt(row + 4), map.getInt(row + 8), JSONObject.class, String.format("BinaryArtwork[%s]", aId));
+				Object temp = artworkInfo.get("data");
+				if(temp instanceof JSONArray) {
+					JSONArray artworkArr = (JSONArray)temp;
+					for(int i = 0; i < artworkArr.length(); ++i)
+						artworks.add(new Artwork(artworkArr.getJSONObject(i), this));
+				}
+			} catch (JSONException e) {
+				throw new IOException("JSON error!", e);
+			}
+		}
+		Artwork[] arr = artworks.toArray(new Artwork[0]);
+		artCache.put(aId, arr);
+		return arr;
+	}
+
+	@Override
+	protected Map<Station, Airing[]> fetchSchedules(final Lineup lineup) throws IOException {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		Map<Station, Airing[]> scheds = new HashMap<Station, Airing[]>();
+		for(Station s : lineup.getStations())
+			if(!s.isScheduleLoaded())
+				scheds.put(s, fetchSchedule(s));
+		return scheds;
+	}
+
+	@Override
+	protected Map<String, Program> fetchPrograms(final String[] progIds) throws IOException {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		Map<String, Program> progs = new HashMap<String, Program>();
+		for(String id : progIds)
+			progs.put(id, fetchProgram(id));
+		return progs;
+	}
+
+	/**
+	 * Get the lineups stored in the cache
+	 *
+	 * <p>
+	 * 	The lineups are returned with their channel maps and station details filled in, but each
+	 *  station's schedule, and the programs it refers to, is only read the first time the station's
+	 *  airings or programs are accessed.  Call <code>preload()</code> first to read everything up
+	 *  front instead.
+	 * </p>
+	 */
+	@Override
+	public Lineup[] getLineups() throws IOException {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		if(!detailsFetched) {
+			synchronized(detailsLock) {
+				if(!detailsFetched) {
+					for(Lineup l : lineups.values())
+						l.fetchDetails(false);
+					detailsFetched = true;
+				}
+			}
+		}
+		return lineups.values().toArray(new Lineup[0]);
+	}
+
+	/**
+	 * Read the schedules of every station of every lineup, and the programs they refer to, now
+	 *
+	 * <p>
+	 * 	For batch consumers that are going to walk the whole guide anyway; stations whose schedules
+	 *  were already read are skipped, and one being read by another thread is waited for, not read again.
+	 * </p>
+	 * @throws IOException On any IO error reading the cache file
+	 */
+	public void preload() throws IOException {
+		// Each station loads under its own lock, so a preload and a lazy load never both set a station's airings
+		for(Lineup l : getLineups())
+			for(Station s : l.getStations())
+				s.downloadProgramsAndAirings();
+	}
+
+	@Override
+	public void purgeCache() {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		progCache.clear();
+		artCache.clear();
+	}
+
+	@Override
+	public void purgeCache(final Object obj) {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		if(obj instanceof Program)
+			progCache.remove(((Program)obj).getId());
+	}
+
+	@Override
+	public void deleteMessage(final Message msg) throws IOException {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		throw new UnsupportedOperationException("Messages can only be deleted via the NetworkEpgClient!");
+	}
+
+	@Override
+	public SystemStatus getSystemStatus() throws IOException {
+		if(closed)
+			throw new IllegalStateException("Instance has already been closed!");
+		return new SystemStatus(readJsonBlob(userOffset, userLength, JSONObject.class, "BinarySysStatus").getJSONArray("systemStatus"));
+	}
+
+	@Override
+	protected InputStream fetchLogoStream(final Station station) throws IOException {
+		String url = station.getLogo().getUrl().toString();
+		String ext = url.substring(url.lastIndexOf('.') + 1);
+		Integer row = logoRows.get(String.format("%s.%s", station.getCallsign(), ext));
+		return row != null ? new ByteBufferInputStream(blob(map.getInt(row + 4), map.getInt(row + 8))) : null;
+	}
+
+	@Override
+	public int registerLineup(final String path) throws IOException {
+		throw new UnsupportedOperationException("Unsupported operation");
+	}
+
+	@Override
+	public int unregisterLineup(final Lineup l) throws IOException {
+		throw new UnsupportedOperationException("Unsupported operation");
+	}
+
+	// Ignore the search parameters and just return whatever's in the cache file
+	@Override
+	protected Lineup[] searchForLineups(String location, String zip) throws IOException {
+		return getLineups();
+	}
+
+	@Override
+	public Lineup getLineupByUriPath(String path) throws IOException {
+		for(Lineup l : getLineups()) {
+			if(l.getUri().equals(UriUtils.stripApiVersion(path)))
+				return l;
+		}
+		return null;
+	}
+
+	@Override
+	protected String fetchChannelMapping(Lineup lineup) throws IOException {
+		Integer row = lineupRows.get(lineup.getId());
+		if(row == null)
+			throw new IOException(String.format("Lineup not available in cache! [%s; %s]", lineup.getId(), src));
+		return blobText(map.getInt(row + 16), map.getInt(row + 20));
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Converts a zip cache into a binary cache, to be read by BinaryEpgClient
+ *
+ * <p>
+ * 	Programs and artwork are copied entry by entry, with their JSON compacted; the airings of
+ *  each station are decoded once here and stored as binary records, sorted by start time.  See
+ *  BinaryEpgClient for the layout of the file.  A station listed in several lineups has its
+ *  airings stored only once.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class BinaryEpgWriter {
+	static private final Log LOG = LogFactory.getLog(BinaryEpgWriter.class);
+
+	static private final String LOGOS = "logos";
+
+	static private final Comparator<Airing> BY_START = new Comparator<Airing>() {
+		@Override
+		public int compare(Airing a, Airing b) {
+			long x = a.getGmtStartSeconds();
+			long y = b.getGmtStartSeconds();
+			return x < y ? -1 : (x == y ? 0 : 1);
+		}
+	};
+
+	/*
+	 * A section of fixed width rows, built in memory and written once all blobs are out
+	 */
+	static private final class Table {
+		private final List<int[]> rows = new ArrayList<>();
+
+		private int add(int... vals) {
+			rows.add(vals);
+			return rows.size() - 1;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeInt(rows.size());
+			for(int[] row : rows)
+				for(int v : row)
+					out.writeInt(v);
+		}
+	}
+
+	private final ZipEpgClient src;
+	private final Map<String, Integer> strings = new LinkedHashMap<>();
+	private DataOutputStream out;
+
+	/**
+	 * Constructor
+	 * @param src The zip cache to convert
+	 */
+	public BinaryEpgWriter(ZipEpgClient src) {
+		this.src = src;
+	}
+
+	/**
+	 * Write the binary cache; dest is replaced if it exists and removed if the write fails
+	 * @param dest The file to write the binary cache to
+	 * @throws IOException On any IO error reading the zip or writing the file
+	 */
+	public void write(File dest) throws IOException {
+		strings.clear();
+		int[] header = new int[BinaryEpgClient.HEADER_LEN / 4];
+		header[0] = BinaryEpgClient.MAGIC;
+		header[1] = BinaryEpgClient.FORMAT_VER;
+		try {
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dest)))) {
+				this.out = out;
+				out.write(new byte[BinaryEpgClient.HEADER_LEN]);
+				FileSystem vfs = src.getFileSystem();
+				ZipIndex index = src.getIndex();
+				Path user = vfs.getPath(ZipEpgClient.USER_DATA);
+				if(Files.exists(user)) {
+					header[8] = position();
+					header[9] = writeJson(new String(Files.readAllBytes(user), ZipEpgClient.ZIP_CHARSET));
+				}
+				Table programs = new Table();
+				Map<String, Integer> programRows = new HashMap<>();
+				for(Map.Entry<String, ZipIndex.Entry> e : index.getProgramEntries().entrySet()) {
+					int off = position();
+					programRows.put(e.getKey(), programs.add(ref(e.getKey()), off, writeJson(src.readEntry(e.getValue()))));
+				}
+				Table artwork = new Table();
+				for(Map.Entry<String, ZipIndex.Entry> e : index.getArtworkEntries().entrySet()) {
+					int off = position();
+					artwork.add(ref(e.getKey()), off, writeJson(src.readEntry(e.getValue())));
+				}
+				Table logos = new Table();
+				Path logoDir = vfs.getPath(LOGOS);
+				if(Files.isDirectory(logoDir)) {
+					try(DirectoryStream<Path> entries = Files.newDirectoryStream(logoDir)) {
+						for(Path p : entries) {
+							byte[] data = Files.readAllBytes(p);
+							int off = position();
+							out.write(data);
+							logos.add(ref(p.getFileName().toString()), off, data.length);
+						}
+					}
+				}
+				Table lineups = new Table();
+				Map<String, Station> stations = new LinkedHashMap<>();
+				for(Lineup l : src.getLineups()) {
+					byte[] data = src.fetchChannelMapping(l).getBytes(ZipEpgClient.ZIP_CHARSET);
+					int off = position();
+					out.write(data);
+					lineups.add(ref(l.getName()), ref(l.getLocation()), ref(l.getUri()), ref(l.getTransport()), off, data.length);
+					for(Station s : l.getStations())
+						if(!stations.containsKey(s.getId()))
+							stations.put(s.getId(), s);
+				}
+				Table stationTable = new Table();
+				int airings = 0;
+				for(Station s : stations.values()) {
+					Airing[] sched = s.getAirings().clone();
+					Arrays.sort(sched, BY_START);
+					int off = position();
+					int count = 0;
+					for(Airing a : sched) {
+						Integer row = programRows.get(a.getProgram().getId());
+						if(row == null)
+							row = programRows.get(ZipEpgClient.scrubFileName(a.getProgram().getId()));
+						if(row == null) {
+							LOG.warn(String.format("Program missing from zip cache; airing skipped! [%s; %s]", s.getId(), a.getProgram().getId()));
+							continue;
+						}
+						writeAiring(a, row);
+						++count;
+					}
+					stationTable.add(ref(s.getId()), count, off);
+					airings += count;
+				}
+				header[2] = position();
+				out.writeInt(strings.size());
+				for(String str : strings.keySet()) {
+					byte[] data = str.getBytes(ZipEpgClient.ZIP_CHARSET);
+					out.writeInt(data.length);
+					out.write(data);
+				}
+				header[3] = writeTable(programs);
+				header[4] = writeTable(artwork);
+				header[5] = writeTable(logos);
+				header[6] = writeTable(lineups);
+				header[7] = writeTable(stationTable);
+				position();
+				LOG.debug(String.format("Wrote binary cache [programs=%d; stations=%d; airings=%d; strings=%d; size=%d]", programRows.size(), stations.size(), airings, strings.size(), out.size()));
+			} finally {
+				this.out = null;
+			}
+			try(RandomAccessFile raf = new RandomAccessFile(dest, "rw")) {
+				for(int v : header)
+					raf.writeInt(v);
+			}
+		} catch(IOException | RuntimeException e) {
+			dest.delete();
+			throw e;
+		}
+	}
+
+	/*
+	 * The record layout here must match BinaryEpgClient.fetchSchedule()
+	 */
+	private void writeAiring(Airing a, int progRow) throws IOException {
+		out.writeInt(progRow);
+		out.writeLong(a.getGmtStartSeconds());
+		out.writeInt(a.getDuration());
+		out.writeLong(a.getState());
+		out.writeInt(ref(a.getContentSource()));
+		out.writeInt(a.getPartNum());
+		out.writeInt(a.getTotalParts());
+		out.writeInt(ref(a.getSapLanguage()));
+		out.writeInt(ref(a.getSubtitleLanguage()));
+		out.writeInt(ref(a.getBroadcastLanguage()));
+		ContentRating[] ratings = a.getTvRatings() != null ? a.getTvRatings() : new ContentRating[0];
+		out.writeShort(ratings.length);
+		for(ContentRating r : ratings) {
+			out.writeInt(ref(r.getBody()));
+			out.writeInt(ref(r.getRating()));
+		}
+	}
+
+	private int writeJson(String input) throws IOException {
+		ObjectMapper mapper = Config.get().getObjectMapper();
+		byte[] data = mapper.writeValueAsBytes(mapper.readTree(input));
+		out.write(data);
+		return data.length;
+	}
+
+	private int writeTable(Table t) throws IOException {
+		int off = position();
+		t.write(out);
+		return off;
+	}
+
+	private int ref(String val) {
+		if(val == null)
+			return BinaryEpgClient.NULL_REF;
+		Integer ref = strings.get(val);
+		if(ref == null) {
+			ref = strings.size();
+			strings.put(val, ref);
+		}
+		return ref;
+	}
+
+	/*
+	 * DataOutputStream's count wraps once past 2GB, which the format doesn't support anyway
+	 */
+	private int position() throws IOException {
+		int pos = out.size();
+		if(pos < 0 || pos == Integer.MAX_VALUE)
+			throw new IOException("Binary cache exceeds 2GB!");
+		return pos;
+	}
+}
@@ -97,6 +97,7 @@ public final class Config {
 	/**
 	 * Get a SimpleDateFormat instance for the configured date/time format string
 	 * <p>This cannot be overridden at runtime.</p>
+	 * <p>A new instance is built on every call; when parsing feed values prefer DateTimeUtils, which is thread safe and allocation free.</p>
 	 * @return The SimpleDateFormat instance
 	 */
 	public SimpleDateFormat getDateTimeFormat() {
@@ -185,4 +186,302 @@ public final class Config {
 	public boolean captureHttpContent() {
 		return captureHttpComm() && System.getProperty("sdjson.capture.http.content") != null;
 	}
+
+	/**
+	 * <p>
+	 *  The maximum number of pooled HTTP connections kept open to a single host.
+	 * </p>
+	 * <p>
+	 *  Default is 8; can be overridden via system property:
+	 *
+	 *  <code>sdjson.http.max-per-route=N</code>
+	 * </p>
+	 * @return The max number of connections per route
+	 */
+	public int httpMaxConnectionsPerRoute() {
+		return getIntProperty("sdjson.http.max-per-route", 8);
+	}
+
+	/**
+	 * <p>
+	 *  The maximum number of pooled HTTP connections kept open across all hosts.
+	 * </p>
+	 * <p>
+	 *  Default is 20; can be overridden via system property:
+	 *
+	 *  <code>sdjson.http.max-total=N</code>
+	 * </p>
+	 * @return The max number of connections in the pool
+	 */
+	public int httpMaxConnections() {
+		return getIntProperty("sdjson.http.max-total", 20);
+	}
+
+	/**
+	 * <p>
+	 *  The timeout, in milliseconds, for establishing a connection to the JSON service.
+	 * </p>
+	 * <p>
+	 *  Default is 30000; can be overridden via system property:
+	 *
+	 *  <code>sdjson.http.connect-timeout=N</code>
+	 * </p>
+	 * @return The connect timeout in millis; zero means no timeout
+	 */
+	public int httpConnectTimeout() {
+		return getIntProperty("sdjson.http.connect-timeout", 30000);
+	}
+
+	/**
+	 * <p>
+	 *  The timeout, in milliseconds, to wait for data on an established connection.
+	 * </p>
+	 * <p>
+	 *  Default is 300000; can be overridden via system property:
+	 *
+	 *  <code>sdjson.http.socket-timeout=N</code>
+	 * </p>
+	 * @return The socket timeout in millis; zero means no timeout
+	 */
+	public int httpSocketTimeout() {
+		return getIntProperty("sdjson.http.socket-timeout", 300000);
+	}
+
+	/**
+	 * <p>
+	 *  Pooled HTTP connections left unused for longer than this many milliseconds are closed.
+	 * </p>
+	 * <p>
+	 *  Default is 60000; can be overridden via system property:
+	 *
+	 *  <code>sdjson.http.idle-timeout=N</code>
+	 * </p>
+	 * @return The idle timeout in millis
+	 */
+	public int httpIdleTimeout() {
+		return getIntProperty("sdjson.http.idle-timeout", 60000);
+	}
+
+	/**
+	 * <p>
+	 *  The timeout, in milliseconds, to wait for a pooled HTTP connection to become free when
+	 *  all of them are in use; a request that times out fails instead of waiting forever.
+	 * </p>
+	 * <p>
+	 *  Default is 60000; can be overridden via system property:
+	 *
+	 *  <code>sdjson.http.pool-timeout=N</code>
+	 * </p>
+	 * @return The pool timeout in millis; zero means no timeout
+	 */
+	public int httpPoolTimeout() {
+		return getIntProperty("sdjson.http.pool-timeout", 60000);
+	}
+
+	/**
+	 * <p>
+	 *  The number of worker threads each NetworkEpgClient uses to run its asynchronous fetch methods.
+	 * </p>
+	 * <p>
+	 *  Default is 4; can be overridden via system property:
+	 *
+	 *  <code>sdjson.async.threads=N</code>
+	 * </p>
+	 * @return The number of async worker threads per client
+	 */
+	public int asyncThreads() {
+		return Math.max(1, getIntProperty("sdjson.async.threads", 4));
+	}
+
+	/**
+	 * <p>
+	 * 	When true, programs only decode their title, md5, genres and other cheap fields when built;
+	 *  credits, descriptions, ratings, keywords, metadata, images and event details are kept in
+	 *  raw form and decoded on first access.  Errors in the deferred fields then fail the first
+	 *  access, and every one after it, with an IllegalStateException wrapping the
+	 *  InvalidJsonObjectException, instead of failing the program's construction.
+	 * </p>
+	 * <p>
+	 *  Default is false, to enable set the JVM system property:
+	 *  
+	 *  <code>sdjson.programs.lazy</code>
+	 * </p>
+	 * @return True if the option is enabled, false otherwise
+	 */
+	public boolean lazyProgramDecoding() {
+		return System.getProperty("sdjson.programs.lazy") != null;
+	}
+
+	/**
+	 * <p>
+	 * 	When true, stations store their schedules in an AiringTable, column by column in primitive
+	 *  arrays, instead of as an array of Airing objects; <code>Station.getAirings()</code> then
+	 *  builds new Airing objects on each call.
+	 * </p>
+	 * <p>
+	 *  Default is false, to enable set the JVM system property:
+	 *  
+	 *  <code>sdjson.schedules.columnar</code>
+	 * </p>
+	 * @return True if the option is enabled, false otherwise
+	 */
+	public boolean columnarSchedules() {
+		return System.getProperty("sdjson.schedules.columnar") != null;
+	}
+
+	/**
+	 * <p>
+	 * 	When true, ZipEpgClient memory maps its zip file and reads program, artwork and schedule
+	 *  entries straight from the mapped file, bypassing the zip file system provider.  Zips that
+	 *  can't be mapped (i.e. zip64 archives) fall back to the provider.
+	 * </p>
+	 * <p>
+	 *  Default is false, to enable set the JVM system property:
+	 *
+	 *  <code>sdjson.zip.mapped</code>
+	 * </p>
+	 * @return True if the option is enabled, false otherwise
+	 */
+	public boolean mappedZipReader() {
+		return System.getProperty("sdjson.zip.mapped") != null;
+	}
+
+	/**
+	 * <p>
+	 * 	When true, and the mapped zip reader is enabled, ZipEpgClient reads its zip file through a
+	 *  file channel instead of mapping it.  A mapping is only released when it's garbage collected and,
+	 *  on Windows, the file can't be replaced while it exists; the channel is closed with the client,
+	 *  so the zip can then be replaced (i.e. by ZipCacheWriter) while the application keeps running.
+	 * </p>
+	 * <p>
+	 *  Default is false, to enable set the JVM system property:
+	 *
+	 *  <code>sdjson.zip.replaceable</code>
+	 * </p>
+	 * @return True if the option is enabled, false otherwise
+	 */
+	public boolean replaceableZipReader() {
+		return System.getProperty("sdjson.zip.replaceable") != null;
+	}
+
+	/**
+	 * <p>
+	 *  The max number of program ids sent to the JSON service in a single programs request;
+	 *  larger batches are split into chunks of this size.
+	 * </p>
+	 * <p>
+	 *  Default is 5000, the most the service accepts; can be overridden via system property:
+	 *
+	 *  <code>sdjson.programs.chunk-size=N</code>
+	 * </p>
+	 * @return The max number of program ids per request
+	 */
+	public int programChunkSize() {
+		return Math.max(1, getIntProperty("sdjson.programs.chunk-size", 5000));
+	}
+
+	/**
+	 * <p>
+	 *  The max number of program ids sent to the JSON service in a single artwork request;
+	 *  larger batches are split into chunks of this size.
+	 * </p>
+	 * <p>
+	 *  Default is 500; can be overridden via system property:
+	 *
+	 *  <code>sdjson.artwork.chunk-size=N</code>
+	 * </p>
+	 * @return The max number of program ids per artwork request
+	 */
+	public int artworkChunkSize() {
+		return Math.max(1, getIntProperty("sdjson.artwork.chunk-size", 500));
+	}
+
+	/**
+	 * <p>
+	 *  The max number of chunks of a batched fetch each NetworkEpgClient downloads concurrently.
+	 * </p>
+	 * <p>
+	 *  Default is 4; can be overridden via system property:
+	 *
+	 *  <code>sdjson.fetch.parallelism=N</code>
+	 * </p>
+	 * @return The max number of chunk downloads in flight per client
+	 */
+	public int fetchParallelism() {
+		return Math.max(1, getIntProperty("sdjson.fetch.parallelism", 4));
+	}
+
+	/**
+	 * <p>
+	 *  The max number of objects each NetworkEpgClient keeps in its in memory cache; the least
+	 *  recently used objects are evicted once the cache is full.
+	 * </p>
+	 * <p>
+	 *  Default is 50000; can be overridden via system property:
+	 *
+	 *  <code>sdjson.cache.max-entries=N</code>
+	 * </p>
+	 * @return The max number of cached objects per client
+	 */
+	public int cacheMaxEntries() {
+		return Math.max(1, getIntProperty("sdjson.cache.max-entries", 50000));
+	}
+
+	/**
+	 * <p>
+	 *  Objects older than this many milliseconds are expired from each NetworkEpgClient's in
+	 *  memory cache; zero disables expiry.
+	 * </p>
+	 * <p>
+	 *  Default is 43200000 (12 hours); can be overridden via system property:
+	 *
+	 *  <code>sdjson.cache.ttl=N</code>
+	 * </p>
+	 * @return The cache expiry, in millis
+	 */
+	public int cacheTtl() {
+		return getIntProperty("sdjson.cache.ttl", 43200000);
+	}
+
+	/**
+	 * <p>
+	 *  The approximate max size, in megabytes, of a DiskCache on disk.
+	 * </p>
+	 * <p>
+	 *  Default is 512; can be overridden via system property:
+	 *
+	 *  <code>sdjson.cache.disk.max-mb=N</code>
+	 * </p>
+	 * @return The max size of the disk cache, in bytes
+	 */
+	public long diskCacheMaxBytes() {
+		return Math.max(1, getIntProperty("sdjson.cache.disk.max-mb", 512)) * 1024L * 1024L;
+	}
+
+	/**
+	 * <p>
+	 *  The max number of downloaded entries a ZipCacheWriter holds in memory while they wait to
+	 *  be written to the zip; downloads pause whenever this many entries are waiting.
+	 * </p>
+	 * <p>
+	 *  Default is 256; can be overridden via system property:
+	 *
+	 *  <code>sdjson.zip.writer.queue-size=N</code>
+	 * </p>
+	 * @return The max number of entries waiting to be written
+	 */
+	public int zipWriterQueueSize() {
+		return Math.max(1, getIntProperty("sdjson.zip.writer.queue-size", 256));
+	}
+
+	private int getIntProperty(String name, int defaultVal) {
+		String val = System.getProperty(name);
+		if(val != null && val.length() > 0)
+			try {
+				return Integer.parseInt(val);
+			} catch(NumberFormatException e) {
+				LOG.warn(String.format("Invalid value for %s; using default! [%s]", name, val));
+			}
+		return defaultVal;
+	}
 }
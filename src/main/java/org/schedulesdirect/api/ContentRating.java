@@ -15,15 +15,32 @@
  */
 package org.schedulesdirect.api;
 
+import org.schedulesdirect.api.cache.Interner;
+
 /**
  * Represents the rating of a particular airing or program
+ * 
+ * <p>Instances are immutable; those built by the API are canonical and shared by every
+ * airing and program carrying the same rating.</p>
  * @author Derek Battams &lt;derek@battams.ca&gt;
  *
  */
 public class ContentRating {
 
-	private String body;
-	private String rating;
+	static private final Interner<ContentRating> CANON = new Interner<>();
+
+	/**
+	 * Get the shared instance of a rating
+	 * @param body The organization or governing body that assigned this rating
+	 * @param rating The rating assigned
+	 * @return The canonical instance for the given body and rating
+	 */
+	static public ContentRating valueOf(String body, String rating) {
+		return CANON.intern(new ContentRating(body, rating));
+	}
+
+	private final String body;
+	private final String rating;
 
 	/**
 	 * Constructor
@@ -57,4 +74,41 @@ public class ContentRating {
 		return "ContentRating [body=" + body + ", rating=" + rating + "]";
 	}
 
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((body == null) ? 0 : body.hashCode());
+		result = prime * result + ((rating == null) ? 0 : rating.hashCode());
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ContentRating other = (ContentRating) obj;
+		if (body == null) {
+			if (other.body != null)
+				return false;
+		} else if (!body.equals(other.body))
+			return false;
+		if (rating == null) {
+			if (other.rating != null)
+				return false;
+		} else if (!rating.equals(other.rating))
+			return false;
+		return true;
+	}
+
 }
@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
 
+import org.schedulesdirect.api.cache.StringPool;
+
 /**
  * An EpgClient provides access to Schedules Direct JSON feed data.
  * 
@@ -45,8 +47,20 @@ public abstract class EpgClient {
 		return String.format("/%s/lineups/%s", API_VERSION, id);
 	}
 	
+	/**
+	 * Canonicalize a decoded value through a client's string pool
+	 * @param clnt The client the value is being decoded for; may be null
+	 * @param val The value to canonicalize
+	 * @return The pooled instance of val, or val itself if there is no pool available
+	 */
+	static String intern(EpgClient clnt, String val) {
+		StringPool pool = clnt != null ? clnt.getStringPool() : null;
+		return pool != null ? pool.intern(val) : val;
+	}
+	
 	private String userAgent;
 	private String baseUrl;
+	private final StringPool strings = new StringPool();
 	
 	/**
 	 * Constructor
@@ -188,6 +202,26 @@ public abstract class EpgClient {
 	 */
 	abstract protected Artwork[] fetchArtwork(final String progId) throws IOException;
 	
+	/**
+	 * Whether Program instances built by this client should skip fetching their artwork at
+	 * construction time; the client is then expected to fill in the artwork of the programs it
+	 * builds in batches, with any program it misses fetching its own artwork on first access
+	 * @return True if artwork is deferred, false if each program fetches its artwork when built
+	 */
+	protected boolean isArtworkDeferred() {
+		return false;
+	}
+	
+	/**
+	 * Whether episode Program instances built by this client should skip fetching their series
+	 * info at construction time; the client is then expected to fill in the series info of the
+	 * episodes it builds in batches, with any episode it misses fetching its own series on first access
+	 * @return True if series info is deferred, false if each episode fetches its series when built
+	 */
+	protected boolean isSeriesInfoDeferred() {
+		return false;
+	}
+	
 	/**
 	 * Fetch multiple recording schedules in batch.
 	 * 
@@ -275,4 +309,13 @@ public abstract class EpgClient {
 	public void setBaseUri(String baseUrl) {
 		this.baseUrl = baseUrl;
 	}
+
+	/**
+	 * The pool used to share equal String values (genres, languages, rating codes, etc.) among all
+	 * of the objects built by this client
+	 * @return The client's string pool
+	 */
+	public final StringPool getStringPool() {
+		return strings;
+	}
 }
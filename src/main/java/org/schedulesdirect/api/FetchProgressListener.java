@@ -0,0 +1,38 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+/**
+ * Receives progress notifications as a batched fetch is downloaded in chunks
+ *
+ * <p>
+ * 	Chunks may be fetched concurrently, so implementations must be thread safe; notifications
+ *  are delivered on the thread that downloaded the chunk and in order of completion, which is
+ *  not necessarily the order the chunks were requested in.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public interface FetchProgressListener {
+	/**
+	 * Called each time a chunk of a batched fetch completes successfully
+	 * @param resource The resource being fetched (i.e. <code>RestNouns.PROGRAMS</code>)
+	 * @param completed The number of chunks of this fetch completed so far, including this one
+	 * @param total The total number of chunks in this fetch
+	 * @param records The number of records received in this chunk
+	 */
+	public void chunkCompleted(String resource, int completed, int total, int records);
+}
@@ -30,6 +30,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.schedulesdirect.api.exception.InvalidJsonObjectException;
 import org.schedulesdirect.api.exception.JsonEncodingException;
+import org.schedulesdirect.api.utils.DateTimeUtils;
 import org.schedulesdirect.api.utils.UriUtils;
 
 import com.fasterxml.jackson.core.JsonParseException;
@@ -146,7 +147,7 @@ public class Lineup {
 	}
 		
 	private void fillMetadata(final JSONObject data) throws JSONException, ParseException {
-		lastModified = Config.get().getDateTimeFormat().parse(data.getString("modified"));
+		lastModified = DateTimeUtils.parseDateTime(data.getString("modified"));
 	}
 	
 	private Map<String, JSONObject> getTuningData(final JSONArray data) throws JSONException {
@@ -21,6 +21,7 @@ import java.util.Date;
 import org.json.JSONObject;
 import org.schedulesdirect.api.exception.InvalidJsonObjectException;
 import org.schedulesdirect.api.exception.SilentInvalidJsonObjectException;
+import org.schedulesdirect.api.utils.DateTimeUtils;
 
 /**
  * Represents a message object as received from the SD server.
@@ -43,7 +44,7 @@ public class Message {
 	 */
 	Message(JSONObject src, EpgClient clnt) throws InvalidJsonObjectException {
 		try {
-			date = Config.get().getDateTimeFormat().parse(src.getString("date"));
+			date = DateTimeUtils.parseDateTime(src.getString("date"));
 			id = src.getString("msgID");
 		} catch(Throwable t) {
 			throw new SilentInvalidJsonObjectException(t);
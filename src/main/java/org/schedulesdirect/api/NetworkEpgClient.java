@@ -25,15 +25,33 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.schedulesdirect.api.cache.DiskCache;
+import org.schedulesdirect.api.cache.LruObjectCache;
+import org.schedulesdirect.api.cache.ObjectCache;
+import org.schedulesdirect.api.cache.RequestCoalescer;
 import org.schedulesdirect.api.exception.InvalidCredentialsException;
 import org.schedulesdirect.api.exception.InvalidJsonObjectException;
 import org.schedulesdirect.api.exception.JsonEncodingException;
@@ -43,10 +61,14 @@ import org.schedulesdirect.api.json.IJsonRequestFactory;
 import org.schedulesdirect.api.json.DefaultJsonRequest;
 import org.schedulesdirect.api.json.DefaultJsonRequest.Action;
 import org.schedulesdirect.api.json.JsonRequestFactory;
+import org.schedulesdirect.api.utils.DateTimeUtils;
+import org.schedulesdirect.api.utils.JsonNodeUtils;
+import org.schedulesdirect.api.utils.JsonRecordReader;
 import org.schedulesdirect.api.utils.JsonResponseUtils;
 import org.schedulesdirect.api.utils.UriUtils;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 /**
  * An implementation of EpgClient that accesses all data from the Schedules Direct JSON feed servers
@@ -87,10 +109,11 @@ import com.fasterxml.jackson.core.JsonParseException;
  *
  */
 public class NetworkEpgClient extends EpgClient {
+	static private final Log LOG = LogFactory.getLog(NetworkEpgClient.class);
+
 	/*
 	 * This is all for the client instance cache; just in case people do use this class to access EPG data, there is some effort to cache what we can
 	 */
-	static private final Map<String, Object> CACHE = Collections.synchronizedMap(new HashMap<String, Object>());
 	static private String getCacheKey(Object obj) {
 		if(obj instanceof Program)
 			return getCacheKeyForProgram(((Program)obj).getId());
@@ -101,6 +124,7 @@ public class NetworkEpgClient extends EpgClient {
 	}
 	static private String getCacheKeyForProgram(String progId) { return "__PROG__" + progId; }
 	static private String getCacheKeyForStation(String stationId) { return "__STAT__" + stationId; }
+	static private String getCacheKeyForScheduleDay(String stationId, String day) { return "__SDAY__" + stationId + "/" + day; }
 	
 	private String id;
 	private String password;
@@ -109,6 +133,14 @@ public class NetworkEpgClient extends EpgClient {
 	private boolean useCache;
 	private SystemStatus systemStatus;
 	private IJsonRequestFactory factory;
+	private ExecutorService asyncExecutor;
+	private volatile ObjectCache cache = new LruObjectCache();
+	private ExecutorService chunkExecutor;
+	private volatile EpgClient programSource;
+	private volatile DiskCache diskCache;
+	private volatile FetchProgressListener progressListener;
+	private final RequestCoalescer<String, Program> programLoads = new RequestCoalescer<>();
+	private final RequestCoalescer<String, Artwork[]> artworkLoads = new RequestCoalescer<>();
 
 	/**
 	 * Constructor
@@ -209,6 +241,28 @@ public class NetworkEpgClient extends EpgClient {
 	 */
 	public IJsonRequestFactory getJsonRequestFactory() { return factory; }
 	
+	/**
+	 * Run the given task on this client's bounded pool of async workers
+	 * @param task The task to run
+	 * @return The Future result of the task
+	 */
+	protected <T> Future<T> submitAsync(final Callable<T> task) {
+		synchronized(this) {
+			if(asyncExecutor == null)
+				asyncExecutor = Executors.newFixedThreadPool(Config.get().asyncThreads(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger(0);
+					
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, String.format("sdjson-clnt-worker-%d", count.incrementAndGet()));
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			return asyncExecutor.submit(task);
+		}
+	}
+	
 	/**
 	 * Perform user authorization with Schedules Direct
 	 * @throws InvalidCredentialsException Thrown if authorization failed
@@ -304,6 +358,75 @@ public class NetworkEpgClient extends EpgClient {
 		return list;
 	}
 	
+	/**
+	 * Asynchronous version of <code>getLineups()</code>
+	 * @return A Future holding the user's lineups; any IO error is thrown from the Future's <code>get()</code>, wrapped in an ExecutionException
+	 */
+	public Future<Lineup[]> getLineupsAsync() {
+		return submitAsync(new Callable<Lineup[]>() {
+			@Override
+			public Lineup[] call() throws Exception {
+				return getLineups();
+			}
+		});
+	}
+	
+	/**
+	 * Asynchronous version of <code>submitForJson()</code>; the request is executed on this client's async workers
+	 * @param req The request to submit, as built by this client's JsonRequestFactory
+	 * @param reqData The supporting data for the request; this is dependent on the action and obj target specified
+	 * @return A Future holding the JSON encoded response; any IO error is thrown from the Future's <code>get()</code>, wrapped in an ExecutionException
+	 */
+	public Future<String> submitForJsonAsync(final DefaultJsonRequest req, final Object reqData) {
+		return submitAsync(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return req.submitForJson(reqData);
+			}
+		});
+	}
+	
+	/**
+	 * Asynchronous version of <code>submitForInputStream()</code>; the request is executed on this client's async workers
+	 * @param req The request to submit, as built by this client's JsonRequestFactory
+	 * @param reqData The supporting data for the request; this is dependent on the action and obj target specified
+	 * @return A Future holding the InputStream of the response; caller responsible for closing the stream when done
+	 */
+	public Future<InputStream> submitForInputStreamAsync(final DefaultJsonRequest req, final Object reqData) {
+		return submitAsync(new Callable<InputStream>() {
+			@Override
+			public InputStream call() throws Exception {
+				return req.submitForInputStream(reqData);
+			}
+		});
+	}
+	
+	/**
+	 * Fetch the details of several lineups at once
+	 * 
+	 * <p>
+	 * 	Each lineup's <code>fetchDetails()</code> runs on this client's async workers, so the channel
+	 *  maps and schedules of all the lineups are in flight together; the program batches each
+	 *  schedule needs are spread over the chunk workers as usual.  Must not be called from a task
+	 *  running on the async workers.
+	 * </p>
+	 * @param lineups The lineups to fetch the details of
+	 * @param fetchAirings Passed to each lineup's <code>fetchDetails()</code>
+	 * @throws IOException If the details of any lineup could not be fetched; the other lineups are cancelled
+	 */
+	public void fetchDetails(final Lineup[] lineups, final boolean fetchAirings) throws IOException {
+		List<Future<Void>> fetches = new ArrayList<>(lineups.length);
+		for(final Lineup l : lineups)
+			fetches.add(submitAsync(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					l.fetchDetails(fetchAirings);
+					return null;
+				}
+			}));
+		awaitChunks(fetches);
+	}
+	
 	@Override
 	protected Lineup[] searchForLineups(final String location, final String zip) throws IOException {
 		List<Lineup> hes = new ArrayList<Lineup>();
@@ -355,6 +478,16 @@ public class NetworkEpgClient extends EpgClient {
 
 	@Override
 	public void close() throws IOException {
+		synchronized(this) {
+			if(asyncExecutor != null) {
+				asyncExecutor.shutdownNow();
+				asyncExecutor = null;
+			}
+			if(chunkExecutor != null) {
+				chunkExecutor.shutdownNow();
+				chunkExecutor = null;
+			}
+		}
 		purgeCache();
 	}
 	
@@ -386,7 +519,7 @@ public class NetworkEpgClient extends EpgClient {
 	protected Airing[] fetchSchedule(final Station station) throws IOException {
 		Airing[] sched = null;
 		if(useCache)
-			sched = (Airing[])CACHE.get(getCacheKey(station));
+			sched = (Airing[])cache.get(getCacheKey(station));
 		if(sched == null) {
 			List<Airing> schedList = new ArrayList<Airing>();
 			JSONArray ids = new JSONArray();
@@ -394,26 +527,17 @@ public class NetworkEpgClient extends EpgClient {
 			JSONObject reqObj = new JSONObject();
 			reqObj.put("request", ids);
 			DefaultJsonRequest req = factory.get(Action.POST, RestNouns.SCHEDULES, hash, getUserAgent(), getBaseUrl());
-			InputStream ins = req.submitForInputStream(reqObj);
-			@SuppressWarnings("unchecked")
-			List<String> input = IOUtils.readLines(ins);
-			for(String obj : input) {
-				JSONObject o;
-				try {
-					o = Config.get().getObjectMapper().readValue(obj, JSONObject.class);
-				} catch(JsonParseException e) {
-					throw new JsonEncodingException(String.format("ScheduleResp: %s", e.getMessage()), e, obj);
-				}
+			for(JsonNode o : readRecords(req.submitForInputStream(reqObj), "ScheduleResp")) {
 				if(!JsonResponseUtils.isErrorResponse(o)) {
 					try {
-						JSONArray progs = o.getJSONArray("programs");
-						for(int i = 0; i < progs.length(); ++i) {
-							JSONObject p = progs.getJSONObject(i);
+						JsonNode airs = JsonNodeUtils.getArray(o, "programs");
+						Map<String, Program> progs = resolvePrograms(airs);
+						for(JsonNode p : airs) {
 							if(!JsonResponseUtils.isErrorResponse(p))
-								schedList.add(new Airing(p, fetchProgram(p.getString("programID")), station));
+								schedList.add(Airing.fromNode(p, progs.get(JsonNodeUtils.getString(p, "programID")), station));
 						}
 					} catch(JSONException e) {
-						throw new InvalidJsonObjectException(String.format(""), e, o.toString(3));
+						throw new InvalidJsonObjectException(String.format(""), e, JsonNodeUtils.toString(o));
 					}
 				}
 			}
@@ -421,18 +545,52 @@ public class NetworkEpgClient extends EpgClient {
 		return sched;
 	}
 
+	/**
+	 * Concurrent calls for the same program id share a single fetch
+	 */
 	@Override
 	protected Program fetchProgram(final String progId) throws IOException {
-		return fetchPrograms(new String[] { progId }).values().toArray(new Program[1])[0];
+		return programLoads.load(progId, new Callable<Program>() {
+			@Override
+			public Program call() throws Exception {
+				return fetchPrograms(new String[] { progId }).values().toArray(new Program[1])[0];
+			}
+		});
 	}
 	
+	/**
+	 * Asynchronous version of <code>fetchProgram()</code>
+	 * @param progId The program id to fetch
+	 * @return A Future holding the Program instance or null if unavailable
+	 */
+	protected Future<Program> fetchProgramAsync(final String progId) {
+		return submitAsync(new Callable<Program>() {
+			@Override
+			public Program call() throws Exception {
+				return fetchProgram(progId);
+			}
+		});
+	}
+	
+	/**
+	 * Concurrent calls for the same artwork (i.e. all episodes of a series) share a single fetch
+	 */
 	@Override
 	protected Artwork[] fetchArtwork(String progId) throws IOException {
 		String artProgId = progId;
 		if(artProgId.length() > 10) {
 			artProgId = artProgId.substring(0, 10);
 		}
-		
+		final String key = artProgId;
+		return artworkLoads.load(key, new Callable<Artwork[]>() {
+			@Override
+			public Artwork[] call() throws Exception {
+				return downloadArtwork(key);
+			}
+		});
+	}
+	
+	private Artwork[] downloadArtwork(String artProgId) throws IOException {
 		List<Artwork> aList = new ArrayList<>();
 		
 		JSONArray req = new JSONArray();
@@ -459,25 +617,144 @@ public class NetworkEpgClient extends EpgClient {
 		return aList.toArray(new Artwork[0]);
 	}
 
-	private void prefetch(JSONArray airings) throws IOException {
-		List<String> ids = new ArrayList<>();
+	/**
+	 * Asynchronous version of <code>fetchArtwork()</code>
+	 * @param progId The program id to fetch artwork for
+	 * @return A Future holding the artwork for the program
+	 */
+	protected Future<Artwork[]> fetchArtworkAsync(final String progId) {
+		return submitAsync(new Callable<Artwork[]>() {
+			@Override
+			public Artwork[] call() throws Exception {
+				return fetchArtwork(progId);
+			}
+		});
+	}
+
+	/**
+	 * Find the Program for each of the given schedule entries
+	 * 
+	 * <p>
+	 * 	A program already held in this client's cache or available from the local program source
+	 *  or disk cache is used only if its md5 matches the md5 listed in the schedule entry; all other
+	 *  programs are downloaded, in one batch.
+	 * </p>
+	 * @param airings The schedule entries to find programs for
+	 * @return A map of program id to Program; a program the service reports as invalid maps to null
+	 * @throws IOException On any IO error
+	 */
+	private Map<String, Program> resolvePrograms(JsonNode airings) throws IOException {
+		Map<String, Program> progs = new HashMap<>();
+		Set<String> misses = new LinkedHashSet<>();
 		try {
-			for(int i = 0; i < airings.length(); ++i)
-				ids.add(airings.getJSONObject(i).getString("programID"));
+			for(JsonNode a : airings) {
+				if(JsonResponseUtils.isErrorResponse(a))
+					continue;
+				String id = JsonNodeUtils.getString(a, "programID");
+				if(progs.containsKey(id) || misses.contains(id))
+					continue;
+				String md5 = JsonNodeUtils.optString(a, "md5", null);
+				Program p = findLocalProgram(id, md5);
+				if(p != null)
+					progs.put(id, p);
+				else
+					misses.add(id);
+			}
 		} catch(JSONException e) {
 			throw new SilentInvalidJsonObjectException(e);
 		}
-		fetchPrograms(ids.toArray(new String[0]));
+		if(LOG.isDebugEnabled())
+			LOG.debug(String.format("Programs: %d current locally; %d to download", progs.size(), misses.size()));
+		fillArtwork(progs.values());
+		if(misses.size() > 0)
+			progs.putAll(downloadPrograms(new ArrayList<>(misses)));
+		fillSeriesInfo(progs.values());
+		return progs;
+	}
+	
+	/**
+	 * Find a program without going to the network
+	 * @param progId The program to find
+	 * @param md5 The md5 the program must have; null to accept any
+	 * @return The program or null if a current copy isn't available locally
+	 * @throws IOException On any IO error
+	 */
+	private Program findLocalProgram(String progId, String md5) throws IOException {
+		Program p = useCache ? (Program)cache.get(getCacheKeyForProgram(progId)) : null;
+		if(p != null && (md5 == null || md5.equals(p.getMd5())))
+			return p;
+		EpgClient src = programSource;
+		if(src != null) {
+			p = src.fetchProgram(progId);
+			if(p != null && (md5 == null || md5.equals(p.getMd5()))) {
+				if(useCache)
+					cache.put(getCacheKeyForProgram(progId), p);
+				return p;
+			}
+		}
+		return readStoredProgram(progId, md5, 0);
+	}
+	
+	private Program readStoredProgram(String progId, String md5, long maxAge) throws IOException {
+		DiskCache store = diskCache;
+		if(store == null)
+			return null;
+		String key = getCacheKeyForProgram(progId);
+		String data = store.get(key, md5, maxAge);
+		if(data == null)
+			return null;
+		Program p;
+		try {
+			p = Program.fromNode(Config.get().getObjectMapper().readTree(data), this);
+		} catch(JsonParseException | InvalidJsonObjectException e) {
+			LOG.warn(String.format("Discarding invalid program from disk cache! [%s]", progId), e);
+			store.remove(key);
+			return null;
+		}
+		if(useCache)
+			cache.put(key, p);
+		return p;
+	}
+	
+	/**
+	 * Set a persistent cache of downloaded programs and schedules
+	 * 
+	 * <p>
+	 * 	Downloaded programs, and schedule days received by <code>syncSchedules()</code>, are written
+	 *  to the cache.  Schedule fetches take programs from it whenever the stored md5 is current;
+	 *  plain program fetches take any program stored within the last <code>Config.cacheTtl()</code>
+	 *  millis.  The caller remains responsible for closing the cache.
+	 * </p>
+	 * @param store The disk cache or null to stop using the current one
+	 */
+	public void setDiskCache(DiskCache store) {
+		diskCache = store;
+	}
+	
+	/**
+	 * @return The persistent cache being used by this client or null if there isn't one
+	 */
+	public DiskCache getDiskCache() {
+		return diskCache;
+	}
+	
+	/**
+	 * Set a local source of previously downloaded programs, such as a ZipEpgClient opened on the
+	 * last grab; when fetching schedules, programs whose md5 is unchanged are taken from this
+	 * source instead of being downloaded again
+	 * @param src The local source of programs or null to remove the current source
+	 */
+	public void setLocalProgramSource(EpgClient src) {
+		programSource = src;
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	protected Map<Station, Airing[]> fetchSchedules(final Lineup lineup) throws IOException {
 		Collection<String> misses = new ArrayList<>();
 		Map<Station, Airing[]> scheds = new HashMap<Station, Airing[]>();
 		if(useCache)
 			for(Station s : lineup.getStations()) {
-				Airing[] sched = (Airing[])CACHE.get(getCacheKey(s));
+				Airing[] sched = (Airing[])cache.get(getCacheKey(s));
 				if(sched != null)
 					scheds.put(s, sched);
 				else
@@ -490,45 +767,243 @@ public class NetworkEpgClient extends EpgClient {
 		if(misses.size() > 0) {
 			JSONObject reqObj = new JSONObject();
 			reqObj.put("request", misses);
-			try(InputStream resp = factory.get(DefaultJsonRequest.Action.POST, RestNouns.SCHEDULES, hash, getUserAgent(), getBaseUrl()).submitForInputStream(reqObj)) {
-				for(String input : (List<String>)IOUtils.readLines(resp)) {
-					JSONObject sched;
-					try {
-						sched = Config.get().getObjectMapper().readValue(input, JSONObject.class);
-					} catch(JsonParseException e) {
-						throw new JsonEncodingException(String.format("Schedule: %s", e.getMessage()), e, input);
-					}
-					try {
-						Station s = lineup.getStation(sched.getString("stationID"));
-						JSONArray airs = sched.getJSONArray("programs");
-						if(useCache)
-							prefetch(airs);
-						List<Airing> result = new ArrayList<>();
-						for(int i = 0; i < airs.length(); ++i) {
-							JSONObject a = airs.getJSONObject(i);
-							Program p = fetchProgram(a.getString("programID"));
-							result.add(new Airing(a, p, s));
-						}
-						scheds.put(s, result.toArray(new Airing[0]));
-						if(useCache)
-							CACHE.put(getCacheKeyForStation(s.getId()), s);
-					} catch(JSONException e) {
-						throw new InvalidJsonObjectException(String.format("Schedule: %s", e.getMessage()), e, sched.toString(3));
+			for(JsonNode sched : readRecords(factory.get(DefaultJsonRequest.Action.POST, RestNouns.SCHEDULES, hash, getUserAgent(), getBaseUrl()).submitForInputStream(reqObj), "Schedule")) {
+				try {
+					Station s = lineup.getStation(JsonNodeUtils.getString(sched, "stationID"));
+					JsonNode airs = JsonNodeUtils.getArray(sched, "programs");
+					Map<String, Program> progs = resolvePrograms(airs);
+					List<Airing> result = new ArrayList<>();
+					for(JsonNode a : airs) {
+						Program p = progs.get(JsonNodeUtils.getString(a, "programID"));
+						result.add(Airing.fromNode(a, p, s));
 					}
+					scheds.put(s, result.toArray(new Airing[0]));
+					if(useCache)
+						cache.put(getCacheKeyForStation(s.getId()), s);
+				} catch(JSONException e) {
+					throw new InvalidJsonObjectException(String.format("Schedule: %s", e.getMessage()), e, JsonNodeUtils.toString(sched));
 				}
 			}
 		}
 		return scheds;		
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Asynchronous version of <code>fetchSchedules()</code>; schedules for multiple lineups can be in flight at once
+	 * @param lineup The Lineup object to download schedules for
+	 * @return A Future holding the map of schedules, keyed by Station
+	 */
+	protected Future<Map<Station, Airing[]>> fetchSchedulesAsync(final Lineup lineup) {
+		return submitAsync(new Callable<Map<Station, Airing[]>>() {
+			@Override
+			public Map<Station, Airing[]> call() throws Exception {
+				return fetchSchedules(lineup);
+			}
+		});
+	}
+
+	/**
+	 * Fetch the md5 of each day of schedule data available upstream for the given stations
+	 * @param stationIds The stations to fetch md5s for
+	 * @return A map of station id to a map of day (yyyy-MM-dd, UTC) to md5; days without an md5 upstream are omitted
+	 * @throws IOException On any IO error
+	 */
+	public Map<String, Map<String, String>> fetchScheduleMd5s(final String[] stationIds) throws IOException {
+		Map<String, Map<String, String>> md5s = new HashMap<>();
+		if(stationIds.length == 0)
+			return md5s;
+		JSONArray ids = new JSONArray();
+		for(String id : stationIds)
+			ids.put(new JSONObject().put("stationID", id));
+		JSONObject req = new JSONObject();
+		req.put("request", ids);
+		JsonNode resp;
+		try(InputStream input = factory.get(DefaultJsonRequest.Action.POST, RestNouns.SCHEDULE_MD5S, hash, getUserAgent(), getBaseUrl()).submitForInputStream(req)) {
+			resp = Config.get().getObjectMapper().readTree(input);
+		} catch(JsonParseException e) {
+			throw new JsonEncodingException(String.format("ScheduleMd5s: %s", e.getMessage()), e, null);
+		}
+		if(resp == null || JsonResponseUtils.isErrorResponse(resp))
+			throw new IOException(String.format("ScheduleMd5s: Request failed! [%s]", resp));
+		Iterator<Map.Entry<String, JsonNode>> stations = resp.fields();
+		while(stations.hasNext()) {
+			Map.Entry<String, JsonNode> station = stations.next();
+			Map<String, String> days = new HashMap<>();
+			Iterator<Map.Entry<String, JsonNode>> it = station.getValue().fields();
+			while(it.hasNext()) {
+				Map.Entry<String, JsonNode> day = it.next();
+				String md5 = JsonNodeUtils.optString(day.getValue(), "md5", null);
+				if(md5 != null && !JsonResponseUtils.isErrorResponse(day.getValue()))
+					days.put(day.getKey(), md5);
+			}
+			md5s.put(station.getKey(), days);
+		}
+		return md5s;
+	}
+	
+	/**
+	 * Incrementally refresh the schedules of every station in a lineup
+	 * 
+	 * <p>
+	 * 	The md5 of each station-day is fetched and compared against <code>knownMd5s</code>; only the
+	 *  station-days that changed (or are new) are downloaded.  Airings of unchanged days are taken
+	 *  from <code>previous</code>, which may be the result of an earlier sync or the schedules read
+	 *  from a ZipEpgClient.  Reused airings keep the Program and Station they were built with.
+	 * </p>
+	 * <p>
+	 *  On return, the entries of the lineup's stations in <code>knownMd5s</code> have been replaced
+	 *  by the md5s of the returned schedules, ready to be saved and passed to the next sync.  The
+	 *  entries of other stations are left alone, so one map can be shared by all of a user's lineups.
+	 * </p>
+	 * @param lineup The lineup to refresh
+	 * @param previous The airings from the previous sync, keyed by station id; may be empty, never null
+	 * @param knownMd5s The md5s from the previous sync, keyed by station id then day; may be empty or hold other lineups' stations, never null
+	 * @return A map of each station in the lineup to its full, current airing schedule
+	 * @throws IOException On any IO error
+	 */
+	public Map<Station, Airing[]> syncSchedules(final Lineup lineup, final Map<String, Airing[]> previous, final Map<String, Map<String, String>> knownMd5s) throws IOException {
+		Station[] stations = lineup.getStations();
+		String[] ids = new String[stations.length];
+		for(int i = 0; i < stations.length; ++i)
+			ids[i] = stations[i].getId();
+		Map<String, Map<String, String>> md5s = fetchScheduleMd5s(ids);
+		
+		Map<Station, List<Airing>> scheds = new HashMap<>();
+		Map<String, Map<String, String>> synced = new HashMap<>();
+		JSONArray changed = new JSONArray();
+		int changedDays = 0;
+		int totalDays = 0;
+		for(Station s : stations) {
+			Map<String, String> days = md5s.get(s.getId());
+			if(days == null)
+				days = Collections.emptyMap();
+			Map<String, String> known = knownMd5s.get(s.getId());
+			Airing[] prev = previous.get(s.getId());
+			Set<String> unchanged = new HashSet<>();
+			JSONArray dates = new JSONArray();
+			Map<String, String> stationSynced = new HashMap<>();
+			List<Airing> airs = new ArrayList<>();
+			for(Map.Entry<String, String> day : days.entrySet()) {
+				if(prev != null && known != null && day.getValue().equals(known.get(day.getKey()))) {
+					unchanged.add(day.getKey());
+					stationSynced.put(day.getKey(), day.getValue());
+				} else if(readStoredScheduleDay(s, day.getKey(), day.getValue(), airs))
+					stationSynced.put(day.getKey(), day.getValue());
+				else
+					dates.put(day.getKey());
+			}
+			synced.put(s.getId(), stationSynced);
+			if(prev != null)
+				for(Airing a : prev)
+					if(unchanged.contains(DateTimeUtils.formatUtcDay(a.getGmtStart().getTime())))
+						airs.add(a);
+			scheds.put(s, airs);
+			if(dates.length() > 0)
+				changed.put(new JSONObject().put("stationID", s.getId()).put("date", dates));
+			changedDays += dates.length();
+			totalDays += days.size();
+		}
+		if(LOG.isDebugEnabled())
+			LOG.debug(String.format("Schedule sync: %d of %d station-days changed for %s", changedDays, totalDays, lineup.getId()));
+		
+		if(changed.length() > 0) {
+			JSONObject reqObj = new JSONObject();
+			reqObj.put("request", changed);
+			for(JsonNode sched : readRecords(factory.get(DefaultJsonRequest.Action.POST, RestNouns.SCHEDULES, hash, getUserAgent(), getBaseUrl()).submitForInputStream(reqObj), "ScheduleSync")) {
+				if(JsonResponseUtils.isErrorResponse(sched))
+					continue;
+				try {
+					Station s = lineup.getStation(JsonNodeUtils.getString(sched, "stationID"));
+					List<Airing> result = s != null ? scheds.get(s) : null;
+					if(result == null)
+						continue;
+					JsonNode airs = JsonNodeUtils.getArray(sched, "programs");
+					Map<String, Program> progs = resolvePrograms(airs);
+					for(JsonNode a : airs)
+						result.add(Airing.fromNode(a, progs.get(JsonNodeUtils.getString(a, "programID")), s));
+					// Only record md5s for days actually received so failed days are retried next sync;
+					// a response that doesn't say which day it holds can't be matched to an md5, so it records nothing
+					JsonNode meta = JsonNodeUtils.optObject(sched, "metadata");
+					String day = meta != null ? JsonNodeUtils.optString(meta, "startDate", null) : null;
+					Map<String, String> days = md5s.get(s.getId());
+					if(day != null && days != null && days.containsKey(day)) {
+						synced.get(s.getId()).put(day, days.get(day));
+						DiskCache store = diskCache;
+						if(store != null)
+							store.put(getCacheKeyForScheduleDay(s.getId(), day), days.get(day), sched.toString());
+					}
+				} catch(JSONException e) {
+					throw new InvalidJsonObjectException(String.format("ScheduleSync: %s", e.getMessage()), e, JsonNodeUtils.toString(sched));
+				}
+			}
+		}
+		
+		Map<Station, Airing[]> result = new HashMap<>();
+		for(Map.Entry<Station, List<Airing>> e : scheds.entrySet()) {
+			List<Airing> airs = e.getValue();
+			Collections.sort(airs, new Comparator<Airing>() {
+				@Override
+				public int compare(Airing o1, Airing o2) {
+					return o1.getGmtStart().compareTo(o2.getGmtStart());
+				}
+			});
+			Airing[] arr = airs.toArray(new Airing[airs.size()]);
+			result.put(e.getKey(), arr);
+			if(useCache)
+				cache.put(getCacheKey(e.getKey()), arr);
+		}
+		// Only this lineup's stations are replaced; the map may be shared by several lineups
+		knownMd5s.putAll(synced);
+		return result;
+	}
+
+	/*
+	 * Read every record of a response, then close it; schedules are read in full before their
+	 * programs are fetched, as a worker holding one pooled connection while it waits for another
+	 * could otherwise deadlock with others doing the same once the pool runs dry
+	 */
+	private List<JsonNode> readRecords(InputStream ins, String ctx) throws IOException {
+		List<JsonNode> records = new ArrayList<>();
+		try(JsonRecordReader input = new JsonRecordReader(ins, ctx)) {
+			JsonNode n;
+			while((n = input.nextNode()) != null)
+				records.add(n);
+		}
+		return records;
+	}
+
+	private boolean readStoredScheduleDay(Station s, String day, String md5, List<Airing> airs) throws IOException {
+		DiskCache store = diskCache;
+		if(store == null)
+			return false;
+		String key = getCacheKeyForScheduleDay(s.getId(), day);
+		String data = store.get(key, md5, 0);
+		if(data == null)
+			return false;
+		JsonNode sched = null;
+		try {
+			sched = Config.get().getObjectMapper().readTree(data);
+			JsonNode src = JsonNodeUtils.getArray(sched, "programs");
+			Map<String, Program> progs = resolvePrograms(src);
+			List<Airing> found = new ArrayList<>();
+			for(JsonNode a : src)
+				found.add(Airing.fromNode(a, progs.get(JsonNodeUtils.getString(a, "programID")), s));
+			airs.addAll(found);
+			return true;
+		} catch(JsonParseException | JSONException | InvalidJsonObjectException e) {
+			LOG.warn(String.format("Discarding invalid schedule from disk cache! [%s]", key), e);
+			store.remove(key);
+			return false;
+		}
+	}
+	
 	@Override
 	protected Map<String, Program> fetchPrograms(final String[] progIds) throws IOException {
-		Collection<String> misses = new ArrayList<String>();
+		List<String> misses = new ArrayList<String>();
 		Map<String, Program> progs = new HashMap<String, Program>();
 		if(useCache)
 			for(String progId : progIds) {
-				Program p = (Program)CACHE.get(getCacheKeyForProgram(progId));
+				Program p = (Program)cache.get(getCacheKeyForProgram(progId));
 				if(p != null)
 					progs.put(progId, p);
 				else
@@ -536,46 +1011,322 @@ public class NetworkEpgClient extends EpgClient {
 			}
 		else
 			misses.addAll(Arrays.asList(progIds));
+		if(diskCache != null) {
+			Iterator<String> itr = misses.iterator();
+			while(itr.hasNext()) {
+				String progId = itr.next();
+				Program p = readStoredProgram(progId, null, Config.get().cacheTtl());
+				if(p != null) {
+					progs.put(progId, p);
+					itr.remove();
+				}
+			}
+			fillArtwork(progs.values());
+		}
+		progs.putAll(downloadPrograms(misses));
+		fillSeriesInfo(progs.values());
+		return progs;
+	}
+	
+	/**
+	 * Download the given programs, bypassing the cache
+	 * @param misses The ids to download
+	 * @return A map of fetched programs; the key is the progId and the value is the Program instance
+	 * @throws IOException On any IO error
+	 */
+	private Map<String, Program> downloadPrograms(final List<String> misses) throws IOException {
+		Map<String, Program> progs = new HashMap<String, Program>();
 		if(misses.size() > 0) {
-			JSONObject req = new JSONObject();
-			req.put("request", new JSONArray(misses));
-			
-			try (InputStream resp = factory.get(DefaultJsonRequest.Action.POST, RestNouns.PROGRAMS, hash, getUserAgent(), getBaseUrl()).submitForInputStream(req)) {
-				for(String input : (List<String>)IOUtils.readLines(resp)) {
-					JSONObject prog;
-					try {
-						prog = Config.get().getObjectMapper().readValue(input, JSONObject.class);
-						if(JsonResponseUtils.isErrorResponse(prog) && JsonResponseUtils.getErrorCode(prog) == ApiResponse.INVALID_PROGID) {
-							progs.put(prog.getString("programID"), null);
-							continue;
+			int chunkSize = Config.get().programChunkSize();
+			final int total = (misses.size() + chunkSize - 1) / chunkSize;
+			if(total == 1) {
+				progs.putAll(fetchProgramChunk(misses));
+				notifyChunkCompleted(RestNouns.PROGRAMS, 1, 1, misses.size());
+			} else {
+				final AtomicInteger completed = new AtomicInteger(0);
+				List<Future<Map<String, Program>>> chunks = new ArrayList<>();
+				for(int i = 0; i < misses.size(); i += chunkSize) {
+					final List<String> chunk = misses.subList(i, Math.min(i + chunkSize, misses.size()));
+					chunks.add(submitChunk(new Callable<Map<String, Program>>() {
+						@Override
+						public Map<String, Program> call() throws Exception {
+							Map<String, Program> result = fetchProgramChunk(chunk);
+							notifyChunkCompleted(RestNouns.PROGRAMS, completed.incrementAndGet(), total, chunk.size());
+							return result;
 						}
-					} catch(JsonParseException e) {
-						throw new JsonEncodingException(String.format("Program: %s", e.getMessage()), e, input);
-					}
-					try {
-						Program p = new Program(prog, this);
-						String key = p.getId();
-						progs.put(key, p);
-						if(useCache)
-							CACHE.put(getCacheKeyForProgram(key), p);
-					} catch(JSONException e) {
-						throw new InvalidJsonObjectException(String.format("Program[%s] is not valid!", prog.optString("programID", "unknown")), e, prog.toString(3));
-					}
+					}));
 				}
+				if(LOG.isDebugEnabled())
+					LOG.debug(String.format("Fetching %d programs in %d chunks", misses.size(), total));
+				for(Map<String, Program> result : awaitChunks(chunks))
+					progs.putAll(result);
 			}
 		}
 		return progs;
 	}
 	
+	private Map<String, Program> fetchProgramChunk(final Collection<String> progIds) throws IOException {
+		Map<String, Program> progs = new HashMap<String, Program>();
+		JSONObject req = new JSONObject();
+		req.put("request", new JSONArray(progIds));
+		
+		try(JsonRecordReader input = new JsonRecordReader(factory.get(DefaultJsonRequest.Action.POST, RestNouns.PROGRAMS, hash, getUserAgent(), getBaseUrl()).submitForInputStream(req), "Program")) {
+			JsonNode prog;
+			while((prog = input.nextNode()) != null) {
+				if(JsonResponseUtils.isErrorResponse(prog) && JsonResponseUtils.getErrorCode(prog) == ApiResponse.INVALID_PROGID) {
+					progs.put(JsonNodeUtils.getString(prog, "programID"), null);
+					continue;
+				}
+				try {
+					Program p = Program.fromNode(prog, this);
+					String key = p.getId();
+					progs.put(key, p);
+					if(useCache)
+						cache.put(getCacheKeyForProgram(key), p);
+					DiskCache store = diskCache;
+					if(store != null)
+						store.put(getCacheKeyForProgram(key), p.getMd5(), prog.toString());
+				} catch(JSONException e) {
+					throw new InvalidJsonObjectException(String.format("Program[%s] is not valid!", JsonNodeUtils.optString(prog, "programID", "unknown")), e, JsonNodeUtils.toString(prog));
+				}
+			}
+		}
+		fillArtwork(progs.values());
+		return progs;
+	}
+	
+	@Override
+	protected boolean isArtworkDeferred() {
+		return true;
+	}
+	
+	@Override
+	protected boolean isSeriesInfoDeferred() {
+		return true;
+	}
+	
+	/**
+	 * Fetch the series of all the given episodes still waiting for it, in one batch
+	 * 
+	 * <p>
+	 * 	Each distinct series is requested once, no matter how many of its episodes are given.  This
+	 *  must only be called once a fetch's chunks have all completed; it waits on chunks of its own.
+	 * </p>
+	 * @param progs The programs to fill in; null entries and programs not waiting for series info are ignored
+	 * @throws IOException On any IO error
+	 */
+	private void fillSeriesInfo(Collection<Program> progs) throws IOException {
+		Map<String, List<Program>> pending = new LinkedHashMap<>();
+		int episodes = 0;
+		for(Program p : progs) {
+			if(p == null || !p.isSeriesInfoPending())
+				continue;
+			++episodes;
+			String seriesId = Program.convertToSeriesId(p.getId());
+			List<Program> l = pending.get(seriesId);
+			if(l == null) {
+				l = new ArrayList<>();
+				pending.put(seriesId, l);
+			}
+			l.add(p);
+		}
+		if(pending.isEmpty())
+			return;
+		if(LOG.isDebugEnabled())
+			LOG.debug(String.format("Resolving %d series for %d episodes", pending.size(), episodes));
+		Map<String, Program> series = fetchPrograms(pending.keySet().toArray(new String[pending.size()]));
+		for(Map.Entry<String, List<Program>> e : pending.entrySet()) {
+			if(!series.containsKey(e.getKey()))
+				continue; // Left pending; fetched on first access
+			for(Program p : e.getValue())
+				p.setSeriesInfo(series.get(e.getKey()));
+		}
+	}
+	
+	/**
+	 * Fetch the artwork of all the given programs still waiting for it, in batches
+	 * 
+	 * <p>
+	 * 	Episodes share the artwork of their series, so each distinct artwork id is only requested once.
+	 *  Batches are sent one after another, on the calling thread, as this runs inside chunk tasks.
+	 * </p>
+	 * @param progs The programs to fill in; null entries and programs not waiting for artwork are ignored
+	 * @throws IOException On any IO error
+	 */
+	private void fillArtwork(Collection<Program> progs) throws IOException {
+		Map<String, List<Program>> pending = new LinkedHashMap<>();
+		for(Program p : progs) {
+			if(p == null || !p.isArtworkPending())
+				continue;
+			String artId = ZipEpgClient.artworkId(p.getId());
+			List<Program> l = pending.get(artId);
+			if(l == null) {
+				l = new ArrayList<>();
+				pending.put(artId, l);
+			}
+			l.add(p);
+		}
+		if(pending.isEmpty())
+			return;
+		List<String> ids = new ArrayList<>(pending.keySet());
+		int chunkSize = Config.get().artworkChunkSize();
+		for(int i = 0; i < ids.size(); i += chunkSize) {
+			List<String> chunk = ids.subList(i, Math.min(i + chunkSize, ids.size()));
+			Map<String, Artwork[]> arts = fetchArtworkChunk(chunk);
+			for(String artId : chunk) {
+				Artwork[] a = arts.get(artId);
+				if(a == null)
+					continue; // Left pending; fetched on first access
+				for(Program p : pending.get(artId))
+					p.setArtworks(a);
+			}
+		}
+		if(LOG.isDebugEnabled())
+			LOG.debug(String.format("Fetched artwork for %d artwork ids in %d requests", ids.size(), (ids.size() + chunkSize - 1) / chunkSize));
+	}
+	
+	private Map<String, Artwork[]> fetchArtworkChunk(Collection<String> artIds) throws IOException {
+		Map<String, Artwork[]> arts = new HashMap<>();
+		JSONArray req = new JSONArray(artIds);
+		JSONArray resp = Config.get().getObjectMapper().readValue(factory.get(DefaultJsonRequest.Action.POST, RestNouns.METADATA, getHash(), getUserAgent(), getBaseUrl()).submitForJson(req), JSONArray.class);
+		for(int i = 0; i < resp.length(); ++i) {
+			JSONObject o = resp.getJSONObject(i);
+			String artId = o.optString("programID", null);
+			if(artId == null)
+				continue;
+			if(JsonResponseUtils.isErrorResponse(o)) {
+				LOG.warn(String.format("Error received for artwork; skipping it! [%s]", artId));
+				arts.put(artId, new Artwork[0]);
+				continue;
+			}
+			List<Artwork> aList = new ArrayList<>();
+			Object temp = o.opt("data");
+			if(temp instanceof JSONArray) {
+				JSONArray artworkArr = (JSONArray)temp;
+				for(int j = 0; j < artworkArr.length(); ++j)
+					aList.add(new Artwork(artworkArr.getJSONObject(j), this));
+			}
+			arts.put(artId, aList.toArray(new Artwork[aList.size()]));
+		}
+		return arts;
+	}
+	
+	/**
+	 * Run one chunk of a batched fetch on this client's bounded pool of chunk workers
+	 * 
+	 * <p>
+	 * 	This pool is kept separate from the one used by <code>submitAsync()</code> so that an async
+	 *  fetch waiting on its own chunks can never starve itself of workers.  Chunk tasks must not
+	 *  themselves wait on other chunks.
+	 * </p>
+	 * @param task The task to run
+	 * @return The Future result of the task
+	 */
+	protected <T> Future<T> submitChunk(final Callable<T> task) {
+		synchronized(this) {
+			if(chunkExecutor == null)
+				chunkExecutor = Executors.newFixedThreadPool(Config.get().fetchParallelism(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger(0);
+					
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, String.format("sdjson-chunk-worker-%d", count.incrementAndGet()));
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			return chunkExecutor.submit(task);
+		}
+	}
+	
+	/**
+	 * Wait for all chunks of a batched fetch to complete
+	 * 
+	 * <p>If any chunk fails, all outstanding chunks are cancelled and the failure is rethrown.</p>
+	 * @param chunks The chunks to wait for
+	 * @return The results of each chunk, in the order the chunks were submitted
+	 * @throws IOException If any chunk failed
+	 */
+	protected <T> List<T> awaitChunks(final List<Future<T>> chunks) throws IOException {
+		List<T> results = new ArrayList<>(chunks.size());
+		try {
+			for(Future<T> f : chunks)
+				results.add(f.get());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for chunked fetch!", e);
+		} catch(ExecutionException e) {
+			Throwable t = e.getCause();
+			if(t instanceof IOException)
+				throw (IOException)t;
+			else if(t instanceof RuntimeException)
+				throw (RuntimeException)t;
+			throw new IOException(t);
+		} finally {
+			for(Future<T> f : chunks)
+				f.cancel(true);
+		}
+		return results;
+	}
+	
+	private void notifyChunkCompleted(String resource, int completed, int total, int records) {
+		FetchProgressListener l = progressListener;
+		if(l != null)
+			try {
+				l.chunkCompleted(resource, completed, total, records);
+			} catch(RuntimeException e) {
+				LOG.error("FetchProgressListener failed!", e);
+			}
+	}
+	
+	/**
+	 * Register a listener to be notified as each chunk of a batched fetch completes
+	 * @param l The listener to notify or null to remove the current listener
+	 */
+	public void setFetchProgressListener(FetchProgressListener l) {
+		progressListener = l;
+	}
+	
+	/**
+	 * Asynchronous version of <code>fetchPrograms()</code>; multiple program batches can be in flight at once
+	 * @param progIds An array of program ids to fetch
+	 * @return A Future holding the map of fetched programs, keyed by program id
+	 */
+	protected Future<Map<String, Program>> fetchProgramsAsync(final String[] progIds) {
+		return submitAsync(new Callable<Map<String, Program>>() {
+			@Override
+			public Map<String, Program> call() throws Exception {
+				return fetchPrograms(progIds);
+			}
+		});
+	}
+	
+	/**
+	 * @return The cache of objects fetched by this client
+	 */
+	public ObjectCache getCache() {
+		return cache;
+	}
+	
+	/**
+	 * Replace the cache of objects fetched by this client; objects in the current cache are discarded
+	 * @param cache The new cache; cannot be null
+	 */
+	public void setCache(ObjectCache cache) {
+		if(cache == null)
+			throw new IllegalArgumentException("cache cannot be null!");
+		this.cache = cache;
+	}
+	
 	@Override
 	public void purgeCache() {
-		CACHE.clear();
+		cache.clear();
 	}
 
 	@Override
 	public void purgeCache(final Object obj) {
 		String k = getCacheKey(obj);
-		if(k != null) CACHE.remove(k);
+		if(k != null) cache.remove(k);
 	}
 	
 	@Override
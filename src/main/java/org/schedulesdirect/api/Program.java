@@ -15,8 +15,9 @@
  */
 package org.schedulesdirect.api;
 
+import java.io.IOException;
 import java.net.URL;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -30,16 +31,20 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TimeZone;
 import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.schedulesdirect.api.cache.Interner;
 import org.schedulesdirect.api.exception.InvalidJsonObjectException;
 import org.schedulesdirect.api.exception.SilentInvalidJsonObjectException;
+import org.schedulesdirect.api.utils.DateTimeUtils;
+import org.schedulesdirect.api.utils.JsonNodeUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * A Program represents the details of events and shows that are broadcast
@@ -66,12 +71,6 @@ public class Program {
 	 * The expected format of the original airing field
 	 */
 	static public final String ORIG_FMT = "yyyy-MM-dd";
-	
-	static private SimpleDateFormat getOrigAirDateFormat() {
-		SimpleDateFormat fmt = new SimpleDateFormat(ORIG_FMT);
-		fmt.setTimeZone(TimeZone.getDefault());
-		return fmt;
-	}
 		
 	/**
 	 * The color code of a program
@@ -205,21 +204,45 @@ public class Program {
 	 * 
 	 * <p>Only Program can instantiate objects of this class</p>
 	 * 
+	 * <p>Instances are immutable and canonical; a person credited identically (same role,
+	 * character, billing, etc.) in many programs is represented by one shared instance.</p>
+	 * 
 	 * @author Derek Battams &lt;derek@battams.ca&gt;
 	 *
 	 */
 	static public class Credit {
 
-		private Role role;
-		private String name;
-		private int billingOrder;
-		private String personId;
-		private String nameId;
-		private String characterName;
+		/*
+		 * Credits are only shared when every field matches; equals() deliberately ignores the
+		 * character name and billing order, so it can't decide what may be shared
+		 */
+		static private final Interner<Credit> CANON = new Interner<>(new Interner.Equivalence<Credit>() {
+			@Override
+			public boolean equivalent(Credit a, Credit b) {
+				return a.equals(b) && a.billingOrder == b.billingOrder
+						&& (a.characterName == null ? b.characterName == null : a.characterName.equals(b.characterName));
+			}
+
+			@Override
+			public int hash(Credit val) {
+				return 31 * val.hashCode() + (val.characterName == null ? 0 : val.characterName.hashCode());
+			}
+		});
+
+		static private Credit valueOf(JsonNode src) throws JSONException {
+			return CANON.intern(new Credit(src));
+		}
+
+		private final Role role;
+		private final String name;
+		private final int billingOrder;
+		private final String personId;
+		private final String nameId;
+		private final String characterName;
 	
-		private Credit(JSONObject src) throws JSONException {
+		private Credit(JsonNode src) throws JSONException {
 			Role r = null;
-			String roleStr = src.getString("role");
+			String roleStr = JsonNodeUtils.getString(src, "role");
 			if(roleStr.startsWith("Writer") || roleStr.contains("Screenwriter"))
 				roleStr = "Writer";
 			else if(roleStr.contains("Assistant Director"))
@@ -232,7 +255,7 @@ public class Program {
 				roleStr = "Production Designer";
 			else if(roleStr.contains("Visual Effects"))
 				roleStr = "Visual Effects";
-			String name = src.getString("name");
+			String name = JsonNodeUtils.getString(src, "name");
 			try {
 				r = Role.valueOf(roleStr.toUpperCase().replace(' ', '_'));
 			} catch(IllegalArgumentException e) {
@@ -242,10 +265,10 @@ public class Program {
 			}
 			role = r;
 			this.name = name;
-			billingOrder = Integer.parseInt(src.optString("billingOrder", "0"));
-			personId = src.optString("personId", null);
-			nameId = src.optString("nameId", null);
-			characterName = src.optString("characterName", null);
+			billingOrder = Integer.parseInt(JsonNodeUtils.optString(src, "billingOrder", "0"));
+			personId = JsonNodeUtils.optString(src, "personId", null);
+			nameId = JsonNodeUtils.optString(src, "nameId", null);
+			characterName = JsonNodeUtils.optString(src, "characterName", null);
 		}
 
 		/**
@@ -427,12 +450,16 @@ public class Program {
 		private String increment;
 		
 		protected StringQualityRating(JSONObject src, String units) throws InvalidJsonObjectException {
-			super(src.optString("ratingsBody", null), units);
+			this(JsonNodeUtils.toNode(src), units);
+		}
+
+		protected StringQualityRating(JsonNode src, String units) throws InvalidJsonObjectException {
+			super(JsonNodeUtils.optString(src, "ratingsBody", null), units);
 			try {
-				rating = src.getString("rating");
-				minRating = src.optString("minRating", null);
-				maxRating = src.optString("maxRating", null);
-				increment = src.optString("increment", null);
+				rating = JsonNodeUtils.getString(src, "rating");
+				minRating = JsonNodeUtils.optString(src, "minRating", null);
+				maxRating = JsonNodeUtils.optString(src, "maxRating", null);
+				increment = JsonNodeUtils.optString(src, "increment", null);
 			} catch(JSONException e) {
 				throw new SilentInvalidJsonObjectException(e);
 			}
@@ -480,11 +507,15 @@ public class Program {
 		private float increment;
 		
 		protected FloatQualityRating(JSONObject src, String units) {
-			super(src.optString("ratingsBody", null), units);
-			rating = Float.parseFloat(src.getString("rating"));
-			minRating = Float.parseFloat(src.optString("minRating", Float.toString(Float.MIN_VALUE)));
-			maxRating = Float.parseFloat(src.optString("maxRating", Float.toString(Float.MIN_VALUE)));
-			increment = Float.parseFloat(src.optString("increment", Float.toString(Float.MIN_VALUE)));
+			this(JsonNodeUtils.toNode(src), units);
+		}
+
+		protected FloatQualityRating(JsonNode src, String units) {
+			super(JsonNodeUtils.optString(src, "ratingsBody", null), units);
+			rating = Float.parseFloat(JsonNodeUtils.getString(src, "rating"));
+			minRating = Float.parseFloat(JsonNodeUtils.optString(src, "minRating", Float.toString(Float.MIN_VALUE)));
+			maxRating = Float.parseFloat(JsonNodeUtils.optString(src, "maxRating", Float.toString(Float.MIN_VALUE)));
+			increment = Float.parseFloat(JsonNodeUtils.optString(src, "increment", Float.toString(Float.MIN_VALUE)));
 		}
 
 		@Override
@@ -517,16 +548,16 @@ public class Program {
 		}
 	}
 
-	static private String parseDesc(JSONArray src) {
-		return src != null ? src.getJSONObject(findEnDescIndex(src)).getString("description") : "";
+	static private String parseDesc(JsonNode src) {
+		return src != null ? JsonNodeUtils.getString(src.get(findEnDescIndex(src)), "description") : "";
 	}
 	
-	static private int findEnDescIndex(JSONArray src) {
+	static private int findEnDescIndex(JsonNode src) {
 		int retVal = 0;
-		if(src.length() > 1) {
-			for(int i = 0; i < src.length(); ++i) {
-				JSONObject o = src.getJSONObject(i);
-				if(o.getString("descriptionLanguage").equals("en")) {
+		if(src.size() > 1) {
+			for(int i = 0; i < src.size(); ++i) {
+				JsonNode o = src.get(i);
+				if(JsonNodeUtils.getString(o, "descriptionLanguage").equals("en")) {
 					retVal = i;
 					break;
 				}
@@ -543,6 +574,11 @@ public class Program {
 	
 	static public final Pattern MOVIE_REGEX = Pattern.compile("Feature Film|.*Movie");
 	
+	/**
+	 * The fields of a program's JSON that are only decoded on first access when lazy decoding is enabled
+	 */
+	static private final String[] DETAIL_FIELDS = {"metadata", "movie", "descriptions", "cast", "crew", "eventDetails", "images", "keyWords"};
+	
 	static private final Set<String> WARNED_SRC_TYPES = new HashSet<>();
 	static private final Set<String> WARNED_COLOR_CODES = new HashSet<>();
 	
@@ -582,8 +618,12 @@ public class Program {
 	private URL[] images;
 	private EntityType entityType;
 	private Map<String, List<String>> keywords;
-	private Artwork[] artworks;
-	private Program seriesInfo;
+	private volatile Artwork[] artworks;
+	private EpgClient artworkSrc;
+	private volatile Program seriesInfo;
+	private EpgClient seriesSrc;
+	private volatile byte[] details;
+	private String detailsBaseUrl;
 	
 	
 	/**
@@ -594,140 +634,84 @@ public class Program {
 	 * @throws IllegalArgumentException Thrown if src is null
 	 */
 	Program(JSONObject src, EpgClient clnt) throws InvalidJsonObjectException {
+		this(JsonNodeUtils.toNode(src), clnt);
+	}
+
+	/**
+	 * Decode a program straight from the Jackson tree, without an intermediate org.json object
+	 * @param src The JSON object from which the program is being constructed; cannot be null
+	 * @param epgClnt The EpgClient instance to associate with the Program instance
+	 * @return The decoded program
+	 * @throws InvalidJsonObjectException Thrown if the given src is not in the expected format
+	 * @throws IllegalArgumentException Thrown if src is null
+	 */
+	static Program fromNode(JsonNode src, EpgClient clnt) throws InvalidJsonObjectException {
+		return new Program(src, clnt);
+	}
+
+	/*
+	 * Private, and reached through fromNode(), so that a null src isn't ambiguous for the JSONObject constructor
+	 */
+	private Program(JsonNode src, EpgClient clnt) throws InvalidJsonObjectException {
 		if(src == null)
 			throw new IllegalArgumentException("src cannot be null!");
 		try {
-			id = src.getString("programID");
-			seriesDescription = src.optString("seriesDescription", null);
-			metadata = new ArrayList<Map<String, Object>>();
-			if(src.has("metadata")) {
-				JSONArray metaArr = src.getJSONArray("metadata");
-				for(int i = 0; i < metaArr.length(); ++i) {
-					JSONObject o = metaArr.getJSONObject(i);
-					Map<String, Object> map = new HashMap<String, Object>();
-					for(String k : JSONObject.getNames(o))
-						map.put(k, !o.isNull(k) ? o.get(k) : null);
-					metadata.add(map);
-				}
-			}
-			JSONObject movieInfo = src.optJSONObject("movie");
+			id = JsonNodeUtils.getString(src, "programID");
+			seriesDescription = JsonNodeUtils.optString(src, "seriesDescription", null);
+			JsonNode movieInfo = JsonNodeUtils.optObject(src, "movie");
 			if(movieInfo != null && movieInfo.has("year"))
-				year = Integer.parseInt(movieInfo.get("year").toString());
+				year = Integer.parseInt(JsonNodeUtils.optString(movieInfo, "year"));
 			else
 				year = 0;
 			shortTitles = new String[4];
-			JSONArray titles = src.getJSONArray("titles");
-			for(int i = 0; i < titles.length(); ++i) {
-				JSONObject o = titles.getJSONObject(i);
+			for(JsonNode o : JsonNodeUtils.getArray(src, "titles")) {
 				if(o.has("title120"))
-					title = o.getString("title120");
+					title = JsonNodeUtils.getString(o, "title120");
 				else {
-					shortTitles[0] = shortTitles[0] == null || shortTitles[0].length() == 0 ? o.optString("title70") : shortTitles[0];
-					shortTitles[1] = shortTitles[1] == null || shortTitles[1].length() == 0 ? o.optString("title40") : shortTitles[1];
-					shortTitles[2] = shortTitles[2] == null || shortTitles[2].length() == 0 ? o.optString("title20") : shortTitles[2];
-					shortTitles[3] = shortTitles[3] == null || shortTitles[3].length() == 0 ? o.optString("title10") : shortTitles[3];
+					shortTitles[0] = shortTitles[0] == null || shortTitles[0].length() == 0 ? JsonNodeUtils.optString(o, "title70") : shortTitles[0];
+					shortTitles[1] = shortTitles[1] == null || shortTitles[1].length() == 0 ? JsonNodeUtils.optString(o, "title40") : shortTitles[1];
+					shortTitles[2] = shortTitles[2] == null || shortTitles[2].length() == 0 ? JsonNodeUtils.optString(o, "title20") : shortTitles[2];
+					shortTitles[3] = shortTitles[3] == null || shortTitles[3].length() == 0 ? JsonNodeUtils.optString(o, "title10") : shortTitles[3];
 				}
 			}
 			if(title == null || title.length() == 0)
 				throw new IllegalArgumentException("No title120 provided!");
-			episodeNumber = src.optString("syndicatedEpisodeNumber");
-			Collection<QualityRating> ratingObjs = new ArrayList<>();
-			if(movieInfo != null && movieInfo.has("qualityRating")) {
-				JSONArray ratings = movieInfo.getJSONArray("qualityRating");
-				for(int i = 0; i < ratings.length(); ++i) {
-					JSONObject r = ratings.getJSONObject(i);
-					if("Gracenote".equals(r.optString("ratingsBody")))
-						ratingObjs.add(new FloatQualityRating(r, "stars"));
-					else
-						ratingObjs.add(new StringQualityRating(r, "rating"));
-				}
-			}
-			qualityRatings = ratingObjs.toArray(new QualityRating[0]);
-			runTime = movieInfo != null && movieInfo.has("runTime") ? movieInfo.getInt("runTime") : 0;
-			studio = movieInfo != null && movieInfo.has("origStudio") ? movieInfo.getString("origStudio") : null;
-			countryOfOrigin = movieInfo != null && movieInfo.has("origCountry") ? movieInfo.getString("origCountry") : null;
-			JSONArray ratings = src.optJSONArray("contentRating");
+			episodeNumber = JsonNodeUtils.optString(src, "syndicatedEpisodeNumber");
+			runTime = movieInfo != null && movieInfo.has("runTime") ? JsonNodeUtils.getInt(movieInfo, "runTime") : 0;
+			studio = movieInfo != null && movieInfo.has("origStudio") ? EpgClient.intern(clnt, JsonNodeUtils.getString(movieInfo, "origStudio")) : null;
+			countryOfOrigin = movieInfo != null && movieInfo.has("origCountry") ? EpgClient.intern(clnt, JsonNodeUtils.getString(movieInfo, "origCountry")) : null;
+			JsonNode ratings = JsonNodeUtils.optArray(src, "contentRating");
 			if(ratings != null) {
 				Collection<ContentRating> coll = new ArrayList<ContentRating>();
-				for(int i = 0; i < ratings.length(); ++i) {
-					JSONObject o = ratings.getJSONObject(i);
-					coll.add(new ContentRating(o.getString("body"), o.getString("code")));
-				}
+				for(JsonNode o : ratings)
+					coll.add(ContentRating.valueOf(JsonNodeUtils.getString(o, "body"), JsonNodeUtils.getString(o, "code")));
 				this.ratings = coll.toArray(new ContentRating[0]);
 			} else
 				this.ratings = new ContentRating[0];
-			md5 = src.getString("md5");
-			holiday = src.has("holiday") ? src.getString("holiday") : null;
+			md5 = JsonNodeUtils.getString(src, "md5");
+			holiday = src.has("holiday") ? EpgClient.intern(clnt, JsonNodeUtils.getString(src, "holiday")) : null;
 			if(src.has("gameDatetime"))
-				gameStart = Config.get().getDateTimeFormat().parse(src.getString("gameDatetime"));
+				gameStart = DateTimeUtils.parseDateTime(JsonNodeUtils.getString(src, "gameDatetime"));
 			else
 				gameStart = null;
-			JSONObject descs = src.optJSONObject("descriptions");
-			shortDescriptions = new String[4];
-			if(descs != null) {
-				description = parseDesc(descs.optJSONArray("description1000"));
-				shortDescriptions[0] = parseDesc(descs.optJSONArray("description255"));
-				shortDescriptions[1] = parseDesc(descs.optJSONArray("description100"));
-				shortDescriptions[2] = parseDesc(descs.optJSONArray("description60"));
-				shortDescriptions[3] = parseDesc(descs.optJSONArray("description40"));
-				Arrays.sort(shortDescriptions, new Comparator<String>() {
-
-					@Override
-					public int compare(String o1, String o2) {
-						if(o1 == null && o2 != null)
-							return 1;
-						else if(o1 != null && o2 == null)
-							return -1;
-						else if(o1 == null && o2 == null)
-							return 0;
-						else
-							return o2.length() - o1.length();
-					}
-					
-				});
-				if(description.length() == 0 && shortDescriptions[0].length() > 0)
-					description = shortDescriptions[0];
-				alternateDescription = parseDesc(descs.optJSONArray("alternateDescription255"));
-				alternateDescriptionShort = parseDesc(descs.optJSONArray("alternateDescription100"));
-			} else {
-				final String EMPTY = "";
-				description = EMPTY;
-				Arrays.fill(shortDescriptions, EMPTY);
-				alternateDescription = EMPTY;
-				alternateDescriptionShort = EMPTY;
-			}
-			Collection<Credit> castAndCrew = new ArrayList<>();
-			if(src.has("cast")) {
-				JSONArray cast = src.getJSONArray("cast");
-				for(int i = 0; i < cast.length(); ++i)
-					castAndCrew.add(new Credit(cast.getJSONObject(i)));
-			}
-			if(src.has("crew")) {
-				JSONArray crew = src.getJSONArray("crew");
-				for(int i = 0; i < crew.length(); ++i)
-					castAndCrew.add(new Credit(crew.getJSONObject(i)));				
-			}
-			credits = new HashSet<Credit>();
-			credits.addAll(castAndCrew);
-			
-			alternateTitle = src.optString("alternateTitle");
-			alternateEpisodeNumber = src.has("alternateSyndicatedEpisodeNumber") ? src.getString("alternateSyndicatedEpisodeNumber") : null;
+			alternateTitle = JsonNodeUtils.optString(src, "alternateTitle");
+			alternateEpisodeNumber = src.has("alternateSyndicatedEpisodeNumber") ? JsonNodeUtils.getString(src, "alternateSyndicatedEpisodeNumber") : null;
 			if(src.has("contentAdvisory")) {
-				JSONArray arr = src.getJSONArray("contentAdvisory");
+				JsonNode arr = JsonNodeUtils.getArray(src, "contentAdvisory");
 				List<String> vals = new ArrayList<String>();
-				for(int i = 0; i < arr.length(); ++i)
-					vals.add(arr.getString(i));
+				for(int i = 0; i < arr.size(); ++i)
+					vals.add(EpgClient.intern(clnt, JsonNodeUtils.getString(arr, i)));
 				advisories = vals.toArray(new String[vals.size()]);
 			} else
 				advisories = new String[0];
-			madeForTv = src.optBoolean("madeForTv");
-			episodeTitle = src.optString("episodeTitle150");
-			String orig = src.optString("originalAirDate", "");
-			originalAirDate = orig.length() > 0 && !orig.startsWith("0") ? getOrigAirDateFormat().parse(src.getString("originalAirDate")) : null;
-			descriptionLanguage = descs != null ? src.optString("descriptionLanguage", null) : null;
-			String entityTypeStr = src.optString("entityType");
+			madeForTv = JsonNodeUtils.optBoolean(src, "madeForTv");
+			episodeTitle = JsonNodeUtils.optString(src, "episodeTitle150");
+			String orig = JsonNodeUtils.optString(src, "originalAirDate", "");
+			originalAirDate = orig.length() > 0 && !orig.startsWith("0") ? DateTimeUtils.parseLocalDate(JsonNodeUtils.getString(src, "originalAirDate")) : null;
+			descriptionLanguage = JsonNodeUtils.optObject(src, "descriptions") != null ? EpgClient.intern(clnt, JsonNodeUtils.optString(src, "descriptionLanguage", null)) : null;
+			String entityTypeStr = JsonNodeUtils.optString(src, "entityType");
 			entityType = entityTypeStr.length() == 0 ? EntityType.UNKNOWN : EntityType.valueOf(entityTypeStr);
-			String srcType = src.optString("sourceType").toUpperCase();
+			String srcType = JsonNodeUtils.optString(src, "sourceType").toUpperCase();
 			try {
 				sourceType = srcType.length() == 0 ? SourceType.NONE : SourceType.valueOf(srcType);
 			} catch(IllegalArgumentException e) {
@@ -736,20 +720,20 @@ public class Program {
 				sourceType = SourceType.UNKNOWN;
 			}
 			Set<String> genreVals = new LinkedHashSet<>();
-			String showTypeVal = src.optString("showType");
+			String showTypeVal = JsonNodeUtils.optString(src, "showType");
 			if(showTypeVal != null && !"Series".equals(showTypeVal)) {
 				if(MOVIE_REGEX.matcher(showTypeVal).matches())
 					showTypeVal = "Movie";
-				genreVals.add(showTypeVal);
+				genreVals.add(EpgClient.intern(clnt, showTypeVal));
 			}
 			if(src.has("genres")) {
-				JSONArray arr = src.getJSONArray("genres");
-				for(int i = 0; i < arr.length(); ++i)
-					genreVals.add(arr.getString(i));
+				JsonNode arr = JsonNodeUtils.getArray(src, "genres");
+				for(int i = 0; i < arr.size(); ++i)
+					genreVals.add(EpgClient.intern(clnt, JsonNodeUtils.getString(arr, i)));
 			}
 			genres = genreVals.toArray(new String[0]);
-			syndicatedEpisodeNumber = src.optString("syndicatedEpisodeNumber");
-			String colorVal = src.optString("colorCode", ColorCode.NONE.toString()).toUpperCase().replaceAll(" & ", "").replaceAll(" +", "_");
+			syndicatedEpisodeNumber = JsonNodeUtils.optString(src, "syndicatedEpisodeNumber");
+			String colorVal = JsonNodeUtils.optString(src, "colorCode", ColorCode.NONE.toString()).toUpperCase().replaceAll(" & ", "").replaceAll(" +", "_");
 			try {
 				colorCode = colorVal.length() == 0 ? ColorCode.NONE : ColorCode.valueOf(colorVal);
 			} catch(IllegalArgumentException e) {
@@ -757,67 +741,181 @@ public class Program {
 					LOG.warn(String.format("Unknown ColorCode encountered! [%s]", colorVal));
 				colorCode = ColorCode.UNKNOWN;
 			}
-			JSONObject event = src.optJSONObject("eventDetails");
-			if(event != null) {
-				List<Team> list = new ArrayList<>();
-				JSONArray teams = event.optJSONArray("teams");
-				if(teams != null)
-					for(int i = 0; i < teams.length(); ++i) {
-						JSONObject team = teams.getJSONObject(i);
-						list.add(new Team(team.getString("name"), team.optBoolean("isHome")));
-					}
-				this.teams = list.toArray(new Team[0]);
-				venue = event.optString("venue", null);
-			} else {
-				teams = new Team[0];
-				venue = null;
-			}
-			JSONArray images = src.optJSONArray("images");
-			if(images != null) {
-				Collection<URL> urls = new ArrayList<>();
-				for(int i = 0; i < images.length(); ++i) {
-					JSONObject o = images.getJSONObject(i);
-					String url = o.getString("uri");
-					if(!url.matches("^https?:\\/\\/.*"))
-						urls.add(new URL(String.format("%s/%s/%s", clnt.getBaseUrl(), EpgClient.API_VERSION, url)));
-					else
-						urls.add(new URL(url));
-				}
-				this.images = urls.toArray(new URL[0]);
-			}
 			
-			this.keywords = new LinkedHashMap<>();
-			JSONObject keyWords = src.optJSONObject("keyWords");
-			if(keyWords != null) {
-				Iterator<String> keyWordGroupNamesIt = keyWords.keys();
-				while(keyWordGroupNamesIt.hasNext() == true) {
-					String keyWordGroupName = keyWordGroupNamesIt.next();
-					JSONArray keywords = keyWords.optJSONArray(keyWordGroupName);
-					List<String> keywordGroup = this.keywords.get(keyWordGroupName);
-					if(keywordGroup == null) {
-						keywordGroup = new ArrayList<>();
-						this.keywords.put(keyWordGroupName, keywordGroup);
-					}
-					
-					if(keywords != null) {
-						for(int i=0; i < keywords.length(); ++i) {
-							String keyword = keywords.getString(i);
-							keywordGroup.add(keyword);
-						}
-					}
+			if(Config.get().lazyProgramDecoding()) {
+				ObjectNode raw = Config.get().getObjectMapper().createObjectNode();
+				for(String field : DETAIL_FIELDS) {
+					JsonNode n = src.get(field);
+					if(n != null)
+						raw.set(field, n);
 				}
-			}
+				details = Config.get().getObjectMapper().writeValueAsBytes(raw);
+				detailsBaseUrl = clnt.getBaseUrl();
+			} else
+				decodeDetails(src, clnt.getBaseUrl());
 			
-			if(src.optBoolean("hasImageArtwork") == true) {
-				artworks = clnt.fetchArtwork(id);
+			if(JsonNodeUtils.optBoolean(src, "hasImageArtwork") == true) {
+				if(clnt.isArtworkDeferred())
+					artworkSrc = clnt;
+				else
+					artworks = clnt.fetchArtwork(id);
 			}
 			else {
 				artworks = new Artwork[0];
 			}
 			
-			seriesInfo = (entityType == EntityType.EPISODE) ? clnt.fetchProgram(convertToSeriesId(id)) : null;
+			if(entityType == EntityType.EPISODE) {
+				if(clnt.isSeriesInfoDeferred())
+					seriesSrc = clnt;
+				else
+					seriesInfo = clnt.fetchProgram(convertToSeriesId(id));
+			} else
+				seriesInfo = null;
 		} catch (Throwable t) {
-			throw new InvalidJsonObjectException(String.format("Program[%s]: %s", id, t.getMessage()), t, src.toString(3));
+			throw new InvalidJsonObjectException(String.format("Program[%s]: %s", id, t.getMessage()), t, JsonNodeUtils.toString(src));
+		}
+	}
+	
+	/**
+	 * Decode the fields that are expensive to build and rarely read
+	 * @param src The program's JSON object, or the subset of it holding <code>DETAIL_FIELDS</code>
+	 * @param baseUrl The base url of the client used to resolve relative image urls
+	 * @throws Exception On any decoding error
+	 */
+	private void decodeDetails(JsonNode src, String baseUrl) throws Exception {
+		JsonNode movieInfo = JsonNodeUtils.optObject(src, "movie");
+		metadata = new ArrayList<Map<String, Object>>();
+		if(src.has("metadata")) {
+			for(JsonNode o : JsonNodeUtils.getArray(src, "metadata")) {
+				Map<String, Object> map = new HashMap<String, Object>();
+				Iterator<Map.Entry<String, JsonNode>> fields = o.fields();
+				while(fields.hasNext()) {
+					Map.Entry<String, JsonNode> e = fields.next();
+					map.put(e.getKey(), JsonNodeUtils.toValue(e.getValue()));
+				}
+				metadata.add(map);
+			}
+		}
+		Collection<QualityRating> ratingObjs = new ArrayList<>();
+		if(movieInfo != null && movieInfo.has("qualityRating")) {
+			for(JsonNode r : JsonNodeUtils.getArray(movieInfo, "qualityRating")) {
+				if("Gracenote".equals(JsonNodeUtils.optString(r, "ratingsBody")))
+					ratingObjs.add(new FloatQualityRating(r, "stars"));
+				else
+					ratingObjs.add(new StringQualityRating(r, "rating"));
+			}
+		}
+		qualityRatings = ratingObjs.toArray(new QualityRating[0]);
+		JsonNode descs = JsonNodeUtils.optObject(src, "descriptions");
+		shortDescriptions = new String[4];
+		if(descs != null) {
+			description = parseDesc(JsonNodeUtils.optArray(descs, "description1000"));
+			shortDescriptions[0] = parseDesc(JsonNodeUtils.optArray(descs, "description255"));
+			shortDescriptions[1] = parseDesc(JsonNodeUtils.optArray(descs, "description100"));
+			shortDescriptions[2] = parseDesc(JsonNodeUtils.optArray(descs, "description60"));
+			shortDescriptions[3] = parseDesc(JsonNodeUtils.optArray(descs, "description40"));
+			Arrays.sort(shortDescriptions, new Comparator<String>() {
+
+				@Override
+				public int compare(String o1, String o2) {
+					if(o1 == null && o2 != null)
+						return 1;
+					else if(o1 != null && o2 == null)
+						return -1;
+					else if(o1 == null && o2 == null)
+						return 0;
+					else
+						return o2.length() - o1.length();
+				}
+				
+			});
+			if(description.length() == 0 && shortDescriptions[0].length() > 0)
+				description = shortDescriptions[0];
+			alternateDescription = parseDesc(JsonNodeUtils.optArray(descs, "alternateDescription255"));
+			alternateDescriptionShort = parseDesc(JsonNodeUtils.optArray(descs, "alternateDescription100"));
+		} else {
+			final String EMPTY = "";
+			description = EMPTY;
+			Arrays.fill(shortDescriptions, EMPTY);
+			alternateDescription = EMPTY;
+			alternateDescriptionShort = EMPTY;
+		}
+		Collection<Credit> castAndCrew = new ArrayList<>();
+		if(src.has("cast"))
+			for(JsonNode o : JsonNodeUtils.getArray(src, "cast"))
+				castAndCrew.add(Credit.valueOf(o));
+		if(src.has("crew"))
+			for(JsonNode o : JsonNodeUtils.getArray(src, "crew"))
+				castAndCrew.add(Credit.valueOf(o));
+		credits = new HashSet<Credit>();
+		credits.addAll(castAndCrew);
+		JsonNode event = JsonNodeUtils.optObject(src, "eventDetails");
+		if(event != null) {
+			List<Team> list = new ArrayList<>();
+			JsonNode teams = JsonNodeUtils.optArray(event, "teams");
+			if(teams != null)
+				for(JsonNode team : teams)
+					list.add(new Team(JsonNodeUtils.getString(team, "name"), JsonNodeUtils.optBoolean(team, "isHome")));
+			this.teams = list.toArray(new Team[0]);
+			venue = JsonNodeUtils.optString(event, "venue", null);
+		} else {
+			teams = new Team[0];
+			venue = null;
+		}
+		JsonNode images = JsonNodeUtils.optArray(src, "images");
+		if(images != null) {
+			Collection<URL> urls = new ArrayList<>();
+			for(JsonNode o : images) {
+				String url = JsonNodeUtils.getString(o, "uri");
+				if(!url.matches("^https?:\\/\\/.*"))
+					urls.add(new URL(String.format("%s/%s/%s", baseUrl, EpgClient.API_VERSION, url)));
+				else
+					urls.add(new URL(url));
+			}
+			this.images = urls.toArray(new URL[0]);
+		}
+		this.keywords = new LinkedHashMap<>();
+		JsonNode keyWords = JsonNodeUtils.optObject(src, "keyWords");
+		if(keyWords != null) {
+			Iterator<String> keyWordGroupNamesIt = keyWords.fieldNames();
+			while(keyWordGroupNamesIt.hasNext() == true) {
+				String keyWordGroupName = keyWordGroupNamesIt.next();
+				JsonNode keywords = JsonNodeUtils.optArray(keyWords, keyWordGroupName);
+				List<String> keywordGroup = this.keywords.get(keyWordGroupName);
+				if(keywordGroup == null) {
+					keywordGroup = new ArrayList<>();
+					this.keywords.put(keyWordGroupName, keywordGroup);
+				}
+				
+				if(keywords != null) {
+					for(int i=0; i < keywords.size(); ++i) {
+						String keyword = JsonNodeUtils.getString(keywords, i);
+						keywordGroup.add(keyword);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Decode the details still held in raw form, if any; called by every accessor of a detail field
+	 * @throws IllegalStateException If the details can't be decoded, wrapping the InvalidJsonObjectException eager decoding would have thrown; the details are kept raw, so every later access fails the same way
+	 */
+	private void ensureDetails() {
+		if(details != null) {
+			synchronized(this) {
+				byte[] raw = details;
+				if(raw != null) {
+					try {
+						decodeDetails(Config.get().getObjectMapper().readTree(raw), detailsBaseUrl);
+					} catch(Exception e) {
+						InvalidJsonObjectException cause = new InvalidJsonObjectException(String.format("Program[%s]: %s", id, e.getMessage()), e, new String(raw, StandardCharsets.UTF_8));
+						throw new IllegalStateException(String.format("Program[%s]: Failed to decode details!", id), cause);
+					}
+					details = null;
+					detailsBaseUrl = null;
+				}
+			}
 		}
 	}
 	
@@ -825,6 +923,7 @@ public class Program {
 	 * @return A list of maps where each map in the list contains metadata from a given external data source (such as thetvdb.com); never null, possibly empty if no metadata is available for this program; keys of map depend on datasource value, see wiki for details of what's available for each type of metadata map
 	 */
 	public List<Map<String, Object>> getMetadata() {
+		ensureDetails();
 		return metadata;
 	}
 	
@@ -853,6 +952,7 @@ public class Program {
 	 * @return Returns the full description of this program; may be empty, never null
 	 */
 	public String getDescription() {
+		ensureDetails();
 		return description;
 	}
 
@@ -930,6 +1030,7 @@ public class Program {
 	 * @return An array of credits for this program; never null but may be empty if no data is available
 	 */
 	public Credit[] getCredits() {
+		ensureDetails();
 		return credits.toArray(new Credit[0]);
 	}
 
@@ -937,6 +1038,7 @@ public class Program {
 	 * @return An alternate description or null
 	 */
 	public String getAlternateDescription() {
+		ensureDetails();
 		return alternateDescription;
 	}
 
@@ -944,6 +1046,7 @@ public class Program {
 	 * @return A shorter alternate description or null
 	 */
 	public String getAlternateDescriptionShort() {
+		ensureDetails();
 		return alternateDescriptionShort;
 	}
 
@@ -951,6 +1054,7 @@ public class Program {
 	 * @return An array of shorter descriptions for this program; sorted by longest to shortest; never null, never empty, but may just repeat the original description
 	 */
 	public String[] getShortDescriptions() {
+		ensureDetails();
 		return shortDescriptions;
 	}
 
@@ -1029,6 +1133,7 @@ public class Program {
 	 */
 	@Override
 	public String toString() {
+		ensureDetails();
 		final int maxLen = 2;
 		return "Program [id="
 				+ id
@@ -1129,6 +1234,7 @@ public class Program {
 	 * @param description the description to set
 	 */
 	public void setDescription(String description) {
+		ensureDetails();
 		this.description = description;
 	}
 
@@ -1206,6 +1312,7 @@ public class Program {
 	 * @param credits the credits to set
 	 */
 	public void setCredits(Credit[] credits) {
+		ensureDetails();
 		this.credits.clear();
 		for(Credit c : credits)
 			this.credits.add(c);
@@ -1215,6 +1322,7 @@ public class Program {
 	 * @param alternateDescription the alternateDescription to set
 	 */
 	public void setAlternateDescription(String alternateDescription) {
+		ensureDetails();
 		this.alternateDescription = alternateDescription;
 	}
 
@@ -1222,6 +1330,7 @@ public class Program {
 	 * @param alternateDescriptionShort the alternateDescriptionShort to set
 	 */
 	public void setAlternateDescriptionShort(String alternateDescriptionShort) {
+		ensureDetails();
 		this.alternateDescriptionShort = alternateDescriptionShort;
 	}
 
@@ -1229,6 +1338,7 @@ public class Program {
 	 * @param shortDescriptions the shortDescriptions to set
 	 */
 	public void setShortDescriptions(String[] shortDescriptions) {
+		ensureDetails();
 		this.shortDescriptions = shortDescriptions;
 	}
 
@@ -1313,6 +1423,7 @@ public class Program {
 	 * @param metadata the metadata to set
 	 */
 	public void setMetadata(List<Map<String, Object>> metadata) {
+		ensureDetails();
 		this.metadata = metadata;
 	}
 
@@ -1370,6 +1481,7 @@ public class Program {
 	 * @return the venue; typically only provided for (some) sports event programs or null otherwise
 	 */
 	public String getVenue() {
+		ensureDetails();
 		return venue;
 	}
 
@@ -1377,6 +1489,7 @@ public class Program {
 	 * @param venue the venue to set
 	 */
 	public void setVenue(String venue) {
+		ensureDetails();
 		this.venue = venue;
 	}
 
@@ -1384,6 +1497,7 @@ public class Program {
 	 * @return the teams; identifies teams competing in a sports event program; will be an empty array when not available/not applicable
 	 */
 	public Team[] getTeams() {
+		ensureDetails();
 		return teams;
 	}
 
@@ -1391,6 +1505,7 @@ public class Program {
 	 * @param teams the teams to set
 	 */
 	public void setTeams(Team[] teams) {
+		ensureDetails();
 		this.teams = teams;
 	}
 
@@ -1407,6 +1522,7 @@ public class Program {
 	 * @return URLs representing the various fanart images available for this program
 	 */
 	public URL[] getImages() {
+		ensureDetails();
 		return images;
 	}
 
@@ -1414,6 +1530,7 @@ public class Program {
 	 * @param images the images to set
 	 */
 	public void setImages(URL[] images) {
+		ensureDetails();
 		this.images = images;
 	}
 
@@ -1421,6 +1538,7 @@ public class Program {
 	 * @return the qualityRatings
 	 */
 	public QualityRating[] getQualityRatings() {
+		ensureDetails();
 		return qualityRatings;
 	}
 
@@ -1428,21 +1546,50 @@ public class Program {
 	 * @param qualityRatings the qualityRatings to set
 	 */
 	public void setQualityRatings(QualityRating[] qualityRatings) {
+		ensureDetails();
 		this.qualityRatings = qualityRatings;
 	}
 
 	/**
-	 * @return the seriesInfo
+	 * Get the series program of this episode
+	 * 
+	 * <p>
+	 * 	If the client that built this program defers series info and it hasn't yet been filled in by
+	 *  a batch, it is fetched on this first call; a failed fetch is logged and retried on the next call.
+	 * </p>
+	 * @return the seriesInfo; null if this program is not an episode or if it could not be fetched
 	 */
 	public Program getSeriesInfo() {
-		return seriesInfo;
+		Program p = seriesInfo;
+		if(p == null) {
+			synchronized(this) {
+				if(seriesInfo == null && seriesSrc != null) {
+					try {
+						setSeriesInfo(seriesSrc.fetchProgram(convertToSeriesId(id)));
+					} catch(IOException e) {
+						LOG.error(String.format("Failed to fetch series info! [%s]", id), e);
+						return null;
+					}
+				}
+				p = seriesInfo;
+			}
+		}
+		return p;
 	}
 
 	/**
 	 * @param seriesInfo the seriesInfo to set
 	 */
-	public void setSeriesInfo(Program seriesInfo) {
+	public synchronized void setSeriesInfo(Program seriesInfo) {
 		this.seriesInfo = seriesInfo;
+		seriesSrc = null;
+	}
+	
+	/**
+	 * @return True if this program is an episode whose series info has yet to be fetched
+	 */
+	synchronized boolean isSeriesInfoPending() {
+		return seriesInfo == null && seriesSrc != null;
 	}
 
 	private String toString(Collection<?> collection, int maxLen) {
@@ -1477,6 +1624,7 @@ public class Program {
 	 * @return the keywords
 	 */
 	public Map<String, List<String>> getKeywords() {
+		ensureDetails();
 		return keywords;
 	}
 	
@@ -1484,14 +1632,46 @@ public class Program {
 	 * @param keywords the keywords to set
 	 */
 	public void setKeywords(Map<String, List<String>> keywords) {
+		ensureDetails();
 		this.keywords = keywords;
 	}
 	
+	/**
+	 * Get the artwork for this program
+	 * 
+	 * <p>
+	 * 	If the client that built this program defers artwork and it hasn't yet been filled in by a
+	 *  batch, it is fetched on this first call; a failed fetch is logged and retried on the next call.
+	 * </p>
+	 * @return The artwork for this program; empty if it has none or if it could not be fetched
+	 */
 	public Artwork[] getArtworks() {
-		return artworks;
+		Artwork[] a = artworks;
+		if(a == null) {
+			synchronized(this) {
+				if(artworks == null && artworkSrc != null) {
+					try {
+						setArtworks(artworkSrc.fetchArtwork(id));
+					} catch(IOException e) {
+						LOG.error(String.format("Failed to fetch artwork! [%s]", id), e);
+						return new Artwork[0];
+					}
+				}
+				a = artworks;
+			}
+		}
+		return a;
 	}
 	
-	public void setArtworks(Artwork[] artworks) {
+	public synchronized void setArtworks(Artwork[] artworks) {
 		this.artworks = artworks;
+		artworkSrc = null;
+	}
+	
+	/**
+	 * @return True if this program has artwork that has yet to be fetched
+	 */
+	synchronized boolean isArtworkPending() {
+		return artworks == null && artworkSrc != null;
 	}
 }
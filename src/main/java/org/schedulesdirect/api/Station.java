@@ -156,7 +156,8 @@ public class Station {
 	private int atscMajorNumber;
 	private int atscMinorNumber;
 	private String language;
-	private Airing[] airings;
+	private volatile Airing[] airings;
+	private volatile AiringTable airingTable;
 	private boolean isCommercialFree;
 	private Logo logo;
 	private EpgClient epgClnt;
@@ -173,15 +174,15 @@ public class Station {
 		airings = null;
 		try {
 			id = src.getString("stationID");
-			callsign = src.getString("callsign");
+			callsign = EpgClient.intern(clnt, src.getString("callsign"));
 			name = src.getString("name");
-			affiliate = src.optString("affiliate");
+			affiliate = EpgClient.intern(clnt, src.optString("affiliate"));
 			JSONObject o = src.optJSONObject("broadcaster");
 			if(o != null) {
-				broadcasterState = o.optString("state");
-				broadcasterCity = o.optString("city");
+				broadcasterState = EpgClient.intern(clnt, o.optString("state"));
+				broadcasterCity = EpgClient.intern(clnt, o.optString("city"));
 				broadcasterZip = o.optString("postalcode");
-				broadcasterCountry = o.optString("country");
+				broadcasterCountry = EpgClient.intern(clnt, o.optString("country"));
 			} else {
 				broadcasterState = "";
 				broadcasterCity = "";
@@ -198,13 +199,20 @@ public class Station {
 			uhfVhfNumber = tuningDetails.optInt("uhfVhf", 0);
 			atscMajorNumber = tuningDetails.optInt("atscMajor", 0);
 			atscMinorNumber = tuningDetails.optInt("atscMinor", 0);
-			language = src.optString("language");
+			language = EpgClient.intern(clnt, src.optString("language"));
 			isCommercialFree = src.optBoolean("isCommercialFree", false);
 		} catch (Throwable t) {
 			throw new InvalidJsonObjectException(String.format("Station[%s]: %s", id, t.getMessage()), t, String.format("src:%n%s%n%ntuning:%s", src.toString(3), tuningDetails.toString(3)));
 		}
 	}
 
+	/**
+	 * @return The EpgClient this station belongs to
+	 */
+	EpgClient getEpgClient() {
+		return epgClnt;
+	}
+
 	/**
 	 * @return The Station's unique id
 	 */
@@ -319,9 +327,28 @@ public class Station {
 	 * @throws IOException Thrown on any IO error accessing the upstream data feed
 	 */
 	public Airing[] getAirings() throws IOException {
-		if(airings == null)
+		if(airings == null && airingTable == null)
 			downloadProgramsAndAirings();
-		return airings;
+		return airings == null && airingTable != null ? airingTable.toArray() : airings;
+	}
+	
+	/**
+	 * Get all available future airings scheduled for this station, stored column by column
+	 * 
+	 * <p>
+	 * 	Use this to scan or filter a schedule without building an Airing object per airing.  When the
+	 *  station's schedule isn't already stored in columns (see <code>Config.columnarSchedules()</code>),
+	 *  the table is built from the airings on the first call.
+	 * </p>
+	 * @return The station's schedule; null only if the schedule is unavailable
+	 * @throws IOException Thrown on any IO error accessing the upstream data feed
+	 */
+	public AiringTable getAiringTable() throws IOException {
+		if(airings == null && airingTable == null)
+			downloadProgramsAndAirings();
+		if(airingTable == null && airings != null)
+			airingTable = AiringTable.build(this, airings);
+		return airingTable;
 	}
 	
 	/**
@@ -332,8 +359,10 @@ public class Station {
 	 * @throws IOException Thrown on any IO error accessing the upstream data feed
 	 */
 	public Program[] getPrograms() throws IOException {
-		if(airings == null)
+		if(airings == null && airingTable == null)
 			downloadProgramsAndAirings();
+		if(airings == null && airingTable != null)
+			return airingTable.getPrograms();
 		Set<Program> progs = new HashSet<Program>();
 		for(Airing a : airings)
 			progs.add(a.getProgram());
@@ -341,11 +370,22 @@ public class Station {
 	}
 	
 	/**
-	 * Downloads and builds the arrays of programs and airings as needed
+	 * Downloads and builds the arrays of programs and airings as needed; threads accessing a station for the first time at once share a single download
 	 * @throws IOException Thrown on any IO error accessing the upstream data feed
 	 */
-	protected void downloadProgramsAndAirings() throws IOException {
-		airings = epgClnt.fetchSchedule(this);
+	protected synchronized void downloadProgramsAndAirings() throws IOException {
+		if(isScheduleLoaded())
+			return;
+		Airing[] sched = epgClnt.fetchSchedule(this);
+		if(sched != null)
+			setAirings(sched);
+	}
+
+	/**
+	 * @return True if this station's airings have already been downloaded or set
+	 */
+	boolean isScheduleLoaded() {
+		return airings != null || airingTable != null;
 	}
 	
 	/* (non-Javadoc)
@@ -461,12 +501,20 @@ public class Station {
 
 	/**
 	 * Set the Airings for this Station; all of the Airing's Station references will be changed to point to this Station instance
+	 * 
+	 * <p>When <code>Config.columnarSchedules()</code> is enabled, the airings are copied into an AiringTable and not kept.</p>
 	 * @param airings the airings to set
 	 */
 	public void setAirings(Airing[] airings) {
-		this.airings = airings;
 		for(Airing a : airings)
 			a.setStation(this);
+		if(Config.get().columnarSchedules()) {
+			airingTable = AiringTable.build(this, airings);
+			this.airings = null;
+		} else {
+			this.airings = airings;
+			airingTable = null;
+		}
 	}
 
 	/**
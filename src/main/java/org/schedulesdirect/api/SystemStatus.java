@@ -20,6 +20,7 @@ import java.util.Date;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.schedulesdirect.api.exception.InvalidJsonObjectException;
+import org.schedulesdirect.api.utils.DateTimeUtils;
 
 /**
  * An encapsulation of the current state of the Schedules Direct system.
@@ -37,7 +38,7 @@ public class SystemStatus {
 			Date objDate;
 			try {
 				JSONObject obj = src.getJSONObject(i);
-				objDate = Config.get().getDateTimeFormat().parse(obj.getString("date"));
+				objDate = DateTimeUtils.parseDateTime(obj.getString("date"));
 				if(statusDate == null || statusDate.before(objDate)) {
 					statusDate = objDate;
 					status = obj.getString("status");
@@ -15,7 +15,6 @@
  */
 package org.schedulesdirect.api;
 
-import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
@@ -26,6 +25,7 @@ import java.util.Map;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.schedulesdirect.api.exception.InvalidJsonObjectException;
+import org.schedulesdirect.api.utils.DateTimeUtils;
 
 /**
  * UserStatus encapsulates the authenticated user's details with respect to the EpgClient session used to access the instance
@@ -64,13 +64,12 @@ public class UserStatus {
 			else
 				this.userId = src.getString("userId");
 			JSONObject acct = src.getJSONObject("account");
-			final SimpleDateFormat fmt = Config.get().getDateTimeFormat();
-			expires = fmt.parse(acct.getString("expires"));
+			expires = DateTimeUtils.parseDateTime(acct.getString("expires"));
 			JSONArray msgs = acct.getJSONArray("messages");
 			userMessages = new Message[msgs.length()];
 			for(int i = 0; i < msgs.length(); ++i)
 				userMessages[i] = new Message(msgs.getJSONObject(i), clnt);
-			lastServerRefresh = fmt.parse(src.getString("lastDataUpdate"));
+			lastServerRefresh = DateTimeUtils.parseDateTime(src.getString("lastDataUpdate"));
 			msgs = src.getJSONArray("notifications");
 			systemMessages = new Message[msgs.length()];
 			for(int i = 0; i < msgs.length(); ++i)
@@ -79,7 +78,7 @@ public class UserStatus {
 			msgs = src.getJSONArray("lineups");
 			for(int i = 0; i < msgs.length(); ++i) {
 				JSONObject lineupInfo = msgs.getJSONObject(i);
-				this.lineupInfo.put(lineupInfo.getString("lineup"), fmt.parse(lineupInfo.getString("modified")));
+				this.lineupInfo.put(lineupInfo.getString("lineup"), DateTimeUtils.parseDateTime(lineupInfo.getString("modified")));
 			}
 			maxLineups = acct.getInt("maxLineups");
 			JSONObject clone = Config.get().getObjectMapper().readValue(src.toString(), JSONObject.class);
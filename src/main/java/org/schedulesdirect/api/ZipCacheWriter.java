@@ -0,0 +1,567 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.schedulesdirect.api.json.DefaultJsonRequest.Action;
+import org.schedulesdirect.api.utils.JsonNodeUtils;
+import org.schedulesdirect.api.utils.JsonRecordReader;
+import org.schedulesdirect.api.utils.JsonResponseUtils;
+import org.schedulesdirect.api.utils.MappedZipFile;
+import org.schedulesdirect.api.utils.ZipWriter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Builds a zip cache, to be read by ZipEpgClient, from the data of a NetworkEpgClient
+ *
+ * <p>
+ * 	The lineup maps, schedules, programs, series info, artwork and logos are downloaded in
+ *  chunks, several at a time, on the client's chunk workers (see <code>Config.fetchParallelism()</code>);
+ *  each phase starts once the one before it has found all the ids it needs.  Every downloaded
+ *  record is compacted and handed to the calling thread, the only one writing to the zip, through
+ *  a bounded queue (see <code>Config.zipWriterQueueSize()</code>), so a download waits whenever
+ *  the zip falls behind and memory use stays bounded no matter the size of the guide.
+ * </p>
+ * <p>
+ *  The zip is built as <code>&lt;dest&gt;.part</code> and only moved to dest once complete.  If a
+ *  write fails or is interrupted, the part file is left behind; the next write to the same dest
+ *  copies every complete entry out of it and only downloads what's still missing.  Resuming is
+ *  meant for retrying a failed grab soon after; entries copied from a part file are not checked
+ *  for freshness.
+ * </p>
+ * <p>
+ *  <code>update()</code> builds a new zip from an existing one instead of from scratch.  The lineup
+ *  maps and schedules are always downloaded, but only the programs and series info whose md5, as
+ *  listed in the new schedules, differs from the one recorded in the existing zip are (series info
+ *  the schedules list no md5 for is always downloaded); every unchanged entry is copied over still
+ *  compressed, and programs no schedule refers to any more are dropped.  Artwork and logos already
+ *  in the existing zip are copied as is; they're only refreshed by a full <code>write()</code>.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class ZipCacheWriter {
+	static private final Log LOG = LogFactory.getLog(ZipCacheWriter.class);
+
+	/**
+	 * The extension appended to the destination file while it's being written
+	 */
+	static public final String PART_EXT = ".part";
+
+	static private final int STATION_CHUNK_SIZE = 500;
+	static private final List<String> FINAL_ENTRIES = Arrays.asList(ZipEpgClient.ZIP_VER_FILE, ZipEpgClient.LINEUPS_LIST, ZipEpgClient.USER_DATA, ZipEpgClient.INDEX_FILE);
+
+	/*
+	 * An entry for the zip; one without data is copied from the base zip
+	 */
+	static private final class Entry {
+		private final String name;
+		private final byte[] data;
+		private final String md5;
+
+		private Entry(String name, byte[] data, String md5) {
+			this.name = name;
+			this.data = data;
+			this.md5 = md5;
+		}
+	}
+
+	static private final Entry END = new Entry(null, null, null);
+
+	/*
+	 * The download of one chunk of ids; runs on a chunk worker
+	 */
+	static private abstract class Fetch {
+		abstract void fetch(List<String> ids) throws IOException;
+	}
+
+	private final NetworkEpgClient clnt;
+	private final ObjectMapper mapper = Config.get().getObjectMapper();
+	private BlockingQueue<Entry> queue;
+	private Map<String, Long> written;
+	private Map<String, String> md5s;
+	private MappedZipFile base;
+	private ZipIndex baseIndex;
+	private Map<String, String> programMd5s;
+	private int copied;
+	private Set<String> done;
+	private Set<String> stationIds;
+	private Map<String, String> logos;
+	private Set<String> programIds;
+	private Set<String> seriesIds;
+	private Set<String> artworkIds;
+
+	/**
+	 * Constructor
+	 * @param clnt The client to download the cache's data with
+	 */
+	public ZipCacheWriter(NetworkEpgClient clnt) {
+		this.clnt = clnt;
+	}
+
+	/**
+	 * Write the zip cache for all of the client's lineups
+	 * @param dest The zip file to write; replaced once the new zip is complete
+	 * @throws IOException On any IO error downloading the data or writing the zip; the part file is kept for the next attempt to resume from
+	 */
+	public synchronized void write(File dest) throws IOException {
+		build(null, dest);
+	}
+
+	/**
+	 * Write the zip cache for all of the client's lineups, reusing the unchanged entries of an existing zip cache
+	 * @param base The existing zip cache to update; it may be dest itself
+	 * @param dest The zip file to write; replaced once the new zip is complete
+	 * @throws IOException On any IO error reading base, downloading the data or writing the zip; the part file is kept for the next attempt to resume from
+	 */
+	public synchronized void update(File base, File dest) throws IOException {
+		build(base, dest);
+	}
+
+	private void build(File baseFile, File dest) throws IOException {
+		queue = new ArrayBlockingQueue<>(Config.get().zipWriterQueueSize());
+		written = new LinkedHashMap<>();
+		md5s = new HashMap<>();
+		programMd5s = new ConcurrentHashMap<>();
+		copied = 0;
+		done = newSet();
+		stationIds = Collections.synchronizedSet(new LinkedHashSet<String>());
+		logos = new ConcurrentHashMap<>();
+		programIds = newSet();
+		seriesIds = newSet();
+		artworkIds = newSet();
+		File part = new File(dest.getPath() + PART_EXT);
+		File prev = new File(dest.getPath() + PART_EXT + ".prev");
+		if(part.exists())
+			Files.move(part.toPath(), prev.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		// Not mapped; base may be dest itself, and a mapped file can't be replaced on Windows
+		base = baseFile != null ? new MappedZipFile(baseFile, false) : null;
+		try {
+			baseIndex = base != null ? ZipIndex.load(base) : null;
+			final Lineup[] lineups = clnt.getLineups();
+			try(ZipWriter zip = new ZipWriter(part)) {
+				if(prev.exists())
+					resume(prev, zip);
+				Future<Void> fetch = clnt.submitAsync(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						try {
+							fetchAll(lineups);
+						} finally {
+							queue.put(END);
+						}
+						return null;
+					}
+				});
+				try {
+					Entry e;
+					while((e = take()) != END)
+						writeEntry(zip, e.name, e.data, e.md5);
+					fetch.get();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while writing zip cache!");
+				} catch(ExecutionException e) {
+					Throwable t = e.getCause();
+					if(t instanceof IOException)
+						throw (IOException)t;
+					else if(t instanceof RuntimeException)
+						throw (RuntimeException)t;
+					throw new IOException(t);
+				} finally {
+					fetch.cancel(true);
+				}
+				writeEntry(zip, ZipEpgClient.USER_DATA, compact(clnt.getJsonRequestFactory().get(Action.GET, RestNouns.STATUS, clnt.getHash(), clnt.getUserAgent(), clnt.getBaseUrl()).submitForJson(null)), null);
+				JSONArray list = new JSONArray();
+				for(Lineup l : lineups) {
+					JSONObject o = new JSONObject();
+					o.put("name", l.getName());
+					o.put("location", l.getLocation());
+					o.put("uri", l.getUri());
+					o.put("transport", l.getTransport());
+					list.put(o);
+				}
+				writeEntry(zip, ZipEpgClient.LINEUPS_LIST, new JSONObject().put("lineups", list).toString().getBytes(ZipEpgClient.ZIP_CHARSET), null);
+				writeEntry(zip, ZipEpgClient.ZIP_VER_FILE, Integer.toString(ZipEpgClient.ZIP_VER).getBytes(ZipEpgClient.ZIP_CHARSET), null);
+				StringBuilder index = new StringBuilder();
+				for(Map.Entry<String, Long> e : written.entrySet()) {
+					String line = ZipIndex.line(e.getKey(), e.getValue(), md5s.get(e.getKey()));
+					if(line != null)
+						index.append(line);
+				}
+				writeEntry(zip, ZipEpgClient.INDEX_FILE, index.toString().getBytes(ZipEpgClient.ZIP_CHARSET), null);
+			}
+		} finally {
+			if(base != null)
+				base.close();
+		}
+		Files.deleteIfExists(prev.toPath());
+		Files.move(part.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		LOG.debug(String.format("Wrote zip cache [%s; entries=%d; copied=%d; stations=%d; programs=%d; series=%d; artwork=%d]", dest, written.size(), copied, stationIds.size(), programIds.size(), seriesIds.size(), artworkIds.size()));
+	}
+
+	static private Set<String> newSet() {
+		return Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	}
+
+	/*
+	 * Copy the complete entries of an earlier, failed write and collect the ids they refer to; a
+	 * part file that was cut off mid write ends at its first incomplete entry, but an error writing
+	 * the new zip fails the write
+	 */
+	private void resume(File prev, ZipWriter zip) throws IOException {
+		int resumed = 0;
+		try(ZipInputStream ins = new ZipInputStream(new BufferedInputStream(new FileInputStream(prev)))) {
+			while(true) {
+				String name;
+				byte[] data;
+				String md5 = null;
+				try {
+					ZipEntry e = ins.getNextEntry();
+					if(e == null)
+						break;
+					name = e.getName();
+					data = IOUtils.toByteArray(ins);
+					if(FINAL_ENTRIES.contains(name))
+						continue;
+					String dir = name.substring(0, Math.max(0, name.indexOf('/')));
+					switch(dir) {
+						case "maps": foundMap(data); break;
+						case "schedules":
+							foundSchedule(mapper.readTree(data));
+							md5 = DigestUtils.md5Hex(data);
+							break;
+						case "programs":
+						case "seriesInfo":
+							JsonNode prog = mapper.readTree(data);
+							foundProgram(JsonNodeUtils.getString(prog, "programID"), prog);
+							md5 = JsonNodeUtils.optString(prog, "md5", null);
+							break;
+					}
+				} catch(IOException | RuntimeException e) {
+					LOG.warn(String.format("Stopped resuming at an incomplete entry of the part file [%s; entries=%d]: %s", prev, resumed, e.getMessage()));
+					break;
+				}
+				writeEntry(zip, name, data, md5);
+				++resumed;
+			}
+		}
+		LOG.info(String.format("Resumed zip cache from part file [%s; entries=%d]", prev, resumed));
+	}
+
+	private void writeEntry(ZipWriter zip, String name, byte[] data, String md5) throws IOException {
+		if(data != null) {
+			zip.write(name, data);
+			written.put(name, (long)data.length);
+		} else {
+			zip.copy(base, name);
+			written.put(name, base.getSize(name));
+			++copied;
+		}
+		if(md5 != null)
+			md5s.put(name, md5);
+		done.add(name);
+	}
+
+	private Entry take() throws InterruptedIOException {
+		try {
+			return queue.take();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for zip entries!");
+		}
+	}
+
+	private void put(String name, byte[] data) throws InterruptedIOException {
+		put(name, data, null);
+	}
+
+	private void put(String name, byte[] data, String md5) throws InterruptedIOException {
+		try {
+			queue.put(new Entry(name, data, md5));
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while queueing zip entry!");
+		}
+	}
+
+	private byte[] compact(String json) throws IOException {
+		return mapper.writeValueAsBytes(mapper.readTree(json));
+	}
+
+	/*
+	 * Runs on one of the client's async workers; each phase's chunks run on its chunk workers
+	 */
+	private void fetchAll(Lineup[] lineups) throws IOException {
+		List<Future<Void>> maps = new ArrayList<>();
+		for(final Lineup l : lineups) {
+			final String name = String.format("maps/%s", ZipEpgClient.scrubFileName(String.format("%s.txt", l.getId())));
+			if(done.contains(name))
+				continue;
+			maps.add(clnt.submitChunk(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					byte[] data = compact(clnt.fetchChannelMapping(l));
+					foundMap(data);
+					put(name, data);
+					return null;
+				}
+			}));
+		}
+		clnt.awaitChunks(maps);
+		fetchChunks(missing("schedules", stationIds), STATION_CHUNK_SIZE, new Fetch() {
+			@Override
+			void fetch(List<String> ids) throws IOException {
+				JSONObject req = new JSONObject();
+				req.put("request", ids);
+				try(JsonRecordReader input = new JsonRecordReader(clnt.getJsonRequestFactory().get(Action.POST, RestNouns.SCHEDULES, clnt.getHash(), clnt.getUserAgent(), clnt.getBaseUrl()).submitForInputStream(req), "ZipSchedules")) {
+					JsonNode sched;
+					while((sched = input.nextNode()) != null) {
+						if(JsonResponseUtils.isErrorResponse(sched)) {
+							LOG.warn(String.format("Error received for schedule; skipping it! [%s]", JsonNodeUtils.optString(sched, "stationID", "unknown")));
+							continue;
+						}
+						foundSchedule(sched);
+						String stationId = JsonNodeUtils.getString(sched, "stationID");
+						byte[] data = mapper.writeValueAsBytes(sched);
+						String md5 = DigestUtils.md5Hex(data);
+						boolean unchanged = baseIndex != null && md5.equals(baseMd5(baseIndex.getSchedule(stationId), "schedules"));
+						put(String.format("schedules/%s.txt", ZipEpgClient.scrubFileName(stationId)), unchanged ? null : data, md5);
+					}
+				}
+			}
+		});
+		fetchChunks(copyUnchanged("programs", missing("programs", programIds)), Config.get().programChunkSize(), new ProgramFetch("programs"));
+		fetchChunks(copyUnchanged("seriesInfo", missing("seriesInfo", seriesIds)), Config.get().programChunkSize(), new ProgramFetch("seriesInfo"));
+		fetchChunks(copyExisting("artwork", missing("artwork", artworkIds)), Config.get().artworkChunkSize(), new Fetch() {
+			@Override
+			void fetch(List<String> ids) throws IOException {
+				String input = clnt.getJsonRequestFactory().get(Action.POST, RestNouns.METADATA, clnt.getHash(), clnt.getUserAgent(), clnt.getBaseUrl()).submitForJson(new JSONArray(ids));
+				for(JsonNode o : mapper.readTree(input)) {
+					String artId = JsonNodeUtils.optString(o, "programID", null);
+					if(artId == null)
+						continue;
+					if(JsonResponseUtils.isErrorResponse(o)) {
+						LOG.warn(String.format("Error received for artwork; skipping it! [%s]", artId));
+						continue;
+					}
+					put(String.format("artwork/%s.txt", ZipEpgClient.scrubFileName(artId)), mapper.writeValueAsBytes(o));
+				}
+			}
+		});
+		List<String> missingLogos = new ArrayList<>();
+		for(String name : logos.keySet()) {
+			if(done.contains(name))
+				continue;
+			if(base != null && base.contains(name))
+				put(name, null);
+			else
+				missingLogos.add(name);
+		}
+		fetchChunks(missingLogos, 1, new Fetch() {
+			@Override
+			void fetch(List<String> names) throws IOException {
+				String name = names.get(0);
+				try(InputStream ins = new URL(logos.get(name)).openStream()) {
+					put(name, IOUtils.toByteArray(ins));
+				} catch(InterruptedIOException e) {
+					throw e;
+				} catch(IOException e) {
+					LOG.warn(String.format("Unable to download logo; skipping it! [%s]: %s", name, e.getMessage()));
+				}
+			}
+		});
+	}
+
+	private final class ProgramFetch extends Fetch {
+		private final String dir;
+
+		private ProgramFetch(String dir) {
+			this.dir = dir;
+		}
+
+		@Override
+		void fetch(List<String> ids) throws IOException {
+			JSONObject req = new JSONObject();
+			req.put("request", new JSONArray(ids));
+			try(JsonRecordReader input = new JsonRecordReader(clnt.getJsonRequestFactory().get(Action.POST, RestNouns.PROGRAMS, clnt.getHash(), clnt.getUserAgent(), clnt.getBaseUrl()).submitForInputStream(req), "ZipPrograms")) {
+				JsonNode prog;
+				while((prog = input.nextNode()) != null) {
+					if(JsonResponseUtils.isErrorResponse(prog)) {
+						LOG.warn(String.format("Error received for program; skipping it! [%s]", JsonNodeUtils.optString(prog, "programID", "unknown")));
+						continue;
+					}
+					String id = JsonNodeUtils.getString(prog, "programID");
+					foundProgram(id, prog);
+					put(String.format("%s/%s.txt", dir, ZipEpgClient.scrubFileName(id)), mapper.writeValueAsBytes(prog), JsonNodeUtils.optString(prog, "md5", null));
+				}
+			}
+		}
+	}
+
+	/*
+	 * The ids of a phase whose entries aren't in the zip yet
+	 */
+	private List<String> missing(String dir, Collection<String> ids) {
+		List<String> list = new ArrayList<>();
+		synchronized(ids) {
+			for(String id : ids)
+				if(!done.contains(String.format("%s/%s.txt", dir, ZipEpgClient.scrubFileName(id))))
+					list.add(id);
+		}
+		return list;
+	}
+
+	/*
+	 * Queue copies of the programs, or series info, the base zip holds at the md5 the schedules
+	 * list; returns the ids that still have to be downloaded, including those the schedules list
+	 * no md5 for.  A copied entry isn't read, so its series id comes from its id and its artwork
+	 * is whatever the base zip holds for it.
+	 */
+	private List<String> copyUnchanged(String dir, List<String> ids) throws IOException {
+		if(base == null)
+			return ids;
+		List<String> misses = new ArrayList<>();
+		for(String id : ids) {
+			String md5 = programMd5s.get(id);
+			ZipIndex.Entry e = "seriesInfo".equals(dir) ? baseIndex.getSeriesInfo(id) : baseIndex.getProgram(id);
+			if(md5 != null && md5.equals(baseMd5(e, dir))) {
+				if(id.startsWith("EP"))
+					seriesIds.add(Program.convertToSeriesId(id));
+				String artId = ZipEpgClient.artworkId(id);
+				if(baseIndex.getArtwork(artId) != null)
+					artworkIds.add(artId);
+				put(String.format("%s/%s.txt", dir, ZipEpgClient.scrubFileName(id)), null, md5);
+			} else
+				misses.add(id);
+		}
+		LOG.debug(String.format("Updating %s [unchanged=%d; changed=%d]", dir, ids.size() - misses.size(), misses.size()));
+		return misses;
+	}
+
+	/*
+	 * Queue copies of the entries of a phase that the base zip already holds; returns the ids that
+	 * still have to be downloaded
+	 */
+	private List<String> copyExisting(String dir, List<String> ids) throws IOException {
+		if(base == null)
+			return ids;
+		List<String> misses = new ArrayList<>();
+		for(String id : ids) {
+			String name = String.format("%s/%s.txt", dir, ZipEpgClient.scrubFileName(id));
+			if(base.contains(name))
+				put(name, null);
+			else
+				misses.add(id);
+		}
+		return misses;
+	}
+
+	/*
+	 * The md5 of an entry of the base zip, if it's in the given directory; a program in a zip whose
+	 * index has no md5s has its own read instead
+	 */
+	private String baseMd5(ZipIndex.Entry e, String dir) throws IOException {
+		if(e == null || !e.getName().startsWith(dir + "/"))
+			return null;
+		String md5 = e.getMd5();
+		if(md5 == null && !"schedules".equals(dir)) {
+			try(InputStream ins = base.open(e.getName())) {
+				if(ins != null)
+					md5 = JsonNodeUtils.optString(mapper.readTree(ins), "md5", null);
+			}
+		}
+		return md5;
+	}
+
+	private void fetchChunks(List<String> ids, int chunkSize, final Fetch f) throws IOException {
+		List<Future<Void>> chunks = new ArrayList<>();
+		for(int i = 0; i < ids.size(); i += chunkSize) {
+			final List<String> chunk = ids.subList(i, Math.min(i + chunkSize, ids.size()));
+			chunks.add(clnt.submitChunk(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					f.fetch(chunk);
+					return null;
+				}
+			}));
+		}
+		clnt.awaitChunks(chunks);
+	}
+
+	private void foundMap(byte[] data) throws IOException {
+		for(JsonNode s : JsonNodeUtils.getArray(mapper.readTree(data), "stations")) {
+			stationIds.add(JsonNodeUtils.getString(s, "stationID"));
+			JsonNode logo = JsonNodeUtils.optObject(s, "logo");
+			if(logo != null && logo.has("URL")) {
+				String url = JsonNodeUtils.getString(logo, "URL");
+				logos.put(String.format("logos/%s.%s", JsonNodeUtils.getString(s, "callsign"), url.substring(url.lastIndexOf('.') + 1)), url);
+			}
+		}
+	}
+
+	private void foundSchedule(JsonNode sched) {
+		for(JsonNode a : JsonNodeUtils.getArray(sched, "programs")) {
+			String id = JsonNodeUtils.getString(a, "programID");
+			programIds.add(id);
+			String md5 = JsonNodeUtils.optString(a, "md5", null);
+			if(md5 != null)
+				programMd5s.put(id, md5);
+		}
+	}
+
+	private void foundProgram(String id, JsonNode prog) {
+		if(id.startsWith("EP"))
+			seriesIds.add(Program.convertToSeriesId(id));
+		if(JsonNodeUtils.optBoolean(prog, "hasImageArtwork"))
+			artworkIds.add(ZipEpgClient.artworkId(id));
+	}
+}
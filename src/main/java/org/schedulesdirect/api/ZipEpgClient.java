@@ -17,6 +17,7 @@ package org.schedulesdirect.api;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -34,7 +35,11 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipException;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
@@ -42,11 +47,15 @@ import org.apache.commons.logging.LogFactory;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.schedulesdirect.api.cache.RequestCoalescer;
 import org.schedulesdirect.api.exception.InvalidJsonObjectException;
 import org.schedulesdirect.api.exception.JsonEncodingException;
+import org.schedulesdirect.api.utils.JsonNodeUtils;
+import org.schedulesdirect.api.utils.MappedZipFile;
 import org.schedulesdirect.api.utils.UriUtils;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 /**
  * <p>An implementation of EpgClient that uses a local zip file as its data source</p>
@@ -65,6 +74,12 @@ import com.fasterxml.jackson.core.JsonParseException;
  * download their EPG data once a day using the sdjson grabber application then feeding that generated zip file 
  * into instances of this class to access the EPG data in their apps.
  * </p>
+ * 
+ * <p>
+ * Instances are safe for use by many concurrent threads.  Programs and artwork are each read and
+ * built once, no matter how many threads ask for them at the same time, and the lineups are fully
+ * loaded before any thread can see them.
+ * </p>
  * @author Derek Battams &lt;derek@battams.ca&gt;
  *
  */
@@ -78,7 +93,11 @@ public class ZipEpgClient extends EpgClient {
 	/**
 	 * The zip file version this grabber generates
 	 */
-	static public final int ZIP_VER = 10;
+	static public final int ZIP_VER = 11;
+	/**
+	 * The oldest zip file version that can still be read; version 10 zips have no index, so one is built when they're opened
+	 */
+	static public final int MIN_ZIP_VER = 10;
 	/**
 	 * The default charset encoding used for all data in the generated zip file
 	 */
@@ -91,6 +110,10 @@ public class ZipEpgClient extends EpgClient {
 	 * The file containing the user data for this zip cache (i.e. the user who generated the cache)
 	 */
 	static public final String USER_DATA = "user.txt";
+	/**
+	 * The file containing the index of the program, artwork and schedule entries in this zip cache; see ZipIndex
+	 */
+	static public final String INDEX_FILE = "index.txt";
 	
 	static private final Map<String, AtomicInteger> CLNT_COUNT = Collections.synchronizedMap(new HashMap<String, AtomicInteger>());
 	static private String getSrcZipKey(File src) {
@@ -124,13 +147,18 @@ public class ZipEpgClient extends EpgClient {
 		return ret;
 	}
 	
-	private File src;
+	private final File src;
 	private FileSystem vfs;
-	private Map<String, Lineup> lineups;
-	private Map<String, Program> progCache;
-	private Map<String, List<Artwork>> artCache;
-	private boolean closed;
-	private boolean detailsFetched;
+	private final ZipIndex index;
+	private final MappedZipFile mapped;
+	private final Map<String, Lineup> lineups;
+	private final ConcurrentMap<String, Program> progCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Artwork[]> artCache = new ConcurrentHashMap<>();
+	private final RequestCoalescer<String, Program> programLoads = new RequestCoalescer<>();
+	private final RequestCoalescer<String, Artwork[]> artworkLoads = new RequestCoalescer<>();
+	private final Object detailsLock = new Object();
+	private volatile boolean closed;
+	private volatile boolean detailsFetched;
 
 	/**
 	 * Constructor
@@ -151,8 +179,6 @@ public class ZipEpgClient extends EpgClient {
 	public ZipEpgClient(final File zip, final String baseUrl) throws IOException {
 		super(null, baseUrl);
 		src = zip;
-		progCache = new HashMap<String, Program>();
-		artCache = new HashMap<>();
 		URI fsUri;
 		try {
 			fsUri = new URI(String.format("jar:%s", zip.toURI()));
@@ -169,13 +195,23 @@ public class ZipEpgClient extends EpgClient {
 			if(Files.exists(verFile)) {
 				try(InputStream ins = Files.newInputStream(verFile)) {
 					int ver = Integer.parseInt(IOUtils.toString(ins, ZIP_CHARSET.toString()));
-					if(ver != ZIP_VER)
-						throw new IOException(String.format("Zip file is not expected version! [v=%d; e=%d]", ver, ZIP_VER));
+					if(ver < MIN_ZIP_VER || ver > ZIP_VER)
+						throw new IOException(String.format("Zip file is not expected version! [v=%d; e=%d-%d]", ver, MIN_ZIP_VER, ZIP_VER));
+					LOG.debug(String.format("Zip file format validated! [version=%d]", ver));
 				}
 			} else
-				throw new IOException(String.format("Zip file of version %d required!", ZIP_VER));
-			LOG.debug(String.format("Zip file format validated! [version=%d]", ZIP_VER));
-			lineups = new HashMap<String, Lineup>();
+				throw new IOException(String.format("Zip file of version %d to %d required!", MIN_ZIP_VER, ZIP_VER));
+			index = ZipIndex.load(vfs);
+			MappedZipFile mzf = null;
+			if(Config.get().mappedZipReader()) {
+				try {
+					mzf = new MappedZipFile(zip, !Config.get().replaceableZipReader());
+				} catch(ZipException e) {
+					LOG.warn(String.format("Unable to map zip file; using the zip file system instead! [%s]", e.getMessage()));
+				}
+			}
+			mapped = mzf;
+			Map<String, Lineup> found = new HashMap<String, Lineup>();
 			try(InputStream ins = Files.newInputStream(vfs.getPath(LINEUPS_LIST))) {
 				String input = IOUtils.toString(ins, ZIP_CHARSET.toString());
 				JSONObject o;
@@ -188,12 +224,13 @@ public class ZipEpgClient extends EpgClient {
 					JSONArray lineups = o.getJSONArray("lineups");
 					for(int i = 0; i < lineups.length(); ++i) {
 						JSONObject l = lineups.getJSONObject(i);
-						this.lineups.put(l.getString("uri"), new Lineup(l.getString("name"), l.getString("location"), l.getString("uri"), l.getString("transport"), this));
+						found.put(l.getString("uri"), new Lineup(l.getString("name"), l.getString("location"), l.getString("uri"), l.getString("transport"), this));
 					}
 				} catch(JSONException e) {
 					throw new InvalidJsonObjectException(String.format("ZipLineups: %s", e.getMessage()), e, o.toString(3));
 				}
 			}
+			lineups = Collections.unmodifiableMap(found);
 			String vfsKey = getSrcZipKey(zip);
 			AtomicInteger i = CLNT_COUNT.get(vfsKey);
 			if(i == null) {
@@ -242,7 +279,7 @@ public class ZipEpgClient extends EpgClient {
 	}
 	
 	@Override
-	public void close() throws IOException {
+	public synchronized void close() throws IOException {
 		if(!closed) {
 			purgeCache();
 			String vfsKey = getSrcZipKey(src);
@@ -253,6 +290,8 @@ public class ZipEpgClient extends EpgClient {
 				vfs.close();
 			} else if(LOG.isDebugEnabled())
 				LOG.debug(String.format("Skipped close() for %s; c=%d", vfsKey, i != null ? i.get() : Integer.MIN_VALUE));
+			if(mapped != null)
+				mapped.close();
 			closed = true;
 		}
 	}
@@ -269,109 +308,149 @@ public class ZipEpgClient extends EpgClient {
 		if(closed)
 			throw new IllegalStateException("Instance has already been closed!");
 		List<Airing> airs = new ArrayList<>();
-		Path path = vfs.getPath(String.format("schedules/%s.txt", scrubFileName(station.getId())));
-		if(Files.exists(path)) {
-			String input = null;
-			JSONObject o = null;
-			try(InputStream ins = Files.newInputStream(path)) {
-				input = IOUtils.toString(ins, ZIP_CHARSET.toString());
-				try {
-					o = Config.get().getObjectMapper().readValue(input, JSONObject.class);
-				} catch(JsonParseException e) {
-					throw new JsonEncodingException(String.format("Schedule[%s]: %s", station.getId(), e.getMessage()), e, input);
-				}
-				JSONArray jarr = o.getJSONArray("programs");
-				for(int i = 0; i < jarr.length(); ++i) {
-					JSONObject src = jarr.getJSONObject(i);
-					Program p = fetchProgram(src.getString("programID"));
+		ZipIndex.Entry entry = index.getSchedule(station.getId());
+		if(entry != null) {
+			JsonNode o = null;
+			try {
+				o = readJsonEntry(entry, JsonNode.class, String.format("Schedule[%s]", station.getId()));
+				for(JsonNode src : JsonNodeUtils.getArray(o, "programs")) {
+					Program p = fetchProgram(JsonNodeUtils.getString(src, "programID"));
 					if(p != null)
-						airs.add(new Airing(src, p, station));
+						airs.add(Airing.fromNode(src, p, station));
 				}
 			} catch (JSONException e) {
-				throw new InvalidJsonObjectException(String.format("Schedule[%s]: %s", station.getId(), e.getMessage()), e, o.toString(3));
+				throw new InvalidJsonObjectException(String.format("Schedule[%s]: %s", station.getId(), e.getMessage()), e, JsonNodeUtils.toString(o));
 			}
 		} else if(LOG.isDebugEnabled())
 			LOG.debug("Requested schedule not available in cache: " + station.getId());
 		return airs.toArray(new Airing[0]);
 	}
 
+	/**
+	 * Concurrent calls for the same program id share a single read of the zip
+	 */
 	@Override
 	protected Program fetchProgram(final String progId) throws IOException {
 		if(closed)
 			throw new IllegalStateException("Instance has already been closed!");
 		Program p = progCache.get(progId);
-		if(p == null) {
-			Path path = vfs.getPath(String.format("programs/%s.txt", scrubFileName(progId)));
-			
-			if(!Files.exists(path) && progId.startsWith("SH")) {
-				path = vfs.getPath(String.format("seriesInfo/%s.txt", scrubFileName(progId)));
-			}
-			
-			if(Files.exists(path)) {
-				try(InputStream ins = Files.newInputStream(path)) {
-					String data = IOUtils.toString(ins, ZIP_CHARSET.toString());
-					if(data != null) {
-						JSONObject obj;
-						try {
-							obj = Config.get().getObjectMapper().readValue(data, JSONObject.class);
-						} catch(JsonParseException e) {
-							throw new JsonEncodingException(String.format("ZipProgram[%s]: %s", progId, e.getMessage()), e, data);
-						}
-						String cachedMd5 = obj.optString("md5", "");
-						if(cachedMd5 != null && !"".equals(cachedMd5)) {
-							p = new Program(obj, this);
-							progCache.put(progId, p);
-						}
-					}
-				} catch (JSONException e) {
-					throw new IOException("JSON error!", e);
+		if(p == null)
+			p = programLoads.load(progId, new Callable<Program>() {
+				@Override
+				public Program call() throws Exception {
+					Program p = progCache.get(progId);
+					return p != null ? p : readProgram(progId);
+				}
+			});
+		return p;
+	}
+	
+	private Program readProgram(final String progId) throws IOException {
+		Program p = null;
+		ZipIndex.Entry entry = index.getProgram(progId);
+		if(entry != null) {
+			try {
+				JsonNode obj = readJsonEntry(entry, JsonNode.class, String.format("ZipProgram[%s]", progId));
+				String cachedMd5 = JsonNodeUtils.optString(obj, "md5", "");
+				if(cachedMd5 != null && !"".equals(cachedMd5)) {
+					p = Program.fromNode(obj, this);
+					progCache.put(progId, p);
 				}
+			} catch (JSONException e) {
+				throw new IOException("JSON error!", e);
 			}
 		}
 		return p;
 	}
 	
+	/**
+	 * Concurrent calls for the same artwork (i.e. all episodes of a series) share a single read of the zip
+	 */
 	@Override
 	protected Artwork[] fetchArtwork(String progId) throws IOException {
 		if(closed)
 			throw new IllegalStateException("Instance has already been closed!");
 		
-		String aId = artworkId(progId);
+		final String aId = artworkId(progId);
 		
-		List<Artwork> artworks = artCache.get(aId);
-		
-		if(artworks == null) {
-			artworks = new ArrayList<>();
-			artCache.put(aId, artworks);
-			
-			Path path = vfs.getPath(String.format("artwork/%s.txt", aId));
-			if(Files.exists(path)) {
-				try(InputStream ins = Files.newInputStream(path)) {
-					String data = IOUtils.toString(ins, ZIP_CHARSET.toString());
-					if(data != null) {
-						JSONObject artworkInfo;
-						try {
-							artworkInfo = Config.get().getObjectMapper().readValue(data, JSONObject.class);
-							Object temp = artworkInfo.get("data");
-							if(temp instanceof JSONArray) {
-								JSONArray artworkArr = artworkInfo.getJSONArray("data");
+		Artwork[] artworks = artCache.get(aId);
+		if(artworks == null)
+			artworks = artworkLoads.load(aId, new Callable<Artwork[]>() {
+				@Override
+				public Artwork[] call() throws Exception {
+					Artwork[] artworks = artCache.get(aId);
+					return artworks != null ? artworks : readArtwork(aId);
+				}
+			});
+		return artworks.clone();
+	}
+	
+	private Artwork[] readArtwork(final String aId) throws IOException {
+		List<Artwork> artworks = new ArrayList<>();
+		ZipIndex.Entry entry = index.getArtwork(aId);
+		if(entry != null) {
+			try {
+				JSONObject artworkInfo = readJsonEntry(entry, JSONObject.class, String.format("ZipProgram[%s]", aId));
+				Object temp = artworkInfo.get("data");
+				if(temp instanceof JSONArray) {
+					JSONArray artworkArr = artworkInfo.getJSONArray("data");
 
-								for(int i=0; i<artworkArr.length(); ++i) {
-									JSONObject awObj = artworkArr.getJSONObject(i);
-									artworks.add(new Artwork(awObj, this));
-								}
-							}
-						} catch(JsonParseException e) {
-							throw new JsonEncodingException(String.format("ZipProgram[%s]: %s", progId, e.getMessage()), e, data);
-						}
+					for(int i=0; i<artworkArr.length(); ++i) {
+						JSONObject awObj = artworkArr.getJSONObject(i);
+						artworks.add(new Artwork(awObj, this));
 					}
-				} catch (JSONException e) {
-					throw new IOException("JSON error!", e);
 				}
+			} catch (JSONException e) {
+				throw new IOException("JSON error!", e);
 			}
 		}
-		
-		return artworks.toArray(new Artwork[0]);
+		Artwork[] arr = artworks.toArray(new Artwork[0]);
+		artCache.put(aId, arr);
+		return arr;
+	}
+
+	/**
+	 * @return The index of this client's zip
+	 */
+	ZipIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return The zip file system backing this client
+	 */
+	FileSystem getFileSystem() {
+		return vfs;
+	}
+
+	/*
+	 * Open an indexed entry, straight from the mapped zip when there is one
+	 */
+	private InputStream openEntry(ZipIndex.Entry entry) throws IOException {
+		InputStream ins = mapped != null ? mapped.open(entry.getName()) : null;
+		return ins != null ? ins : Files.newInputStream(vfs.getPath(entry.getName()));
+	}
+
+	/*
+	 * Parse an indexed entry, streaming its bytes to the parser; the entry is only read as text to report a parse error
+	 */
+	private <T> T readJsonEntry(ZipIndex.Entry entry, Class<T> type, String ctx) throws IOException {
+		try(InputStream ins = openEntry(entry)) {
+			return Config.get().getObjectMapper().readValue(ins, type);
+		} catch(JsonParseException e) {
+			throw new JsonEncodingException(String.format("%s: %s", ctx, e.getMessage()), e, readEntry(entry));
+		}
+	}
+
+	/*
+	 * Read an indexed entry in full; the index provides the size, so the data is read straight into a buffer of the right size
+	 */
+	String readEntry(ZipIndex.Entry entry) throws IOException {
+		byte[] data = new byte[(int)entry.getSize()];
+		try(DataInputStream ins = new DataInputStream(openEntry(entry))) {
+			ins.readFully(data);
+		}
+		return new String(data, ZIP_CHARSET);
 	}
 
 	@Override
@@ -380,7 +459,8 @@ public class ZipEpgClient extends EpgClient {
 			throw new IllegalStateException("Instance has already been closed!");
 		Map<Station, Airing[]> scheds = new HashMap<Station, Airing[]>();
 		for(Station s : lineup.getStations())
-			scheds.put(s, fetchSchedule(s));
+			if(!s.isScheduleLoaded())
+				scheds.put(s, fetchSchedule(s));
 		return scheds;
 	}
 
@@ -415,18 +495,48 @@ public class ZipEpgClient extends EpgClient {
 		return val;
 	}
 	
+	/**
+	 * Get the lineups stored in the zip
+	 *
+	 * <p>
+	 * 	The lineups are returned with their channel maps and station details filled in, but each
+	 *  station's schedule, and the programs it refers to, is only read the first time the station's
+	 *  airings or programs are accessed.  Call <code>preload()</code> first to read everything up
+	 *  front instead.
+	 * </p>
+	 */
 	@Override
 	public Lineup[] getLineups() throws IOException {
 		if(closed)
 			throw new IllegalStateException("Instance has already been closed!");
 		if(!detailsFetched) {
-			for(Lineup l : lineups.values())
-				l.fetchDetails(true);
-			detailsFetched = true;
+			synchronized(detailsLock) {
+				if(!detailsFetched) {
+					for(Lineup l : lineups.values())
+						l.fetchDetails(false);
+					detailsFetched = true;
+				}
+			}
 		}
 		return lineups.values().toArray(new Lineup[0]);
 	}
 
+	/**
+	 * Read the schedules of every station of every lineup, and the programs they refer to, now
+	 *
+	 * <p>
+	 * 	For batch consumers that are going to walk the whole guide anyway; stations whose schedules
+	 *  were already read are skipped, and one being read by another thread is waited for, not read again.
+	 * </p>
+	 * @throws IOException On any IO error reading the zip
+	 */
+	public void preload() throws IOException {
+		// Each station loads under its own lock, so a preload and a lazy load never both set a station's airings
+		for(Lineup l : getLineups())
+			for(Station s : l.getStations())
+				s.downloadProgramsAndAirings();
+	}
+
 	@Override
 	public void purgeCache() {
 		if(closed)
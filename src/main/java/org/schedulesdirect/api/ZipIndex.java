@@ -0,0 +1,326 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.schedulesdirect.api.utils.MappedZipFile;
+
+/**
+ * An index of the program, artwork and schedule entries stored in a zip cache
+ *
+ * <p>
+ * 	The index is stored in the zip as <code>ZipEpgClient.INDEX_FILE</code>, one entry per line:
+ *  <code>&lt;dir&gt;\t&lt;id&gt;\t&lt;entry name&gt;\t&lt;size&gt;</code>, where dir is the
+ *  directory the entry lives in (programs, seriesInfo, artwork or schedules), id is the entry's
+ *  file name without its extension and size is its uncompressed size in bytes.  A line may carry
+ *  a fifth column, the md5 of the entry's data (the program's own md5 for programs), which
+ *  <code>ZipCacheWriter.update()</code> uses to tell which entries changed.  It's loaded once
+ *  when a zip is opened, so finding an entry is a single map lookup instead of existence probes
+ *  through the zip file system.  Zips without an index have theirs built by listing the
+ *  directories once at open.
+ * </p>
+ * <p>
+ *  Programs missing from the programs directory are looked up in the seriesInfo directory, so the
+ *  index resolves a series id to whichever of the two holds it.  Instances are immutable.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class ZipIndex {
+	static private final Log LOG = LogFactory.getLog(ZipIndex.class);
+
+	static private final String PROGRAMS = "programs";
+	static private final String SERIES_INFO = "seriesInfo";
+	static private final String ARTWORK = "artwork";
+	static private final String SCHEDULES = "schedules";
+	static private final String[] DIRS = {PROGRAMS, SERIES_INFO, ARTWORK, SCHEDULES};
+	static private final String EXT = ".txt";
+
+	/**
+	 * A single indexed entry of the zip
+	 */
+	static public final class Entry {
+		private final String name;
+		private final long size;
+		private final String md5;
+
+		private Entry(String name, long size, String md5) {
+			this.name = name;
+			this.size = size;
+			this.md5 = md5;
+		}
+
+		/**
+		 * @return The full name of the entry in the zip
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return The uncompressed size of the entry, in bytes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return The md5 of the entry, or null if the index doesn't record one
+		 */
+		public String getMd5() {
+			return md5;
+		}
+	}
+
+	/**
+	 * Build the index of a zip cache and store it in the zip; call this once all entries have been written
+	 * @param vfs The zip file system to index
+	 * @throws IOException On any IO error
+	 */
+	static public void write(FileSystem vfs) throws IOException {
+		Path idx = vfs.getPath(ZipEpgClient.INDEX_FILE);
+		Files.deleteIfExists(idx);
+		int count = 0;
+		try(BufferedWriter w = Files.newBufferedWriter(idx, ZipEpgClient.ZIP_CHARSET)) {
+			for(String dir : DIRS) {
+				Path p = vfs.getPath(dir);
+				if(!Files.isDirectory(p))
+					continue;
+				try(DirectoryStream<Path> entries = Files.newDirectoryStream(p)) {
+					for(Path e : entries) {
+						String file = e.getFileName().toString();
+						String line = line(String.format("%s/%s", dir, file), Files.size(e));
+						if(line == null)
+							continue;
+						w.write(line);
+						++count;
+					}
+				}
+			}
+		}
+		LOG.debug(String.format("Wrote zip index [entries=%d]", count));
+	}
+
+	/**
+	 * Format the index line of a zip entry
+	 * @param name The full name of the entry in the zip
+	 * @param size The uncompressed size of the entry, in bytes
+	 * @return The entry's line of the index, including its line separator, or null if the entry isn't one that's indexed
+	 */
+	static String line(String name, long size) {
+		return line(name, size, null);
+	}
+
+	/**
+	 * Format the index line of a zip entry
+	 * @param name The full name of the entry in the zip
+	 * @param size The uncompressed size of the entry, in bytes
+	 * @param md5 The md5 of the entry; null to leave it out
+	 * @return The entry's line of the index, including its line separator, or null if the entry isn't one that's indexed
+	 */
+	static String line(String name, long size, String md5) {
+		int slash = name.indexOf('/');
+		if(slash < 0 || name.indexOf('/', slash + 1) >= 0 || !name.endsWith(EXT) || !Arrays.asList(DIRS).contains(name.substring(0, slash)))
+			return null;
+		String line = String.format("%s\t%s\t%s\t%d", name.substring(0, slash), name.substring(slash + 1, name.length() - EXT.length()), name, size);
+		return md5 != null ? String.format("%s\t%s%n", line, md5) : String.format("%s%n", line);
+	}
+
+	/**
+	 * Load the index of a zip cache, building it from the zip's directory listings if the zip has no stored index
+	 * @param vfs The zip file system to load the index of
+	 * @return The loaded index
+	 * @throws IOException On any IO error or if the stored index is malformed
+	 */
+	static public ZipIndex load(FileSystem vfs) throws IOException {
+		Map<String, Map<String, Entry>> dirs = newDirs();
+		Path idx = vfs.getPath(ZipEpgClient.INDEX_FILE);
+		if(Files.exists(idx)) {
+			try(BufferedReader r = Files.newBufferedReader(idx, ZipEpgClient.ZIP_CHARSET)) {
+				parse(r, dirs);
+			}
+		} else {
+			LOG.debug("Zip has no stored index; building it from the zip's directories");
+			for(String dir : DIRS) {
+				Path p = vfs.getPath(dir);
+				if(!Files.isDirectory(p))
+					continue;
+				try(DirectoryStream<Path> stream = Files.newDirectoryStream(p)) {
+					for(Path e : stream)
+						add(dirs, String.format("%s/%s", dir, e.getFileName().toString()), Files.size(e));
+				}
+			}
+		}
+		return build(dirs);
+	}
+
+	/**
+	 * Load the index of a zip cache, building it from the zip's central directory if the zip has no stored index
+	 * @param zip The zip to load the index of
+	 * @return The loaded index
+	 * @throws IOException On any IO error or if the stored index is malformed
+	 */
+	static public ZipIndex load(MappedZipFile zip) throws IOException {
+		Map<String, Map<String, Entry>> dirs = newDirs();
+		InputStream ins = zip.open(ZipEpgClient.INDEX_FILE);
+		if(ins != null) {
+			try(BufferedReader r = new BufferedReader(new InputStreamReader(ins, ZipEpgClient.ZIP_CHARSET))) {
+				parse(r, dirs);
+			}
+		} else {
+			LOG.debug("Zip has no stored index; building it from the zip's entries");
+			for(String name : zip.getNames())
+				add(dirs, name, zip.getSize(name));
+		}
+		return build(dirs);
+	}
+
+	static private Map<String, Map<String, Entry>> newDirs() {
+		Map<String, Map<String, Entry>> dirs = new HashMap<>();
+		for(String dir : DIRS)
+			dirs.put(dir, new HashMap<String, Entry>());
+		return dirs;
+	}
+
+	static private void parse(BufferedReader r, Map<String, Map<String, Entry>> dirs) throws IOException {
+		String line;
+		while((line = r.readLine()) != null) {
+			if(line.length() == 0)
+				continue;
+			String[] vals = line.split("\t");
+			Map<String, Entry> entries = vals.length == 4 || vals.length == 5 ? dirs.get(vals[0]) : null;
+			if(entries == null)
+				throw new IOException(String.format("Invalid zip index entry! [%s]", line));
+			try {
+				entries.put(vals[1], new Entry(vals[2], Long.parseLong(vals[3]), vals.length == 5 ? vals[4] : null));
+			} catch(NumberFormatException e) {
+				throw new IOException(String.format("Invalid zip index entry! [%s]", line), e);
+			}
+		}
+	}
+
+	/*
+	 * Add an entry found by listing the zip; anything that isn't an indexed entry is ignored
+	 */
+	static private void add(Map<String, Map<String, Entry>> dirs, String name, long size) {
+		int slash = name.indexOf('/');
+		Map<String, Entry> entries = slash > 0 && name.indexOf('/', slash + 1) < 0 && name.endsWith(EXT) ? dirs.get(name.substring(0, slash)) : null;
+		if(entries != null)
+			entries.put(name.substring(slash + 1, name.length() - EXT.length()), new Entry(name, size, null));
+	}
+
+	static private ZipIndex build(Map<String, Map<String, Entry>> dirs) {
+		Map<String, Entry> programs = dirs.get(PROGRAMS);
+		for(Map.Entry<String, Entry> e : dirs.get(SERIES_INFO).entrySet())
+			if(e.getKey().startsWith("SH") && !programs.containsKey(e.getKey()))
+				programs.put(e.getKey(), e.getValue());
+		return new ZipIndex(programs, dirs.get(SERIES_INFO), dirs.get(ARTWORK), dirs.get(SCHEDULES));
+	}
+
+	/*
+	 * Ids are stored under their scrubbed file names; real ids almost never need scrubbing, so
+	 * the regex is only run when the raw id misses
+	 */
+	static private Entry find(Map<String, Entry> entries, String id) {
+		Entry e = entries.get(id);
+		if(e == null) {
+			String scrubbed = ZipEpgClient.scrubFileName(id);
+			if(!scrubbed.equals(id))
+				e = entries.get(scrubbed);
+		}
+		return e;
+	}
+
+	private final Map<String, Entry> programs;
+	private final Map<String, Entry> seriesInfo;
+	private final Map<String, Entry> artwork;
+	private final Map<String, Entry> schedules;
+
+	private ZipIndex(Map<String, Entry> programs, Map<String, Entry> seriesInfo, Map<String, Entry> artwork, Map<String, Entry> schedules) {
+		this.programs = Collections.unmodifiableMap(programs);
+		this.seriesInfo = Collections.unmodifiableMap(seriesInfo);
+		this.artwork = Collections.unmodifiableMap(artwork);
+		this.schedules = Collections.unmodifiableMap(schedules);
+	}
+
+	/**
+	 * @param progId The program id to find
+	 * @return The entry holding the program, or null if the zip doesn't contain it
+	 */
+	public Entry getProgram(String progId) {
+		return find(programs, progId);
+	}
+
+	/**
+	 * @param seriesId The series id to find, as computed by <code>Program.convertToSeriesId()</code>
+	 * @return The entry holding the series info, or null if the zip doesn't contain it; unlike <code>getProgram()</code>, the programs directory isn't searched
+	 */
+	public Entry getSeriesInfo(String seriesId) {
+		return find(seriesInfo, seriesId);
+	}
+
+	/**
+	 * @param artworkId The artwork id to find, as computed by <code>ZipEpgClient.artworkId()</code>
+	 * @return The entry holding the artwork, or null if the zip doesn't contain it
+	 */
+	public Entry getArtwork(String artworkId) {
+		return find(artwork, artworkId);
+	}
+
+	/**
+	 * @param stationId The station id to find the schedule of
+	 * @return The entry holding the schedule, or null if the zip doesn't contain it
+	 */
+	public Entry getSchedule(String stationId) {
+		return find(schedules, stationId);
+	}
+
+	/**
+	 * @return All program entries (including series info), keyed by id
+	 */
+	Map<String, Entry> getProgramEntries() {
+		return programs;
+	}
+
+	/**
+	 * @return All artwork entries, keyed by artwork id
+	 */
+	Map<String, Entry> getArtworkEntries() {
+		return artwork;
+	}
+
+	/**
+	 * @return The total number of program, artwork and schedule entries indexed
+	 */
+	public int size() {
+		return programs.size() + artwork.size() + schedules.size();
+	}
+}
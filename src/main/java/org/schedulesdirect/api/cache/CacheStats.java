@@ -0,0 +1,84 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+/**
+ * A point in time snapshot of an ObjectCache's counters
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class CacheStats {
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long size;
+	
+	/**
+	 * Constructor
+	 * @param hits The number of lookups that found a cached object
+	 * @param misses The number of lookups that did not
+	 * @param evictions The number of objects removed because the cache was full or the object expired
+	 * @param size The number of objects currently cached
+	 */
+	public CacheStats(long hits, long misses, long evictions, long size) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.size = size;
+	}
+
+	/**
+	 * @return the hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the size
+	 */
+	public long getSize() {
+		return size;
+	}
+	
+	/**
+	 * @return The ratio of hits to total lookups; zero if there have been no lookups
+	 */
+	public double getHitRate() {
+		long total = hits + misses;
+		return total > 0 ? (double)hits / total : 0.0;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hits=" + hits + ", misses=" + misses
+				+ ", evictions=" + evictions + ", size=" + size + "]";
+	}
+}
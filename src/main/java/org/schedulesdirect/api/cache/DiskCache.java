@@ -0,0 +1,478 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.schedulesdirect.api.Config;
+
+/**
+ * A persistent, size capped store of raw JSON records, tagged with the md5 and time they were written
+ *
+ * <p>
+ * 	Records are appended to a single log file in the given directory and indexed in memory.  Each
+ *  record is check summed; when the store is opened, a torn or corrupt tail left behind by a crash
+ *  is detected and truncated away, so the store always reopens in a consistent state.  Once the log
+ *  grows past the size cap, or holds more than twice as many dead bytes as live ones, it is compacted
+ *  by rewriting the live records to a new file that atomically replaces the old one.  When the live
+ *  records alone exceed the cap, the least recently written ones are dropped during compaction.
+ * </p>
+ * <p>
+ *  The store holds an exclusive lock on its directory; only one instance may have a directory open
+ *  at a time, across all processes.
+ * </p>
+ * <p>
+ *  Interrupting a thread while it reads or writes the store closes the store's file for every
+ *  thread (see <code>ClosedByInterruptException</code>); the file is reopened on the next access,
+ *  so only the interrupted call fails.  A record whose write was interrupted is discarded.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public class DiskCache implements Closeable {
+	static private final Log LOG = LogFactory.getLog(DiskCache.class);
+
+	/**
+	 * The name of the log file within the store's directory
+	 */
+	static public final String LOG_FILE = "sdjson-cache.log";
+	static private final String LOCK_FILE = "sdjson-cache.lck";
+	static private final Charset CHARSET = Charset.forName("UTF-8");
+	static private final byte PUT = 1;
+	static private final byte DELETE = 2;
+	static private final int RECORD_OVERHEAD = 4 + 8; // length prefix + crc
+	static private final long MIN_COMPACT_SIZE = 1024L * 1024L;
+
+	static private final class IndexEntry {
+		private final long offset;
+		private final int length;
+		private final String md5;
+		private final long written;
+
+		private IndexEntry(long offset, int length, String md5, long written) {
+			this.offset = offset;
+			this.length = length;
+			this.md5 = md5;
+			this.written = written;
+		}
+
+		private long size() {
+			return RECORD_OVERHEAD + length;
+		}
+	}
+
+	private final File dir;
+	private final long maxBytes;
+	private final LinkedHashMap<String, IndexEntry> index;
+	private final FileChannel lockChannel;
+	private final FileLock lock;
+	private RandomAccessFile file;
+	private volatile FileChannel channel;
+	private long end;
+	private long liveBytes;
+	private boolean closed;
+
+	/**
+	 * Constructor; the size cap is taken from the global Config instance
+	 * @param dir The directory to keep the store in; created if it does not exist
+	 * @throws IOException On any IO error or if the store is already open elsewhere
+	 */
+	public DiskCache(File dir) throws IOException {
+		this(dir, Config.get().diskCacheMaxBytes());
+	}
+
+	/**
+	 * Constructor
+	 * @param dir The directory to keep the store in; created if it does not exist
+	 * @param maxBytes The approximate max size of the store on disk
+	 * @throws IOException On any IO error or if the store is already open elsewhere
+	 */
+	public DiskCache(File dir, long maxBytes) throws IOException {
+		if(!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException(String.format("Unable to create cache directory! [%s]", dir.getAbsolutePath()));
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+		index = new LinkedHashMap<>();
+		lockChannel = new RandomAccessFile(new File(dir, LOCK_FILE), "rw").getChannel();
+		FileLock l;
+		try {
+			l = lockChannel.tryLock();
+		} catch(OverlappingFileLockException e) {
+			l = null; // Already open within this JVM
+		}
+		lock = l;
+		if(lock == null) {
+			lockChannel.close();
+			throw new IOException(String.format("Cache directory is already in use! [%s]", dir.getAbsolutePath()));
+		}
+		try {
+			file = new RandomAccessFile(new File(dir, LOG_FILE), "rw");
+			channel = file.getChannel();
+			load();
+		} catch(IOException e) {
+			lock.release();
+			lockChannel.close();
+			throw e;
+		}
+		closed = false;
+	}
+
+	private void load() throws IOException {
+		long offset = 0;
+		long size = channel.size();
+		try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(dir, LOG_FILE))))) {
+			while(offset < size) {
+				Record r;
+				try {
+					int len = input.readInt();
+					if(len <= 0 || offset + RECORD_OVERHEAD + len > size)
+						break;
+					byte[] body = new byte[len];
+					input.readFully(body);
+					if(input.readLong() != checksum(body))
+						break;
+					r = Record.decode(body);
+					if(r.type == PUT)
+						index(r.key, new IndexEntry(offset, len, r.md5, r.written));
+					else
+						unindex(r.key);
+				} catch(EOFException e) {
+					break;
+				}
+				offset += RECORD_OVERHEAD + r.length;
+			}
+		}
+		if(offset < size) {
+			LOG.warn(String.format("Truncating %d bytes of incomplete or corrupt records from cache! [%s]", size - offset, dir.getAbsolutePath()));
+			channel.truncate(offset);
+			channel.force(true);
+		}
+		end = offset;
+		if(LOG.isDebugEnabled())
+			LOG.debug(String.format("Disk cache opened [records=%d; live=%d; size=%d]", index.size(), liveBytes, offset));
+	}
+
+	private void index(String key, IndexEntry e) {
+		unindex(key);
+		index.put(key, e);
+		liveBytes += e.size();
+	}
+
+	private void unindex(String key) {
+		IndexEntry old = index.remove(key);
+		if(old != null)
+			liveBytes -= old.size();
+	}
+
+	/**
+	 * Get a stored record
+	 * @param key The key to look up
+	 * @param md5 If not null, the record is only returned if it was stored with this md5
+	 * @param maxAge If greater than zero, the record is only returned if it was written less than this many millis ago
+	 * @return The stored data or null if there is no matching record
+	 * @throws IOException On any IO error
+	 */
+	public String get(String key, String md5, long maxAge) throws IOException {
+		IndexEntry e;
+		synchronized(this) {
+			checkOpen();
+			e = index.get(key);
+		}
+		if(e == null || (md5 != null && !md5.equals(e.md5)) || (maxAge > 0 && System.currentTimeMillis() - e.written > maxAge))
+			return null;
+		ByteBuffer buf = ByteBuffer.allocate(e.length + 8);
+		FileChannel ch = channel;
+		try {
+			while(buf.hasRemaining())
+				if(ch.read(buf, e.offset + 4 + buf.position()) < 0)
+					throw new EOFException();
+		} catch(ClosedByInterruptException ex) {
+			reopen(ch);
+			throw ex;
+		} catch(IOException ex) {
+			synchronized(this) {
+				// The record was compacted away from under us; it'll be found at its new offset
+				if(index.get(key) != e)
+					return get(key, md5, maxAge);
+			}
+			// Closed by another thread's interrupt
+			if(ex instanceof ClosedChannelException && reopen(ch))
+				return get(key, md5, maxAge);
+			throw ex;
+		}
+		buf.flip();
+		byte[] body = new byte[e.length];
+		buf.get(body);
+		if(buf.getLong() != checksum(body)) {
+			synchronized(this) {
+				if(index.get(key) != e)
+					return get(key, md5, maxAge);
+			}
+			throw new IOException(String.format("Corrupt cache record! [%s]", key));
+		}
+		return new String(Record.decode(body).data, CHARSET);
+	}
+
+	/**
+	 * Store a record, replacing any record already stored under the key
+	 * @param key The key to store the record under
+	 * @param md5 The md5 of the record; may be null
+	 * @param data The data to store
+	 * @throws IOException On any IO error
+	 */
+	public synchronized void put(String key, String md5, String data) throws IOException {
+		checkOpen();
+		Record r = new Record(PUT, key, md5, System.currentTimeMillis(), data.getBytes(CHARSET));
+		long offset = append(r);
+		index(key, new IndexEntry(offset, r.length, md5, r.written));
+		maybeCompact();
+	}
+
+	/**
+	 * Remove a stored record
+	 * @param key The key to remove
+	 * @throws IOException On any IO error
+	 */
+	public synchronized void remove(String key) throws IOException {
+		checkOpen();
+		if(index.containsKey(key)) {
+			append(new Record(DELETE, key, null, System.currentTimeMillis(), new byte[0]));
+			unindex(key);
+			maybeCompact();
+		}
+	}
+
+	/**
+	 * @return The number of records stored
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return The total size, in bytes, of the live records in the store
+	 */
+	public synchronized long getLiveBytes() {
+		return liveBytes;
+	}
+
+	/**
+	 * Flush all writes to disk
+	 * @throws IOException On any IO error
+	 */
+	public synchronized void flush() throws IOException {
+		checkOpen();
+		reopen(channel);
+		channel.force(false);
+	}
+
+	private long append(Record r) throws IOException {
+		byte[] body = r.encode();
+		ByteBuffer buf = ByteBuffer.allocate(RECORD_OVERHEAD + body.length);
+		buf.putInt(body.length);
+		buf.put(body);
+		buf.putLong(checksum(body));
+		buf.flip();
+		long offset = end;
+		while(true) {
+			FileChannel ch = channel;
+			try {
+				while(buf.hasRemaining())
+					ch.write(buf, offset + buf.position());
+				break;
+			} catch(ClosedByInterruptException e) {
+				reopen(ch);
+				throw e;
+			} catch(ClosedChannelException e) {
+				// Closed by another thread's interrupt; write the whole record again
+				if(!reopen(ch))
+					throw e;
+				buf.rewind();
+			}
+		}
+		end = offset + buf.limit();
+		return offset;
+	}
+
+	/*
+	 * Reopen the log if an interrupt closed it, dropping anything written past the last complete
+	 * record; returns false if the channel is still open and was left alone
+	 */
+	private synchronized boolean reopen(FileChannel failed) throws IOException {
+		checkOpen();
+		if(channel != failed || channel.isOpen())
+			return channel != failed;
+		// The interrupted thread may be the one reopening; a pending interrupt would close the new channel too
+		boolean interrupted = Thread.interrupted();
+		try {
+			file.close();
+			file = new RandomAccessFile(new File(dir, LOG_FILE), "rw");
+			channel = file.getChannel();
+			if(channel.size() > end)
+				channel.truncate(end);
+			LOG.warn(String.format("Reopened cache file closed by an interrupt! [%s]", dir.getAbsolutePath()));
+		} finally {
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+		return true;
+	}
+
+	private void maybeCompact() throws IOException {
+		long size = end;
+		if(size > maxBytes || (size > MIN_COMPACT_SIZE && size > 2 * liveBytes))
+			compact();
+	}
+
+	/**
+	 * Rewrite the log with only the live records, dropping the least recently written records if the live records exceed the size cap
+	 * @throws IOException On any IO error
+	 */
+	public synchronized void compact() throws IOException {
+		checkOpen();
+		reopen(channel);
+		long target = maxBytes * 3 / 4;
+		int dropped = 0;
+		Iterator<Map.Entry<String, IndexEntry>> itr = index.entrySet().iterator();
+		while(liveBytes > target && itr.hasNext()) {
+			liveBytes -= itr.next().getValue().size();
+			itr.remove();
+			++dropped;
+		}
+		File tmp = new File(dir, LOG_FILE + ".tmp");
+		LinkedHashMap<String, IndexEntry> moved = new LinkedHashMap<>();
+		try(RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+			out.setLength(0);
+			FileChannel dest = out.getChannel();
+			for(Map.Entry<String, IndexEntry> e : index.entrySet()) {
+				IndexEntry src = e.getValue();
+				long offset = dest.position();
+				long copied = 0;
+				while(copied < src.size())
+					copied += channel.transferTo(src.offset + copied, src.size() - copied, dest);
+				moved.put(e.getKey(), new IndexEntry(offset, src.length, src.md5, src.written));
+			}
+			dest.force(true);
+		}
+		channel.close();
+		file.close();
+		Files.move(tmp.toPath(), new File(dir, LOG_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		file = new RandomAccessFile(new File(dir, LOG_FILE), "rw");
+		channel = file.getChannel();
+		end = channel.size();
+		index.clear();
+		index.putAll(moved);
+		if(LOG.isDebugEnabled())
+			LOG.debug(String.format("Disk cache compacted [records=%d; dropped=%d; size=%d]", index.size(), dropped, liveBytes));
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if(!closed) {
+			closed = true;
+			try {
+				if(channel.isOpen())
+					channel.force(true);
+				channel.close();
+				file.close();
+			} finally {
+				lock.release();
+				lockChannel.close();
+			}
+		}
+	}
+
+	private void checkOpen() {
+		if(closed)
+			throw new IllegalStateException("Cache has already been closed!");
+	}
+
+	static private long checksum(byte[] body) {
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		return crc.getValue();
+	}
+
+	static private final class Record {
+		private final byte type;
+		private final String key;
+		private final String md5;
+		private final long written;
+		private final byte[] data;
+		private int length;
+
+		private Record(byte type, String key, String md5, long written, byte[] data) {
+			this.type = type;
+			this.key = key;
+			this.md5 = md5;
+			this.written = written;
+			this.data = data;
+		}
+
+		private byte[] encode() throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + key.length() + 64);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(type);
+			out.writeUTF(key);
+			out.writeUTF(md5 != null ? md5 : "");
+			out.writeLong(written);
+			out.writeInt(data.length);
+			out.write(data);
+			out.flush();
+			byte[] body = bytes.toByteArray();
+			length = body.length;
+			return body;
+		}
+
+		static private Record decode(byte[] body) throws IOException {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+			byte type = in.readByte();
+			String key = in.readUTF();
+			String md5 = in.readUTF();
+			long written = in.readLong();
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			Record r = new Record(type, key, md5.length() > 0 ? md5 : null, written, data);
+			r.length = body.length;
+			return r;
+		}
+	}
+}
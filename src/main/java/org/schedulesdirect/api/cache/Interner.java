@@ -0,0 +1,202 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * A thread safe, weakly referenced pool of canonical instances of an immutable type
+ *
+ * <p>
+ * 	<code>intern()</code> returns the pooled instance equivalent to its argument, pooling the
+ *  argument itself if there is none, so equivalent values decoded many times over can all share
+ *  one instance.  Pooled instances are only weakly held and are dropped once nothing else refers
+ *  to them.
+ * </p>
+ * <p>
+ *  Equivalence defaults to <code>equals()</code>/<code>hashCode()</code>; supply an Equivalence
+ *  when instances should only be shared under a stricter test than their own equals() (i.e. when
+ *  equals() ignores some of the fields).  Only immutable types should ever be interned.  Like
+ *  LruObjectCache, the pool is split into independently locked segments, selected by hash.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ * @param <T> The type of value pooled
+ */
+public class Interner<T> {
+
+	/**
+	 * Decides when two values may share an instance
+	 * @param <T> The type of value compared
+	 */
+	static public interface Equivalence<T> {
+		/**
+		 * @param a A non-null value
+		 * @param b A non-null value
+		 * @return True if a and b are interchangeable or false otherwise
+		 */
+		public boolean equivalent(T a, T b);
+
+		/**
+		 * @param val A non-null value
+		 * @return The hash of val; equivalent values must have equal hashes
+		 */
+		public int hash(T val);
+	}
+
+	static private final Equivalence<Object> EQUALS = new Equivalence<Object>() {
+		@Override
+		public boolean equivalent(Object a, Object b) {
+			return a.equals(b);
+		}
+
+		@Override
+		public int hash(Object val) {
+			return val.hashCode();
+		}
+	};
+
+	static private final int SEGMENTS = 16;
+	static private final int INITIAL_CAPACITY = 16;
+
+	static private final class Ref<T> extends WeakReference<T> {
+		private final int hash;
+		private Ref<T> next;
+
+		private Ref(T val, int hash, Ref<T> next, ReferenceQueue<T> queue) {
+			super(val, queue);
+			this.hash = hash;
+			this.next = next;
+		}
+	}
+
+	static private final class Segment<T> {
+		private final Equivalence<? super T> eq;
+		private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+		private Ref<T>[] table = newTable(INITIAL_CAPACITY);
+		private int count;
+
+		private Segment(Equivalence<? super T> eq) {
+			this.eq = eq;
+		}
+
+		private synchronized T intern(T val, int hash) {
+			expunge();
+			int idx = hash & (table.length - 1);
+			for(Ref<T> r = table[idx]; r != null; r = r.next) {
+				T canon = r.get();
+				if(r.hash == hash && canon != null && eq.equivalent(canon, val))
+					return canon;
+			}
+			table[idx] = new Ref<>(val, hash, table[idx], queue);
+			if(++count > table.length * 3 / 4)
+				resize();
+			return val;
+		}
+
+		private synchronized int size() {
+			expunge();
+			return count;
+		}
+
+		/*
+		 * Unlink the entries whose values have been collected
+		 */
+		private void expunge() {
+			Object stale;
+			while((stale = queue.poll()) != null) {
+				Ref<?> dead = (Ref<?>)stale;
+				int idx = dead.hash & (table.length - 1);
+				Ref<T> prev = null;
+				for(Ref<T> r = table[idx]; r != null; prev = r, r = r.next)
+					if(r == dead) {
+						if(prev == null)
+							table[idx] = r.next;
+						else
+							prev.next = r.next;
+						--count;
+						break;
+					}
+			}
+		}
+
+		private void resize() {
+			Ref<T>[] old = table;
+			table = newTable(old.length * 2);
+			for(Ref<T> head : old)
+				for(Ref<T> r = head; r != null;) {
+					Ref<T> next = r.next;
+					int idx = r.hash & (table.length - 1);
+					r.next = table[idx];
+					table[idx] = r;
+					r = next;
+				}
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static private <T> Ref<T>[] newTable(int size) {
+		return new Ref[size];
+	}
+
+	private final Equivalence<? super T> eq;
+	private final Segment<T>[] segments;
+
+	/**
+	 * Constructor; values are shared when equal
+	 */
+	public Interner() {
+		this(EQUALS);
+	}
+
+	/**
+	 * Constructor
+	 * @param eq Decides which values may share an instance
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public Interner(Equivalence<? super T> eq) {
+		if(eq == null)
+			throw new IllegalArgumentException("eq cannot be null!");
+		this.eq = eq;
+		segments = new Segment[SEGMENTS];
+		for(int i = 0; i < SEGMENTS; ++i)
+			segments[i] = new Segment<>(eq);
+	}
+
+	/**
+	 * Get the canonical instance of a value
+	 * @param val The value to canonicalize; may be null
+	 * @return The pooled instance equivalent to val, or val itself if it's null or not yet pooled
+	 */
+	public T intern(T val) {
+		if(val == null)
+			return null;
+		int h = eq.hash(val);
+		h ^= h >>> 16;
+		return segments[h >>> 28].intern(val, h); // top bits pick the segment, low bits the slot within it
+	}
+
+	/**
+	 * @return The number of values currently pooled; values no longer referenced may still be counted until the next gc
+	 */
+	public int size() {
+		int size = 0;
+		for(Segment<T> s : segments)
+			size += s.size();
+		return size;
+	}
+}
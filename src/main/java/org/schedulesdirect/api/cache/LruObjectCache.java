@@ -0,0 +1,201 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.schedulesdirect.api.Config;
+
+/**
+ * A bounded, thread safe ObjectCache with least recently used eviction and optional expiry
+ * 
+ * <p>
+ * 	The cache is split into independently locked segments, selected by key hash, so concurrent
+ *  lookups of different keys rarely contend.  Each segment evicts its own least recently used
+ *  entries once its share of the max weight is exceeded.  By default every entry weighs one, so
+ *  the max weight is simply the max number of entries; supply a Weigher to bound the cache by
+ *  some other measure, such as approximate size in bytes.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public class LruObjectCache implements ObjectCache {
+	
+	/**
+	 * Computes the weight of a cache entry
+	 */
+	static public interface Weigher {
+		/**
+		 * @param key The entry's key
+		 * @param val The entry's value
+		 * @return The weight of the entry; must be positive
+		 */
+		public int weigh(String key, Object val);
+	}
+	
+	static private final Weigher UNIT_WEIGHER = new Weigher() {
+		@Override
+		public int weigh(String key, Object val) {
+			return 1;
+		}
+	};
+	
+	static private final int MAX_SEGMENTS = 16;
+	static private final int MIN_SEGMENT_WEIGHT = 64; // Small caches aren't split so they evict in true LRU order
+	
+	static private final class Entry {
+		private final Object val;
+		private final long expires;
+		private final int weight;
+		
+		private Entry(Object val, long expires, int weight) {
+			this.val = val;
+			this.expires = expires;
+			this.weight = weight;
+		}
+	}
+	
+	private final class Segment {
+		private final LinkedHashMap<String, Entry> map = new LinkedHashMap<>(16, 0.75F, true);
+		private final long maxWeight;
+		private long weight;
+		
+		private Segment(long maxWeight) {
+			this.maxWeight = maxWeight;
+		}
+		
+		private synchronized Object get(String key) {
+			Entry e = map.get(key);
+			if(e != null && e.expires > 0 && e.expires < System.currentTimeMillis()) {
+				map.remove(key);
+				weight -= e.weight;
+				evictions.incrementAndGet();
+				e = null;
+			}
+			if(e == null) {
+				misses.incrementAndGet();
+				return null;
+			}
+			hits.incrementAndGet();
+			return e.val;
+		}
+		
+		private synchronized void put(String key, Object val) {
+			int w = weigher.weigh(key, val);
+			Entry old = map.put(key, new Entry(val, ttl > 0 ? System.currentTimeMillis() + ttl : 0L, w));
+			if(old != null)
+				weight -= old.weight;
+			weight += w;
+			Iterator<Map.Entry<String, Entry>> itr = map.entrySet().iterator();
+			while(weight > maxWeight && map.size() > 1 && itr.hasNext()) {
+				Map.Entry<String, Entry> eldest = itr.next();
+				if(eldest.getKey().equals(key))
+					continue;
+				itr.remove();
+				weight -= eldest.getValue().weight;
+				evictions.incrementAndGet();
+			}
+		}
+		
+		private synchronized void remove(String key) {
+			Entry e = map.remove(key);
+			if(e != null)
+				weight -= e.weight;
+		}
+		
+		private synchronized void clear() {
+			map.clear();
+			weight = 0;
+		}
+		
+		private synchronized int size() {
+			return map.size();
+		}
+	}
+	
+	private final Segment[] segments;
+	private final long ttl;
+	private final Weigher weigher;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	
+	/**
+	 * Constructor; max entries and expiry are taken from the global Config instance
+	 */
+	public LruObjectCache() {
+		this(Config.get().cacheMaxEntries(), Config.get().cacheTtl(), null);
+	}
+	
+	/**
+	 * Constructor
+	 * @param maxWeight The max total weight of all entries; with the default weigher, the max number of entries
+	 * @param ttl Entries older than this many millis are expired; zero or less to never expire entries
+	 * @param weigher Computes the weight of each entry; null to weigh every entry as one
+	 */
+	public LruObjectCache(long maxWeight, long ttl, Weigher weigher) {
+		if(maxWeight < 1)
+			throw new IllegalArgumentException("maxWeight must be positive!");
+		int count = 1;
+		while(count < MAX_SEGMENTS && count * 2 * MIN_SEGMENT_WEIGHT <= maxWeight)
+			count *= 2;
+		segments = new LruObjectCache.Segment[count];
+		for(int i = 0; i < count; ++i)
+			segments[i] = new Segment((maxWeight + count - 1) / count);
+		this.ttl = ttl;
+		this.weigher = weigher != null ? weigher : UNIT_WEIGHER;
+	}
+	
+	private Segment segmentFor(String key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & (segments.length - 1)];
+	}
+
+	@Override
+	public Object get(String key) {
+		return segmentFor(key).get(key);
+	}
+
+	@Override
+	public void put(String key, Object val) {
+		if(val == null)
+			throw new IllegalArgumentException("Cannot cache null values!");
+		segmentFor(key).put(key, val);
+	}
+
+	@Override
+	public void remove(String key) {
+		segmentFor(key).remove(key);
+	}
+
+	@Override
+	public void clear() {
+		for(Segment s : segments)
+			s.clear();
+	}
+
+	@Override
+	public CacheStats getStats() {
+		long size = 0;
+		for(Segment s : segments)
+			size += s.size();
+		return new CacheStats(hits.get(), misses.get(), evictions.get(), size);
+	}
+}
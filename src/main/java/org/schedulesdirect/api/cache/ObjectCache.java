@@ -0,0 +1,55 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+/**
+ * A cache of EPG objects, keyed by string
+ *
+ * <p>Implementations must be thread safe.</p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public interface ObjectCache {
+	/**
+	 * Get a cached object
+	 * @param key The key to look up
+	 * @return The cached object or null if it isn't cached or has expired
+	 */
+	public Object get(String key);
+	
+	/**
+	 * Add an object to the cache, replacing any object already cached under the key
+	 * @param key The key to cache the object under
+	 * @param val The object to cache; cannot be null
+	 */
+	public void put(String key, Object val);
+	
+	/**
+	 * Remove an object from the cache
+	 * @param key The key to remove
+	 */
+	public void remove(String key);
+	
+	/**
+	 * Remove all objects from the cache
+	 */
+	public void clear();
+	
+	/**
+	 * @return A snapshot of this cache's counters
+	 */
+	public CacheStats getStats();
+}
@@ -0,0 +1,86 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent loads of the same key into a single load
+ *
+ * <p>
+ * 	The first thread to request a key runs the load itself; any thread requesting the same key
+ *  while that load is in flight waits for it and receives the same result, or the same failure.
+ *  Nothing is remembered once the load completes; caching the result is up to the caller.
+ * </p>
+ * <p>
+ *  A load must never request its own key, directly or indirectly, or it will wait on itself forever.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ * @param <K> The key type
+ * @param <V> The loaded value type
+ */
+public final class RequestCoalescer<K, V> {
+
+	private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Load a key, joining the load already in flight for the key if there is one
+	 * @param key The key to load
+	 * @param loader Performs the load if no load of the key is in flight
+	 * @return The loaded value
+	 * @throws IOException If the load failed or the wait was interrupted
+	 */
+	public V load(K key, Callable<V> loader) throws IOException {
+		FutureTask<V> task = new FutureTask<>(loader);
+		FutureTask<V> pending = inFlight.putIfAbsent(key, task);
+		if(pending == null) {
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(key, task);
+			}
+			pending = task;
+		}
+		try {
+			return pending.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(String.format("Interrupted while waiting for in flight request! [%s]", key), e);
+		} catch(ExecutionException e) {
+			Throwable t = e.getCause();
+			if(t instanceof IOException)
+				throw (IOException)t;
+			else if(t instanceof RuntimeException)
+				throw (RuntimeException)t;
+			else if(t instanceof Error)
+				throw (Error)t;
+			throw new IOException(t);
+		}
+	}
+
+	/**
+	 * @return The number of loads currently in flight
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+/**
+ * A thread safe, weakly referenced pool of canonical String instances
+ *
+ * <p>
+ * 	Values such as genres, languages and rating codes repeat across hundreds of thousands of
+ *  objects in a full guide, yet each is decoded into its own String.  Passing them through
+ *  <code>intern()</code> makes equal values share a single instance.  Entries are only weakly
+ *  held, so the pool never keeps a value alive once nothing else refers to it.
+ * </p>
+ * <p>
+ *  Strings longer than the pool's max length are returned as is; long values (descriptions,
+ *  titles, etc.) rarely repeat and would only grow the pool.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public class StringPool {
+	/**
+	 * The default max length of a pooled value
+	 */
+	static public final int DEFAULT_MAX_LENGTH = 64;
+
+	private final int maxLength;
+	private final Interner<String> pool = new Interner<>();
+
+	/**
+	 * Constructor; pools values of up to DEFAULT_MAX_LENGTH chars
+	 */
+	public StringPool() {
+		this(DEFAULT_MAX_LENGTH);
+	}
+
+	/**
+	 * Constructor
+	 * @param maxLength The longest value to pool; longer values are returned as is
+	 */
+	public StringPool(int maxLength) {
+		if(maxLength < 0)
+			throw new IllegalArgumentException("maxLength cannot be negative!");
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * Get the canonical instance of a value
+	 * @param val The value to canonicalize; may be null
+	 * @return The pooled instance equal to val, or val itself if it's null, too long or not yet pooled
+	 */
+	public String intern(String val) {
+		if(val == null || val.length() > maxLength)
+			return val;
+		if(val.length() == 0)
+			return "";
+		return pool.intern(val);
+	}
+
+	/**
+	 * @return The number of values currently pooled; values no longer referenced may still be counted until the next gc
+	 */
+	public int size() {
+		return pool.size();
+	}
+}
@@ -28,12 +28,17 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
-import org.apache.http.client.fluent.Executor;
-import org.apache.http.client.fluent.Request;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpOptions;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.ContentType;
-import org.apache.http.impl.client.DecompressingHttpClient;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.message.BasicHeader;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
 import org.schedulesdirect.api.Config;
 import org.schedulesdirect.api.EpgClient;
 import org.schedulesdirect.api.exception.InvalidHttpResponseException;
@@ -70,6 +75,7 @@ public final class DefaultJsonRequest {
 	private Action action;
 	private boolean valid;
 	private StringBuilder audit;
+	private HttpClientPool pool;
 	
 	/**
 	 * Constructor
@@ -77,8 +83,10 @@ public final class DefaultJsonRequest {
 	 * @param hash The user's hash secret obtained from the SD service
 	 * @param userAgent The user agent string to use for the web request to SD
 	 * @param baseUrl The base URL to submit the request to; default used if null
+	 * @param pool The connection pool to submit the request thru
 	 */
-	DefaultJsonRequest(Action action, String resource, String hash, String userAgent, String baseUrl) {
+	DefaultJsonRequest(Action action, String resource, String hash, String userAgent, String baseUrl, HttpClientPool pool) {
+		this.pool = pool;
 		this.hash = hash;
 		this.userAgent = userAgent;
 		targetUrl = null;
@@ -99,21 +107,23 @@ public final class DefaultJsonRequest {
 	 * @param hash The user's hash secret obtained from the SD service
 	 */
 	DefaultJsonRequest(Action action, String resource) {
-		this(action, resource, null, null, null);
+		this(action, resource, null, null, null, null);
 		valid = false;
 	}
 	
-	private Request initRequest() {
-		Request r = null;
+	private HttpRequestBase initRequest() {
+		HttpRequestBase r = null;
 		switch(action) {
-			case GET: r = Request.Get(baseUrl); break;
-			case PUT: r = Request.Put(baseUrl); break;
-			case POST: r = Request.Post(baseUrl); break;
-			case DELETE: r = Request.Delete(baseUrl); break;
-			case OPTIONS: r = Request.Options(baseUrl); break;
-			case HEAD: r = Request.Head(baseUrl); break;
+			case GET: r = new HttpGet(baseUrl); break;
+			case PUT: r = new HttpPut(baseUrl); break;
+			case POST: r = new HttpPost(baseUrl); break;
+			case DELETE: r = new HttpDelete(baseUrl); break;
+			case OPTIONS: r = new HttpOptions(baseUrl); break;
+			case HEAD: r = new HttpHead(baseUrl); break;
 		}
-		return r.userAgent(userAgent);
+		if(userAgent != null)
+			r.setHeader("User-Agent", userAgent);
+		return r;
 	}
 	
 	/**
@@ -181,7 +191,8 @@ public final class DefaultJsonRequest {
 					Path f = HttpUtils.captureContentToDisk(ins);
 					ins.close();
 					audit.append(String.format("<<<output: [see %s]%n", f.toFile().getAbsolutePath()));
-				}
+				} else
+					EntityUtils.consume(resp.getEntity());
 				throw new InvalidHttpResponseException(String.format("HTTP response returned an error status! [%d]", status), status, resp.getStatusLine().getReasonPhrase());
 			}
 			InputStream ins = resp.getEntity().getContent();
@@ -189,9 +200,7 @@ public final class DefaultJsonRequest {
 				Path f = HttpUtils.captureContentToDisk(ins);
 				ins.close();
 				audit.append(String.format("<<<output: [see %s]%n", f.toFile().getAbsolutePath()));
-				try(InputStream fIns = Files.newInputStream(f)) {
-					return new ByteArrayInputStream(IOUtils.toByteArray(fIns));
-				}
+				return Files.newInputStream(f);
 			} else {
 				audit.append(String.format("<<<output: [content capture disabled]%n"));
 				return ins;
@@ -208,16 +217,19 @@ public final class DefaultJsonRequest {
 		try {
 			targetUrl = baseUrl.toString();
 			audit.append(String.format(">>>target: %s%n>>>verb: %s%n", targetUrl, action));
-			Executor exe = Executor.newInstance(new DecompressingHttpClient(new DefaultHttpClient()));
-			Request req = initRequest();
+			HttpRequestBase req = initRequest();
 			if(hash != null)
-				req.addHeader(new BasicHeader("token", hash));
-			if(reqData != null)
-				req.bodyString(reqData.toString(), ContentType.APPLICATION_JSON);
-			audit.append(String.format(">>>req_headers:%n%s", HttpUtils.prettyPrintHeaders(HttpUtils.scrapeHeaders(req), "\t")));
+				req.addHeader("token", hash);
+			if(reqData != null) {
+				if(!(req instanceof HttpEntityEnclosingRequestBase))
+					throw new IllegalStateException(String.format("%s requests cannot have a body!", action));
+				((HttpEntityEnclosingRequestBase)req).setEntity(new StringEntity(reqData.toString(), ContentType.APPLICATION_JSON));
+			}
+			audit.append(String.format(">>>req_headers:%n%s", HttpUtils.prettyPrintHeaders(req.getAllHeaders(), "\t")));
 			if(action == Action.PUT || action == Action.POST)
 				audit.append(String.format(">>>input: %s%n", reqData));
-			HttpResponse resp = exe.execute(req).returnResponse();
+			// The entity is left unread; its connection goes back to the pool once the caller reads its content to the end or closes it
+			HttpResponse resp = pool.getHttpClient().execute(req);
 			if(LOG.isDebugEnabled()) {
 				Header h = resp.getFirstHeader("Schedulesdirect-Serverid");
 				String val = h != null ? h.getValue() : "[Unknown]";
@@ -0,0 +1,131 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.json;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.impl.client.DecompressingHttpClient;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.schedulesdirect.api.Config;
+
+/**
+ * A pool of keep-alive HTTP connections shared by all requests built from a single JsonRequestFactory
+ *
+ * <p>
+ * 	Idle and expired connections are periodically evicted by a daemon thread; call <code>close()</code>
+ *  to stop the evictor and release all pooled connections.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class HttpClientPool {
+	static private final Log LOG = LogFactory.getLog(HttpClientPool.class);
+
+	private final PoolingClientConnectionManager connMgr;
+	private final HttpClient client;
+	private final Thread evictor;
+	private final long idleTimeout;
+	private volatile boolean closed;
+
+	/**
+	 * Constructor; all settings are taken from the global Config instance
+	 */
+	public HttpClientPool() {
+		this(Config.get().httpMaxConnectionsPerRoute(), Config.get().httpMaxConnections(), Config.get().httpConnectTimeout(), Config.get().httpSocketTimeout(), Config.get().httpIdleTimeout(), Config.get().httpPoolTimeout());
+	}
+
+	/**
+	 * Constructor; the pool timeout is taken from the global Config instance
+	 * @param maxPerRoute The max number of connections to keep open to a single host
+	 * @param maxTotal The max number of connections to keep open in total
+	 * @param connectTimeout The connect timeout, in millis; zero for no timeout
+	 * @param socketTimeout The socket read timeout, in millis; zero for no timeout
+	 * @param idleTimeout Connections idle for longer than this many millis are closed
+	 */
+	public HttpClientPool(int maxPerRoute, int maxTotal, int connectTimeout, int socketTimeout, long idleTimeout) {
+		this(maxPerRoute, maxTotal, connectTimeout, socketTimeout, idleTimeout, Config.get().httpPoolTimeout());
+	}
+
+	/**
+	 * Constructor
+	 * @param maxPerRoute The max number of connections to keep open to a single host
+	 * @param maxTotal The max number of connections to keep open in total
+	 * @param connectTimeout The connect timeout, in millis; zero for no timeout
+	 * @param socketTimeout The socket read timeout, in millis; zero for no timeout
+	 * @param idleTimeout Connections idle for longer than this many millis are closed
+	 * @param poolTimeout The max millis a request waits for a free connection when all are in use; zero for no timeout
+	 */
+	public HttpClientPool(int maxPerRoute, int maxTotal, int connectTimeout, int socketTimeout, long idleTimeout, long poolTimeout) {
+		connMgr = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault());
+		connMgr.setMaxTotal(maxTotal);
+		connMgr.setDefaultMaxPerRoute(maxPerRoute);
+		HttpParams params = new BasicHttpParams();
+		HttpConnectionParams.setConnectionTimeout(params, connectTimeout);
+		HttpConnectionParams.setSoTimeout(params, socketTimeout);
+		HttpClientParams.setConnectionManagerTimeout(params, poolTimeout);
+		client = new DecompressingHttpClient(new DefaultHttpClient(connMgr, params));
+		this.idleTimeout = idleTimeout;
+		closed = false;
+		evictor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while(!closed) {
+					try {
+						Thread.sleep(Math.max(1000L, HttpClientPool.this.idleTimeout / 2));
+					} catch(InterruptedException e) {
+						break;
+					}
+					connMgr.closeExpiredConnections();
+					connMgr.closeIdleConnections(HttpClientPool.this.idleTimeout, TimeUnit.MILLISECONDS);
+				}
+			}
+		}, "sdjson-http-evictor");
+		evictor.setDaemon(true);
+		evictor.start();
+		if(LOG.isDebugEnabled())
+			LOG.debug(String.format("HTTP pool created [maxPerRoute=%d; maxTotal=%d; connect=%dms; socket=%dms; idle=%dms; pool=%dms]", maxPerRoute, maxTotal, connectTimeout, socketTimeout, idleTimeout, poolTimeout));
+	}
+
+	/**
+	 * @return The client that submits requests thru this pool; a response's connection is returned to the pool once its entity's content is read to the end or closed
+	 * @throws IllegalStateException If the pool has already been closed
+	 */
+	public HttpClient getHttpClient() {
+		if(closed)
+			throw new IllegalStateException("HTTP pool has already been closed!");
+		return client;
+	}
+
+	/**
+	 * Stop the idle connection evictor and close all pooled connections; the pool cannot be used after this call
+	 */
+	public void close() {
+		if(!closed) {
+			closed = true;
+			evictor.interrupt();
+			connMgr.shutdown();
+		}
+	}
+}
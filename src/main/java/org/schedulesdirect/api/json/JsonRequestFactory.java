@@ -21,6 +21,13 @@ import org.schedulesdirect.api.json.DefaultJsonRequest.Action;
 
 /**
  * Constructs requests that function against the given web serivce URL
+ * 
+ * <p>
+ * 	All requests built by a factory instance share the factory's pool of keep-alive
+ *  HTTP connections.  The global instance returned by <code>get()</code> is shared by
+ *  every client in the JVM; construct a separate factory if a client needs its own pool
+ *  and call <code>close()</code> on it when done.
+ * </p>
  * @author Derek Battams &lt;derek@battams.ca&gt;
  *
  */
@@ -28,9 +35,45 @@ public class JsonRequestFactory implements IJsonRequestFactory {
 	static private final JsonRequestFactory INSTANCE = new JsonRequestFactory();
 	static public JsonRequestFactory get() { return INSTANCE; }
 
+	private HttpClientPool pool;
+	
+	/**
+	 * Constructor; the connection pool is created on first use, configured from the global Config
+	 */
+	public JsonRequestFactory() {
+		this(null);
+	}
+	
+	/**
+	 * Constructor
+	 * @param pool The connection pool all requests from this factory will be sent thru; if null, one is created on first use
+	 */
+	public JsonRequestFactory(HttpClientPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * @return The connection pool used by requests built from this factory
+	 */
+	public synchronized HttpClientPool getPool() {
+		if(pool == null)
+			pool = new HttpClientPool();
+		return pool;
+	}
+	
+	/**
+	 * Release all pooled connections held by this factory; a new pool is created if the factory is used again
+	 */
+	public synchronized void close() {
+		if(pool != null) {
+			pool.close();
+			pool = null;
+		}
+	}
+	
 	@Override
 	public DefaultJsonRequest get(DefaultJsonRequest.Action action, String resource, String hash, String userAgent, String baseUrl) {
-		return new DefaultJsonRequest(action, resource, hash, userAgent, baseUrl);
+		return new DefaultJsonRequest(action, resource, hash, userAgent, baseUrl, getPool());
 	}
 	
 	@Override
@@ -20,7 +20,6 @@ import java.util.Date;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.schedulesdirect.api.Config;
 
 /**
  * @author Derek Battams &lt;derek@battams.ca&gt;
@@ -36,7 +35,7 @@ public final class AiringUtils {
 	 */
 	static public Date getEndDate(JSONObject src) throws JSONException {
 		try {
-			return new Date(Config.get().getDateTimeFormat().parse(src.getString("airDateTime")).getTime() + (src.getLong("duration") * 1000L));
+			return new Date(DateTimeUtils.parseDateTimeMillis(src.getString("airDateTime")) + (src.getLong("duration") * 1000L));
 		} catch(ParseException e) {
 			throw new RuntimeException(e);
 		}
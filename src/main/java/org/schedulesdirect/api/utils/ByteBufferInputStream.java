@@ -0,0 +1,69 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream reading the remaining bytes of a ByteBuffer
+ *
+ * <p>
+ * 	The stream consumes the buffer it's given, moving its position; pass a duplicate or slice
+ *  when reading from a shared buffer, such as a memory mapped file.  Not thread safe.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buf;
+
+	/**
+	 * Constructor
+	 * @param buf The buffer to read, from its position up to its limit
+	 */
+	public ByteBufferInputStream(ByteBuffer buf) {
+		this.buf = buf;
+	}
+
+	@Override
+	public int read() {
+		return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if(len == 0)
+			return 0;
+		if(!buf.hasRemaining())
+			return -1;
+		len = Math.min(len, buf.remaining());
+		buf.get(b, off, len);
+		return len;
+	}
+
+	@Override
+	public long skip(long n) {
+		int skipped = (int)Math.max(0, Math.min(n, buf.remaining()));
+		buf.position(buf.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return buf.remaining();
+	}
+}
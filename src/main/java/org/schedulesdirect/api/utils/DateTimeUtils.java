@@ -0,0 +1,170 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.schedulesdirect.api.Config;
+
+/**
+ * Thread safe parsing and formatting of the fixed date formats used by the JSON feed
+ *
+ * <p>
+ * 	Timestamps in the feed are always <code>yyyy-MM-dd'T'HH:mm:ss'Z'</code> and dates are always
+ *  <code>yyyy-MM-dd</code>; these are decoded by hand, without building a SimpleDateFormat per
+ *  call.  Anything that doesn't have the exact expected shape falls back to SimpleDateFormat, so
+ *  results (including its lenient handling of out of range fields) are always the same as before.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class DateTimeUtils {
+
+	static private final long MILLIS_PER_DAY = 86400000L;
+	static private final int MIN_FAST_YEAR = 1600; // SimpleDateFormat switches to the Julian calendar in 1582
+
+	static private final ThreadLocal<Calendar> LOCAL_CAL = new ThreadLocal<Calendar>() {
+		@Override
+		protected Calendar initialValue() {
+			return new GregorianCalendar();
+		}
+	};
+
+	/**
+	 * Parse a feed timestamp, i.e. <code>2015-03-01T12:00:00Z</code>
+	 * @param val The value to parse
+	 * @return The parsed instant, in epoch millis
+	 * @throws ParseException If the value is not a valid timestamp
+	 */
+	static public long parseDateTimeMillis(String val) throws ParseException {
+		if(val != null && val.length() == 20 && val.charAt(4) == '-' && val.charAt(7) == '-' && val.charAt(10) == 'T'
+				&& val.charAt(13) == ':' && val.charAt(16) == ':' && val.charAt(19) == 'Z') {
+			int y = digits(val, 0, 4);
+			int m = digits(val, 5, 2);
+			int d = digits(val, 8, 2);
+			int h = digits(val, 11, 2);
+			int min = digits(val, 14, 2);
+			int s = digits(val, 17, 2);
+			if(y >= MIN_FAST_YEAR && m >= 1 && m <= 12 && d >= 0 && h >= 0 && min >= 0 && s >= 0)
+				return daysFromCivil(y, m, d) * MILLIS_PER_DAY + h * 3600000L + min * 60000L + s * 1000L;
+		}
+		if(val == null)
+			throw new ParseException("Unparseable date: null", 0);
+		return Config.get().getDateTimeFormat().parse(val).getTime();
+	}
+
+	/**
+	 * Parse a feed timestamp, i.e. <code>2015-03-01T12:00:00Z</code>
+	 * @param val The value to parse
+	 * @return The parsed instant
+	 * @throws ParseException If the value is not a valid timestamp
+	 */
+	static public Date parseDateTime(String val) throws ParseException {
+		return new Date(parseDateTimeMillis(val));
+	}
+
+	/**
+	 * Parse a feed date, i.e. <code>2015-03-01</code>, as midnight in the JVM's default time zone
+	 * @param val The value to parse
+	 * @return The parsed date
+	 * @throws ParseException If the value is not a valid date
+	 */
+	static public Date parseLocalDate(String val) throws ParseException {
+		if(val != null && val.length() == 10 && val.charAt(4) == '-' && val.charAt(7) == '-') {
+			int y = digits(val, 0, 4);
+			int m = digits(val, 5, 2);
+			int d = digits(val, 8, 2);
+			if(y >= MIN_FAST_YEAR && m >= 1 && m <= 12 && d >= 0) {
+				Calendar cal = LOCAL_CAL.get();
+				cal.setTimeZone(TimeZone.getDefault());
+				cal.clear();
+				cal.set(y, m - 1, d);
+				return cal.getTime();
+			}
+		}
+		if(val == null)
+			throw new ParseException("Unparseable date: null", 0);
+		SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd");
+		fmt.setTimeZone(TimeZone.getDefault());
+		return fmt.parse(val);
+	}
+
+	/**
+	 * Format the UTC day of an instant, i.e. <code>2015-03-01</code>
+	 * @param millis The instant to format, in epoch millis
+	 * @return The UTC day of the instant, as <code>yyyy-MM-dd</code>
+	 */
+	static public String formatUtcDay(long millis) {
+		long z = millis / MILLIS_PER_DAY;
+		if(millis % MILLIS_PER_DAY < 0)
+			--z;
+		z += 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int d = (int)(doy - (153 * mp + 2) / 5 + 1);
+		int m = (int)(mp < 10 ? mp + 3 : mp - 9);
+		int y = (int)(yoe + era * 400 + (m <= 2 ? 1 : 0));
+		char[] buf = new char[10];
+		buf[0] = (char)('0' + y / 1000 % 10);
+		buf[1] = (char)('0' + y / 100 % 10);
+		buf[2] = (char)('0' + y / 10 % 10);
+		buf[3] = (char)('0' + y % 10);
+		buf[4] = '-';
+		buf[5] = (char)('0' + m / 10);
+		buf[6] = (char)('0' + m % 10);
+		buf[7] = '-';
+		buf[8] = (char)('0' + d / 10);
+		buf[9] = (char)('0' + d % 10);
+		return new String(buf);
+	}
+
+	/*
+	 * Days since the epoch of a proleptic Gregorian date; see http://howardhinnant.github.io/date_algorithms.html
+	 * Linear in the day, so out of range days roll over just as they do with a lenient SimpleDateFormat
+	 */
+	static private long daysFromCivil(int y, int m, int d) {
+		y -= m <= 2 ? 1 : 0;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	/*
+	 * The value of len decimal digits starting at start; -1 if any of them isn't a digit
+	 */
+	static private int digits(String val, int start, int len) {
+		int n = 0;
+		for(int i = start; i < start + len; ++i) {
+			char c = val.charAt(i);
+			if(c < '0' || c > '9')
+				return -1;
+			n = n * 10 + (c - '0');
+		}
+		return n;
+	}
+
+	private DateTimeUtils() {}
+}
@@ -0,0 +1,209 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.schedulesdirect.api.Config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Accessors for Jackson tree nodes that mirror the semantics of the org.json getters
+ *
+ * <p>
+ * 	The model classes decode directly from Jackson's tree model; these helpers let them do so
+ *  with the same missing value, null and type coercion rules they've always had with org.json.
+ *  The required getters throw JSONException, just like their org.json counterparts.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class JsonNodeUtils {
+
+	/**
+	 * Get a required string value
+	 * @param o The object node to read from
+	 * @param key The key to read
+	 * @return The string value
+	 * @throws JSONException If the key is missing or its value is not a string
+	 */
+	static public String getString(JsonNode o, String key) throws JSONException {
+		JsonNode n = get(o, key);
+		if(!n.isTextual())
+			throw new JSONException(String.format("JSONObject[\"%s\"] not a string.", key));
+		return n.textValue();
+	}
+
+	/**
+	 * Get a required int value; numeric strings are accepted
+	 * @param o The object node to read from
+	 * @param key The key to read
+	 * @return The int value
+	 * @throws JSONException If the key is missing or its value is not a number
+	 */
+	static public int getInt(JsonNode o, String key) throws JSONException {
+		JsonNode n = get(o, key);
+		if(n.isNumber())
+			return n.intValue();
+		try {
+			return Integer.parseInt(n.asText());
+		} catch(NumberFormatException e) {
+			throw new JSONException(String.format("JSONObject[\"%s\"] is not an int.", key));
+		}
+	}
+
+	/**
+	 * Get a required array value
+	 * @param o The object node to read from
+	 * @param key The key to read
+	 * @return The array node
+	 * @throws JSONException If the key is missing or its value is not an array
+	 */
+	static public JsonNode getArray(JsonNode o, String key) throws JSONException {
+		JsonNode n = get(o, key);
+		if(!n.isArray())
+			throw new JSONException(String.format("JSONObject[\"%s\"] is not a JSONArray.", key));
+		return n;
+	}
+
+	/**
+	 * Get a required string value from an array
+	 * @param arr The array node to read from
+	 * @param i The index to read
+	 * @return The string value
+	 * @throws JSONException If the index is out of bounds or its value is not a string
+	 */
+	static public String getString(JsonNode arr, int i) throws JSONException {
+		JsonNode n = arr.get(i);
+		if(n == null || !n.isTextual())
+			throw new JSONException(String.format("JSONArray[%d] not a string.", i));
+		return n.textValue();
+	}
+
+	/**
+	 * Get an optional string value
+	 * @param o The object node to read from
+	 * @param key The key to read
+	 * @return The value as a string or the empty string if missing or null
+	 */
+	static public String optString(JsonNode o, String key) {
+		return optString(o, key, "");
+	}
+
+	/**
+	 * Get an optional string value; non-string values are returned in their JSON encoded form
+	 * @param o The object node to read from
+	 * @param key The key to read
+	 * @param defaultVal The value returned when the key is missing or null
+	 * @return The value as a string or defaultVal
+	 */
+	static public String optString(JsonNode o, String key, String defaultVal) {
+		JsonNode n = o.get(key);
+		if(n == null || n.isNull())
+			return defaultVal;
+		return n.isValueNode() ? n.asText() : n.toString();
+	}
+
+	/**
+	 * Get an optional boolean value; the strings "true" and "false" are accepted
+	 * @param o The object node to read from
+	 * @param key The key to read
+	 * @return The value or false if missing or not a boolean
+	 */
+	static public boolean optBoolean(JsonNode o, String key) {
+		JsonNode n = o.get(key);
+		if(n == null)
+			return false;
+		if(n.isBoolean())
+			return n.booleanValue();
+		return n.isTextual() && "true".equalsIgnoreCase(n.textValue());
+	}
+
+	/**
+	 * Get an optional object value
+	 * @param o The object node to read from
+	 * @param key The key to read
+	 * @return The object node or null if missing or not an object
+	 */
+	static public JsonNode optObject(JsonNode o, String key) {
+		JsonNode n = o.get(key);
+		return n != null && n.isObject() ? n : null;
+	}
+
+	/**
+	 * Get an optional array value
+	 * @param o The object node to read from
+	 * @param key The key to read
+	 * @return The array node or null if missing or not an array
+	 */
+	static public JsonNode optArray(JsonNode o, String key) {
+		JsonNode n = o.get(key);
+		return n != null && n.isArray() ? n : null;
+	}
+
+	/**
+	 * Convert a node to the object org.json would have produced for the same value
+	 * @param n The node to convert
+	 * @return The converted value; containers are returned as JSONObject/JSONArray, JSON null as null
+	 */
+	static public Object toValue(JsonNode n) {
+		if(n == null || n.isNull())
+			return null;
+		if(n.isTextual())
+			return n.textValue();
+		if(n.isBoolean())
+			return n.booleanValue();
+		if(n.isNumber())
+			return n.numberValue();
+		if(n.isArray())
+			return Config.get().getObjectMapper().convertValue(n, JSONArray.class);
+		return Config.get().getObjectMapper().convertValue(n, JSONObject.class);
+	}
+
+	/**
+	 * Convert an org.json object to a Jackson tree
+	 * @param src The object to convert
+	 * @return The equivalent tree or null if src is null
+	 */
+	static public JsonNode toNode(JSONObject src) {
+		return src != null ? Config.get().getObjectMapper().<JsonNode>valueToTree(src) : null;
+	}
+
+	/**
+	 * Render a node for inclusion in error reports and capture logs
+	 * @param n The node to render
+	 * @return The pretty printed JSON of the node
+	 */
+	static public String toString(JsonNode n) {
+		try {
+			return Config.get().getObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(n);
+		} catch(JsonProcessingException e) {
+			return String.valueOf(n);
+		}
+	}
+
+	static private JsonNode get(JsonNode o, String key) throws JSONException {
+		JsonNode n = o.get(key);
+		if(n == null || n.isNull())
+			throw new JSONException(String.format("JSONObject[\"%s\"] not found.", key));
+		return n;
+	}
+
+	private JsonNodeUtils() {}
+}
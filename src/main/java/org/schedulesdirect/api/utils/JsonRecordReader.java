@@ -0,0 +1,107 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.json.JSONObject;
+import org.schedulesdirect.api.Config;
+import org.schedulesdirect.api.exception.JsonEncodingException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Reads a stream of concatenated JSON objects (i.e. one object per line, as returned by the
+ * schedules and programs resources) one record at a time
+ *
+ * <p>
+ * 	Only the record currently being decoded is held in memory; the stream is never buffered
+ *  as a whole, so reading a response straight off the network (see
+ *  <code>DefaultJsonRequest.submitForInputStream()</code>) keeps memory use flat no matter the
+ *  size of the response.  Closing the reader closes the underlying stream.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class JsonRecordReader implements Closeable {
+
+	private final JsonParser parser;
+	private final String name;
+
+	/**
+	 * Constructor
+	 * @param ins The stream to read records from
+	 * @param name A name for the stream, used in error messages
+	 * @throws IOException On any IO error
+	 */
+	public JsonRecordReader(InputStream ins, String name) throws IOException {
+		parser = Config.get().getObjectMapper().getFactory().createParser(ins);
+		this.name = name;
+	}
+
+	private boolean nextRecord() throws IOException {
+		try {
+			JsonToken t = parser.nextToken();
+			if(t == null)
+				return false;
+			if(t != JsonToken.START_OBJECT)
+				throw new JsonEncodingException(String.format("%s: Expected an object, found %s", name, t), parser.getCurrentLocation().toString());
+			return true;
+		} catch(JsonParseException e) {
+			throw new JsonEncodingException(String.format("%s: %s", name, e.getMessage()), e, parser.getCurrentLocation().toString());
+		}
+	}
+
+	/**
+	 * Read the next record as a JSONObject
+	 * @return The next record or null if the end of the stream was reached
+	 * @throws IOException On any IO error or if the stream is not valid JSON
+	 */
+	public JSONObject next() throws IOException {
+		if(!nextRecord())
+			return null;
+		try {
+			return Config.get().getObjectMapper().readValue(parser, JSONObject.class);
+		} catch(JsonParseException e) {
+			throw new JsonEncodingException(String.format("%s: %s", name, e.getMessage()), e, parser.getCurrentLocation().toString());
+		}
+	}
+
+	/**
+	 * Read the next record as a Jackson tree, skipping the org.json conversion done by <code>next()</code>
+	 * @return The next record or null if the end of the stream was reached
+	 * @throws IOException On any IO error or if the stream is not valid JSON
+	 */
+	public JsonNode nextNode() throws IOException {
+		if(!nextRecord())
+			return null;
+		try {
+			return Config.get().getObjectMapper().readTree(parser);
+		} catch(JsonParseException e) {
+			throw new JsonEncodingException(String.format("%s: %s", name, e.getMessage()), e, parser.getCurrentLocation().toString());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		parser.close();
+	}
+}
@@ -20,6 +20,8 @@ import org.json.JSONObject;
 import org.schedulesdirect.api.ApiResponse;
 import org.schedulesdirect.api.exception.InvalidJsonObjectException;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 /**
  * @author Derek Battams &lt;derek@battams.ca&gt;
  *
@@ -42,5 +44,21 @@ public final class JsonResponseUtils {
 		}
 	}
 	
+	static public int getErrorCode(JsonNode resp) throws InvalidJsonObjectException {
+		try {
+			return JsonNodeUtils.getInt(resp, "code");
+		} catch(JSONException e) {
+			throw new InvalidJsonObjectException("ErrorResponse: Not an error!", e, JsonNodeUtils.toString(resp));
+		}
+	}
+	
+	static public boolean isErrorResponse(JsonNode resp) {
+		try {
+			return resp.has("code") && getErrorCode(resp) != ApiResponse.OK;
+		} catch(InvalidJsonObjectException e) {
+			return false;
+		}
+	}
+	
 	private JsonResponseUtils() {}
 }
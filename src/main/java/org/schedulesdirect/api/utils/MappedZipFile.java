@@ -0,0 +1,364 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * A read only zip file served from a memory mapped buffer, or read through a file channel
+ *
+ * <p>
+ * 	The file is mapped and its central directory parsed once, at construction.  Opening an entry
+ *  then costs a map lookup and a buffer slice: stored entries are read straight from the mapping
+ *  and deflated ones are inflated from it, with no file system provider, channel or copy in
+ *  between.  Archives over 2GB aren't supported and are rejected with a ZipException; zip64
+ *  archives are supported only as far as they need to be below that size, i.e. for a zip64 end
+ *  record holding an entry count over 65535, as written by ZipOutputStream and ZipWriter.
+ * </p>
+ * <p>
+ *  A mapping can't be released on demand, only when the instance is collected, and until then
+ *  Windows won't let the file be replaced or deleted.  Instances created without mapping instead
+ *  keep the file open and read each entry's data with a positional read, so the file is released
+ *  by <code>close()</code>.  Interrupting a thread while it reads such an instance closes its file
+ *  for every thread (see <code>ClosedByInterruptException</code>); the file is reopened on the next
+ *  read, so only the interrupted read fails.
+ * </p>
+ * <p>
+ *  Instances are thread safe; every stream gets its own view of the mapping, or its own copy of
+ *  the entry's data.  A mapped file is closed once mapped and <code>close()</code> does nothing.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class MappedZipFile implements Closeable {
+
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+	static private final int EOCD_SIG = 0x06054b50;
+	static private final int ZIP64_EOCD_SIG = 0x06064b50;
+	static private final int ZIP64_LOCATOR_SIG = 0x07064b50;
+	static private final int CEN_SIG = 0x02014b50;
+	static private final int LOC_SIG = 0x04034b50;
+	static private final int EOCD_LEN = 22;
+	static private final int ZIP64_LOCATOR_LEN = 20;
+	static private final int CEN_LEN = 46;
+	static private final int LOC_LEN = 30;
+	static private final int MAX_COMMENT = 0xFFFF;
+	static final int STORED = 0;
+	static final int DEFLATED = 8;
+
+	static final class Entry {
+		final int method;
+		final int crc;
+		final int compressedSize;
+		final int size;
+		private final int headerOffset;
+
+		private Entry(int method, int crc, int compressedSize, int size, int headerOffset) {
+			this.method = method;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.headerOffset = headerOffset;
+		}
+	}
+
+	private final File src;
+	private final MappedByteBuffer map;
+	private final int length;
+	private final Map<String, Entry> entries;
+	private volatile FileChannel channel;
+	private volatile boolean closed;
+
+	/**
+	 * Constructor
+	 * @param src The zip file to map
+	 * @throws ZipException If the file isn't a zip or is a zip64 archive
+	 * @throws IOException On any IO error reading the file
+	 */
+	public MappedZipFile(File src) throws IOException {
+		this(src, true);
+	}
+
+	/**
+	 * Constructor
+	 * @param src The zip file to read
+	 * @param map True to map the file, false to keep it open and read it through a file channel until closed
+	 * @throws ZipException If the file isn't a zip or is a zip64 archive
+	 * @throws IOException On any IO error reading the file
+	 */
+	public MappedZipFile(File src, boolean map) throws IOException {
+		this.src = src;
+		RandomAccessFile raf = new RandomAccessFile(src, "r");
+		FileChannel chan = raf.getChannel();
+		try {
+			long len = chan.size();
+			if(len > Integer.MAX_VALUE)
+				throw new ZipException(String.format("Zip file is too large to map! [%s]", src));
+			length = (int)len;
+			if(map) {
+				this.map = chan.map(FileChannel.MapMode.READ_ONLY, 0, len);
+				this.map.order(ByteOrder.LITTLE_ENDIAN);
+				raf.close();
+			} else {
+				this.map = null;
+				channel = chan;
+			}
+			entries = Collections.unmodifiableMap(readCentralDirectory());
+		} catch(IOException | RuntimeException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	private Map<String, Entry> readCentralDirectory() throws IOException {
+		// The end record, its comment and the zip64 locator before it
+		int tailStart = Math.max(0, length - EOCD_LEN - MAX_COMMENT - ZIP64_LOCATOR_LEN);
+		ByteBuffer tail = read(tailStart, length - tailStart);
+		int eocd = -1;
+		for(int i = tail.limit() - EOCD_LEN; i >= Math.max(0, tail.limit() - EOCD_LEN - MAX_COMMENT); --i)
+			if(tail.getInt(i) == EOCD_SIG) {
+				eocd = i;
+				break;
+			}
+		if(eocd < 0)
+			throw new ZipException(String.format("End of central directory not found! [%s]", src));
+		long count = tail.getShort(eocd + 10) & 0xFFFF;
+		long cenSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+		long cenOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+		int cenEnd = tailStart + eocd;
+		if(count == 0xFFFF || cenSize == 0xFFFFFFFFL || cenOffset == 0xFFFFFFFFL) {
+			int loc = eocd - ZIP64_LOCATOR_LEN;
+			if(loc >= 0 && tail.getInt(loc) == ZIP64_LOCATOR_SIG) {
+				long zip64 = tail.getLong(loc + 8);
+				if(zip64 < 0 || zip64 > tailStart + loc - 56)
+					throw new ZipException(String.format("Invalid zip64 end of central directory! [%s]", src));
+				ByteBuffer rec = read((int)zip64, 56);
+				if(rec.getInt(0) != ZIP64_EOCD_SIG)
+					throw new ZipException(String.format("Invalid zip64 end of central directory! [%s]", src));
+				count = rec.getLong(32);
+				cenSize = rec.getLong(40);
+				cenOffset = rec.getLong(48);
+				cenEnd = (int)zip64;
+			} else if(count != 0xFFFF) // A plain zip may really hold exactly 65535 entries
+				throw new ZipException(String.format("Zip64 end of central directory not found! [%s]", src));
+		}
+		if(count < 0 || count > Integer.MAX_VALUE || cenOffset < 0 || cenSize < 0 || cenOffset + cenSize > cenEnd)
+			throw new ZipException(String.format("Invalid central directory! [%s]", src));
+		ByteBuffer cen = read((int)cenOffset, cenEnd - (int)cenOffset);
+		Map<String, Entry> entries = new HashMap<>((int)Math.min(count * 4 / 3 + 1, Integer.MAX_VALUE));
+		int pos = 0;
+		for(int i = 0; i < count; ++i) {
+			if(pos + CEN_LEN > cen.limit() || cen.getInt(pos) != CEN_SIG)
+				throw new ZipException(String.format("Invalid central directory entry! [%s; entry=%d]", src, i));
+			int method = cen.getShort(pos + 10) & 0xFFFF;
+			int crc = cen.getInt(pos + 16);
+			long compressedSize = cen.getInt(pos + 20) & 0xFFFFFFFFL;
+			long size = cen.getInt(pos + 24) & 0xFFFFFFFFL;
+			int nameLen = cen.getShort(pos + 28) & 0xFFFF;
+			int extraLen = cen.getShort(pos + 30) & 0xFFFF;
+			int commentLen = cen.getShort(pos + 32) & 0xFFFF;
+			long headerOffset = cen.getInt(pos + 42) & 0xFFFFFFFFL;
+			if(compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || headerOffset == 0xFFFFFFFFL)
+				throw new ZipException(String.format("Zip64 archives are not supported! [%s]", src));
+			byte[] name = new byte[nameLen];
+			ByteBuffer view = cen.duplicate();
+			view.position(pos + CEN_LEN);
+			view.get(name);
+			entries.put(new String(name, UTF8), new Entry(method, crc, (int)compressedSize, (int)size, (int)headerOffset));
+			pos += CEN_LEN + nameLen + extraLen + commentLen;
+		}
+		return entries;
+	}
+
+	/**
+	 * @param name The full name of the entry
+	 * @return True if the zip contains the entry or false otherwise
+	 */
+	public boolean contains(String name) {
+		return entries.containsKey(name);
+	}
+
+	/**
+	 * @param name The full name of the entry
+	 * @return The uncompressed size of the entry, in bytes, or -1 if the zip doesn't contain it
+	 */
+	public long getSize(String name) {
+		Entry e = entries.get(name);
+		return e != null ? e.size : -1;
+	}
+
+	/**
+	 * @return The full names of all entries in the zip
+	 */
+	public Set<String> getNames() {
+		return entries.keySet();
+	}
+
+	/**
+	 * Open an entry for reading
+	 * @param name The full name of the entry
+	 * @return A stream of the entry's uncompressed data, or null if the zip doesn't contain it
+	 * @throws ZipException If the entry's header is invalid or it uses an unsupported compression method
+	 * @throws IOException On any IO error reading the entry
+	 */
+	public InputStream open(String name) throws IOException {
+		Entry e = entries.get(name);
+		if(e == null)
+			return null;
+		ByteBuffer data = getData(name, e);
+		switch(e.method) {
+			case STORED:
+				return new ByteBufferInputStream(data);
+			case DEFLATED:
+				final Inflater inf = new Inflater(true);
+				// Raw deflate streams need one byte of padding after the data; see ZipFile
+				return new InflaterInputStream(new ByteBufferInputStream(data), inf, Math.max(512, Math.min(e.compressedSize, 8192))) {
+					private boolean eof;
+					private boolean closed;
+
+					@Override
+					protected void fill() throws IOException {
+						if(eof)
+							throw new ZipException(String.format("Unexpected end of entry! [%s]", src));
+						len = in.read(buf, 0, buf.length);
+						if(len == -1) {
+							buf[0] = 0;
+							len = 1;
+							eof = true;
+						}
+						inf.setInput(buf, 0, len);
+					}
+
+					@Override
+					public void close() throws IOException {
+						if(!closed) {
+							closed = true;
+							inf.end();
+							super.close();
+						}
+					}
+				};
+			default:
+				throw new ZipException(String.format("Unsupported compression method! [%s; method=%d]", name, e.method));
+		}
+	}
+
+	/**
+	 * @param name The full name of the entry
+	 * @return The central directory record of the entry, or null if the zip doesn't contain it
+	 */
+	Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * Get the raw data of an entry, still compressed as stored in the zip
+	 * @param name The full name of the entry
+	 * @param e The entry's central directory record
+	 * @return A view of the entry's data in the mapping, or a copy of it read from the file
+	 * @throws ZipException If the entry's header is invalid or its data is truncated
+	 * @throws IOException On any IO error reading the entry
+	 */
+	ByteBuffer getData(String name, Entry e) throws IOException {
+		int hdr = e.headerOffset;
+		if(hdr + LOC_LEN > length)
+			throw new ZipException(String.format("Invalid local header! [%s]", name));
+		ByteBuffer loc = read(hdr, LOC_LEN);
+		if(loc.getInt(0) != LOC_SIG)
+			throw new ZipException(String.format("Invalid local header! [%s]", name));
+		int start = hdr + LOC_LEN + (loc.getShort(26) & 0xFFFF) + (loc.getShort(28) & 0xFFFF);
+		if(start + e.compressedSize > length)
+			throw new ZipException(String.format("Entry data is truncated! [%s]", name));
+		return read(start, e.compressedSize);
+	}
+
+	/*
+	 * A little endian buffer of len bytes of the file, from pos: a view of the mapping or a copy read through the channel
+	 */
+	private ByteBuffer read(int pos, int len) throws IOException {
+		if(map != null) {
+			ByteBuffer view = map.duplicate();
+			view.position(pos);
+			view.limit(pos + len);
+			return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+		}
+		ByteBuffer buf = ByteBuffer.allocate(len);
+		while(buf.hasRemaining()) {
+			FileChannel ch = channel;
+			try {
+				if(ch.read(buf, pos + buf.position()) < 0)
+					throw new ZipException(String.format("Unexpected end of zip file! [%s]", src));
+			} catch(ClosedByInterruptException e) {
+				reopen(ch);
+				throw e;
+			} catch(ClosedChannelException e) {
+				if(!reopen(ch))
+					throw e;
+			}
+		}
+		buf.flip();
+		return buf.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/*
+	 * Replace a channel closed by an interrupt; returns false if the channel wasn't closed
+	 */
+	private synchronized boolean reopen(FileChannel failed) throws IOException {
+		if(closed)
+			throw new IOException(String.format("Zip file has been closed! [%s]", src));
+		if(channel != failed || channel.isOpen())
+			return channel != failed;
+		// The interrupted thread may be the one reopening; a pending interrupt would close the new channel too
+		boolean interrupted = Thread.interrupted();
+		try {
+			channel = new RandomAccessFile(src, "r").getChannel();
+		} finally {
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+		return true;
+	}
+
+	/**
+	 * Close the file; does nothing for a mapped file, whose mapping is only released when the instance is collected
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if(!closed) {
+			closed = true;
+			if(channel != null)
+				channel.close();
+		}
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * A write only zip file that can copy entries out of a MappedZipFile without recompressing them
+ *
+ * <p>
+ * 	New entries are compressed in memory before they're written, so each local header holds the
+ *  entry's real sizes and crc; entries that don't shrink are stored instead.  <code>copy()</code>
+ *  writes an entry's compressed data straight from the source mapping, which makes carrying an
+ *  unchanged entry over from one zip to the next about as cheap as a file copy.  Entry names
+ *  must be unique; that's up to the caller.
+ * </p>
+ * <p>
+ *  Zips of more than 65535 entries get a zip64 end record; zips over 4GB aren't supported.
+ *  Not thread safe.
+ * </p>
+ * @author Derek Battams &lt;derek@battams.ca&gt;
+ *
+ */
+public final class ZipWriter implements Closeable {
+
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+	static private final int LOC_SIG = 0x04034b50;
+	static private final int CEN_SIG = 0x02014b50;
+	static private final int EOCD_SIG = 0x06054b50;
+	static private final int ZIP64_EOCD_SIG = 0x06064b50;
+	static private final int ZIP64_LOCATOR_SIG = 0x07064b50;
+	static private final int LOC_LEN = 30;
+	static private final int CEN_LEN = 46;
+	static private final int VERSION = 20;
+	static private final int ZIP64_VERSION = 45;
+	static private final int UTF8_FLAG = 0x800;
+	static private final int MAX_ENTRIES = 0xFFFF;
+	static private final long MAX_OFFSET = 0xFFFFFFFFL;
+
+	static private final class Record {
+		private final byte[] name;
+		private final int method;
+		private final int crc;
+		private final int compressedSize;
+		private final int size;
+		private final long offset;
+
+		private Record(byte[] name, int method, int crc, int compressedSize, int size, long offset) {
+			this.name = name;
+			this.method = method;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.offset = offset;
+		}
+	}
+
+	private final OutputStream out;
+	private final List<Record> records = new ArrayList<>();
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private final CRC32 crc = new CRC32();
+	private final ByteBuffer hdr = ByteBuffer.allocate(CEN_LEN).order(ByteOrder.LITTLE_ENDIAN);
+	private final byte[] copyBuf = new byte[8192];
+	private final int dosTime;
+	private long offset;
+	private boolean closed;
+
+	/**
+	 * Constructor
+	 * @param dest The zip file to write; replaced if it exists
+	 * @throws IOException On any IO error opening the file
+	 */
+	public ZipWriter(File dest) throws IOException {
+		out = new BufferedOutputStream(new FileOutputStream(dest), 65536);
+		Calendar now = Calendar.getInstance();
+		dosTime = (now.get(Calendar.YEAR) - 1980) << 25 | (now.get(Calendar.MONTH) + 1) << 21 | now.get(Calendar.DAY_OF_MONTH) << 16
+				| now.get(Calendar.HOUR_OF_DAY) << 11 | now.get(Calendar.MINUTE) << 5 | now.get(Calendar.SECOND) >> 1;
+	}
+
+	/**
+	 * Write a new entry, compressing it
+	 * @param name The full name of the entry
+	 * @param data The entry's uncompressed data
+	 * @throws IOException On any IO error
+	 */
+	public void write(String name, byte[] data) throws IOException {
+		crc.reset();
+		crc.update(data);
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream deflated = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+		while(!deflater.finished()) {
+			int len = deflater.deflate(copyBuf);
+			deflated.write(copyBuf, 0, len);
+		}
+		if(deflated.size() < data.length) {
+			writeHeader(name, MappedZipFile.DEFLATED, (int)crc.getValue(), deflated.size(), data.length);
+			deflated.writeTo(out);
+			offset += deflated.size();
+		} else {
+			writeHeader(name, MappedZipFile.STORED, (int)crc.getValue(), data.length, data.length);
+			out.write(data);
+			offset += data.length;
+		}
+	}
+
+	/**
+	 * Copy an entry from another zip, as is
+	 * @param src The zip to copy the entry from
+	 * @param name The full name of the entry, in both zips
+	 * @throws ZipException If src doesn't contain the entry or it's invalid
+	 * @throws IOException On any IO error
+	 */
+	public void copy(MappedZipFile src, String name) throws IOException {
+		MappedZipFile.Entry e = src.getEntry(name);
+		if(e == null)
+			throw new ZipException(String.format("Entry not found in source zip! [%s]", name));
+		ByteBuffer data = src.getData(name, e);
+		writeHeader(name, e.method, e.crc, e.compressedSize, e.size);
+		while(data.hasRemaining()) {
+			int len = Math.min(copyBuf.length, data.remaining());
+			data.get(copyBuf, 0, len);
+			out.write(copyBuf, 0, len);
+		}
+		offset += e.compressedSize;
+	}
+
+	/**
+	 * @return The number of entries written so far
+	 */
+	public int size() {
+		return records.size();
+	}
+
+	private void writeHeader(String name, int method, int crc, int compressedSize, int size) throws IOException {
+		if(closed)
+			throw new IllegalStateException("Zip has already been closed!");
+		if(offset > MAX_OFFSET)
+			throw new ZipException(String.format("Zips over 4GB are not supported! [%s]", name));
+		byte[] nameBytes = name.getBytes(UTF8);
+		records.add(new Record(nameBytes, method, crc, compressedSize, size, offset));
+		hdr.clear();
+		hdr.putInt(LOC_SIG).putShort((short)VERSION).putShort((short)UTF8_FLAG).putShort((short)method).putInt(dosTime);
+		hdr.putInt(crc).putInt(compressedSize).putInt(size).putShort((short)nameBytes.length).putShort((short)0);
+		out.write(hdr.array(), 0, LOC_LEN);
+		out.write(nameBytes);
+		offset += LOC_LEN + nameBytes.length;
+	}
+
+	/**
+	 * Write the central directory and close the file
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed)
+			return;
+		closed = true;
+		try {
+			long cenOffset = offset;
+			for(Record r : records) {
+				hdr.clear();
+				hdr.putInt(CEN_SIG).putShort((short)VERSION).putShort((short)VERSION).putShort((short)UTF8_FLAG).putShort((short)r.method).putInt(dosTime);
+				hdr.putInt(r.crc).putInt(r.compressedSize).putInt(r.size).putShort((short)r.name.length).putShort((short)0).putShort((short)0);
+				hdr.putShort((short)0).putShort((short)0).putInt(0).putInt((int)r.offset);
+				out.write(hdr.array(), 0, CEN_LEN);
+				out.write(r.name);
+				offset += CEN_LEN + r.name.length;
+			}
+			long cenSize = offset - cenOffset;
+			if(offset > MAX_OFFSET)
+				throw new ZipException("Zips over 4GB are not supported!");
+			ByteBuffer end = ByteBuffer.allocate(98).order(ByteOrder.LITTLE_ENDIAN);
+			boolean zip64 = records.size() >= MAX_ENTRIES;
+			if(zip64) {
+				end.putInt(ZIP64_EOCD_SIG).putLong(44).putShort((short)ZIP64_VERSION).putShort((short)ZIP64_VERSION).putInt(0).putInt(0);
+				end.putLong(records.size()).putLong(records.size()).putLong(cenSize).putLong(cenOffset);
+				end.putInt(ZIP64_LOCATOR_SIG).putInt(0).putLong(offset).putInt(1);
+			}
+			int count = zip64 ? MAX_ENTRIES : records.size();
+			end.putInt(EOCD_SIG).putShort((short)0).putShort((short)0).putShort((short)count).putShort((short)count);
+			end.putInt((int)cenSize).putInt((int)cenOffset).putShort((short)0);
+			out.write(end.array(), 0, end.position());
+		} finally {
+			deflater.end();
+			out.close();
+		}
+	}
+}
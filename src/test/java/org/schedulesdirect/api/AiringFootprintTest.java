@@ -0,0 +1,122 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Date;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.schedulesdirect.api.Airing.ContentType;
+import org.schedulesdirect.api.Airing.DolbyStatus;
+import org.schedulesdirect.api.Airing.FinaleStatus;
+import org.schedulesdirect.api.Airing.LiveStatus;
+import org.schedulesdirect.api.Airing.PremiereStatus;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class AiringFootprintTest extends SdjsonTestSuite {
+
+	/*
+	 * Estimate the shallow size of an instance the way JOL reports it for a 64-bit JVM with
+	 * compressed oops: a 12 byte header, 4 byte references, fields packed and the total padded to 8
+	 */
+	static private long shallowSize(Class<?> cls) {
+		long size = 12;
+		for(Class<?> c = cls; c != null; c = c.getSuperclass())
+			for(Field f : c.getDeclaredFields()) {
+				if(Modifier.isStatic(f.getModifiers()))
+					continue;
+				Class<?> t = f.getType();
+				if(t == long.class || t == double.class)
+					size += 8;
+				else if(t == int.class || t == float.class || !t.isPrimitive())
+					size += 4;
+				else if(t == short.class || t == char.class)
+					size += 2;
+				else
+					size += 1;
+			}
+		return (size + 7) / 8 * 8;
+	}
+
+	private Airing newAiring() throws Exception {
+		Program p = mock(Program.class);
+		when(p.getId()).thenReturn("EP000000010001");
+		JSONObject src = new JSONObject();
+		src.put("programID", "EP000000010001");
+		src.put("airDateTime", "2015-03-01T12:00:00Z");
+		src.put("duration", "1800");
+		return new Airing(src, p, mock(Station.class));
+	}
+
+	@Test
+	public void testShallowSizeIsCompact() {
+		for(Class<?> c = Airing.class; c != null; c = c.getSuperclass())
+			for(Field f : c.getDeclaredFields())
+				if(!Modifier.isStatic(f.getModifiers())) {
+					assertFalse(f.getName(), f.getType() == boolean.class);
+					assertFalse(f.getName(), f.getType() == Date.class);
+					assertFalse(f.getName(), f.getType().isEnum());
+				}
+		// 16 booleans, 5 enum refs and a Date (plus its own 24 bytes) used to take this past 120 bytes
+		assertTrue(shallowSize(Airing.class) <= 72);
+	}
+
+	@Test
+	public void testPackedStateRoundTrips() throws Exception {
+		Airing a = newAiring();
+		assertEquals(Config.get().getDateTimeFormat().parse("2015-03-01T12:00:00Z"), a.getGmtStart());
+		assertEquals(DolbyStatus.NONE, a.getDolbyStatus());
+		assertEquals(LiveStatus.NONE, a.getLiveStatus());
+		assertFalse(a.isHdtv());
+
+		a.setHdtv(true);
+		a.setTimeApproximate(true);
+		a.setSubjectToBlackout(true);
+		a.setDolbyStatus(DolbyStatus.UNKNOWN);
+		a.setLiveStatus(LiveStatus.TAPE);
+		a.setPremiereStatus(PremiereStatus.SERIES_PREMIERE);
+		a.setFinaleStatus(FinaleStatus.SEASON_FINALE);
+		a.setContentType(null);
+		assertTrue(a.isHdtv());
+		assertTrue(a.isTimeApproximate());
+		assertTrue(a.isSubjectToBlackout());
+		assertFalse(a.isStereo());
+		assertEquals(DolbyStatus.UNKNOWN, a.getDolbyStatus());
+		assertEquals(LiveStatus.TAPE, a.getLiveStatus());
+		assertEquals(PremiereStatus.SERIES_PREMIERE, a.getPremiereStatus());
+		assertEquals(FinaleStatus.SEASON_FINALE, a.getFinaleStatus());
+		assertNull(a.getContentType());
+
+		a.setHdtv(false);
+		a.setContentType(ContentType.FIRST_RUN_SYNDICATION);
+		assertFalse(a.isHdtv());
+		assertTrue(a.isTimeApproximate());
+		assertEquals(ContentType.FIRST_RUN_SYNDICATION, a.getContentType());
+		assertEquals(FinaleStatus.SEASON_FINALE, a.getFinaleStatus());
+
+		a.setGmtStart(null);
+		assertNull(a.getGmtStart());
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.schedulesdirect.api.Airing.Flag;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class AiringTableTest extends SdjsonTestSuite {
+
+	private Airing newAiring(Program p, Station s, String start, boolean isNew, String... video) throws Exception {
+		JSONObject src = new JSONObject();
+		src.put("programID", p.getId());
+		src.put("airDateTime", start);
+		src.put("duration", "1800");
+		src.put("new", isNew);
+		src.put("videoProperties", new JSONArray(video));
+		return new Airing(src, p, s);
+	}
+
+	@Test
+	public void testFindAllScansFlags() throws Exception {
+		Program p1 = mock(Program.class);
+		when(p1.getId()).thenReturn("EP000000010001");
+		Program p2 = mock(Program.class);
+		when(p2.getId()).thenReturn("EP000000020001");
+		Station s = mock(Station.class);
+		Airing[] airings = new Airing[] {
+			newAiring(p1, s, "2015-03-01T12:00:00Z", true, "hdtv"),
+			newAiring(p2, s, "2015-03-01T12:30:00Z", true),
+			newAiring(p1, s, "2015-03-01T13:00:00Z", false, "hdtv"),
+			newAiring(p2, s, "2015-03-01T13:30:00Z", true, "hdtv", "letterbox")
+		};
+		AiringTable t = AiringTable.build(s, airings);
+		assertEquals(4, t.size());
+		assertEquals(2, t.getPrograms().length);
+		assertArrayEquals(new int[] {0, 3}, t.findAll(AiringTable.mask(Flag.NEW_AIRING, Flag.HDTV)));
+		long start = airings[2].getGmtStart().getTime() / 1000L;
+		assertArrayEquals(new int[] {3}, t.findAll(AiringTable.mask(Flag.HDTV), start + 1, Long.MAX_VALUE));
+		assertTrue(t.hasFlag(3, Flag.LETTERBOXED));
+		assertSame(p2, t.getProgram(3));
+	}
+
+	@Test
+	public void testRowsRebuildEqualAirings() throws Exception {
+		Program p = mock(Program.class);
+		when(p.getId()).thenReturn("EP000000010001");
+		Station s = mock(Station.class);
+		Airing a = newAiring(p, s, "2015-03-01T12:00:00Z", true, "hdtv", "3d");
+		a.setPartNum(2);
+		a.setTotalParts(3);
+		a.setBroadcastLanguage("fr");
+		AiringTable t = AiringTable.build(s, new Airing[] {a});
+		Airing b = t.get(0);
+		assertEquals(a, b);
+		assertEquals(a.toString(), b.toString());
+	}
+}
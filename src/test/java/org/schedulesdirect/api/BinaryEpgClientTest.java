@@ -0,0 +1,113 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class BinaryEpgClientTest extends SdjsonTestSuite {
+
+	static private final String LINEUPS = "{\"lineups\":[{\"name\":\"Test\",\"location\":\"Watertown\",\"uri\":\"/20141201/lineups/USA-TEST-X\",\"transport\":\"Cable\"}]}";
+	static private final String MAP = "{\"map\":[{\"stationID\":\"35045\",\"channel\":\"7\"}],\"stations\":[{\"affiliate\":\"CBS Affiliate\",\"name\":\"WWNYDT (WWNY-DT)\",\"broadcaster\":{\"postalcode\":\"13601\",\"state\":\"NY\",\"country\":\"United States\",\"city\":\"Watertown\"},\"stationID\":\"35045\",\"language\":\"English\",\"callsign\":\"WWNYDT\"}],\"metadata\":{\"modified\":\"2015-03-01T00:00:00Z\"}}";
+	static private final String SCHED = "{\"programs\":["
+			+ "{\"programID\":\"EP000000020001\",\"airDateTime\":\"2015-03-01T12:30:00Z\",\"duration\":1800,\"audioProperties\":[\"cc\",\"stereo\"],\"programLanguage\":\"fr\"},"
+			+ "{\"programID\":\"EP000000010001\",\"airDateTime\":\"2015-03-01T12:00:00Z\",\"duration\":1800,\"new\":true,\"videoProperties\":[\"hdtv\"],\"contentRating\":[{\"body\":\"USA Parental Rating\",\"code\":\"TVPG\"}]}"
+			+ "]}";
+
+	private Path zip;
+	private Path bin;
+
+	@Before
+	public void setup() throws Exception {
+		zip = Files.createTempFile("sdjson_", ".zip");
+		Files.delete(zip);
+		bin = Files.createTempFile("sdjson_", ".bin");
+		try(FileSystem vfs = FileSystems.newFileSystem(new URI(String.format("jar:%s", zip.toUri().toString())), Collections.singletonMap("create", "true"))) {
+			Files.write(vfs.getPath(ZipEpgClient.ZIP_VER_FILE), Integer.toString(ZipEpgClient.ZIP_VER).getBytes(ZipEpgClient.ZIP_CHARSET));
+			Files.write(vfs.getPath(ZipEpgClient.LINEUPS_LIST), LINEUPS.getBytes(ZipEpgClient.ZIP_CHARSET));
+			Files.createDirectory(vfs.getPath("maps"));
+			Files.write(vfs.getPath("maps", "USA-TEST-X.txt"), MAP.getBytes(ZipEpgClient.ZIP_CHARSET));
+			Files.createDirectory(vfs.getPath("schedules"));
+			Files.write(vfs.getPath("schedules", "35045.txt"), SCHED.getBytes(ZipEpgClient.ZIP_CHARSET));
+			Files.createDirectory(vfs.getPath("programs"));
+			for(int i = 1; i <= 2; ++i) {
+				String id = String.format("EP0000000%d0001", i);
+				String prog = String.format("{\n   \"programID\": \"%s\",\n   \"titles\": [{\"title120\": \"Show %d\"}],\n   \"md5\": \"abc%d\"\n}", id, i, i);
+				Files.write(vfs.getPath("programs", id + ".txt"), prog.getBytes(ZipEpgClient.ZIP_CHARSET));
+			}
+		}
+	}
+
+	@After
+	public void teardown() {
+		try {
+			Files.deleteIfExists(zip);
+			Files.deleteIfExists(bin);
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Test
+	public void testRoundTripMatchesZip() throws Exception {
+		ZipEpgClient src = new ZipEpgClient(zip);
+		Airing[] expected = src.getLineups()[0].getStations()[0].getAirings();
+		assertEquals(2, expected.length);
+		new BinaryEpgWriter(src).write(bin.toFile());
+		src.close();
+		BinaryEpgClient c = new BinaryEpgClient(bin);
+		try {
+			Lineup[] lineups = c.getLineups();
+			assertEquals(1, lineups.length);
+			assertEquals("USA-TEST-X", lineups[0].getId());
+			Station s = lineups[0].getStations()[0];
+			assertEquals("WWNYDT", s.getCallsign());
+			Airing[] airings = s.getAirings();
+			assertEquals(2, airings.length);
+			// the binary cache stores airings sorted by start
+			assertEquals(expected[1], airings[0]);
+			assertEquals(expected[0], airings[1]);
+			assertEquals(expected[1].getState(), airings[0].getState());
+			assertEquals(expected[0].getState(), airings[1].getState());
+			assertEquals("Show 1", airings[0].getProgram().getTitle());
+			assertTrue(airings[0].isHdtv());
+			assertArrayEquals(expected[1].getTvRatings(), airings[0].getTvRatings());
+			assertEquals("fr", airings[1].getBroadcastLanguage());
+		} finally {
+			c.close();
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void testRejectsOtherFiles() throws Exception {
+		Files.write(bin, new byte[BinaryEpgClient.HEADER_LEN]);
+		new BinaryEpgClient(bin).close();
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class ContentRatingTest extends SdjsonTestSuite {
+
+	@Test
+	public void testValueOfSharesInstances() {
+		ContentRating r = ContentRating.valueOf("USA Parental Rating", "TVPG");
+		assertSame(r, ContentRating.valueOf(new String("USA Parental Rating"), new String("TVPG")));
+		assertEquals(r, new ContentRating("USA Parental Rating", "TVPG"));
+		assertEquals(r.hashCode(), new ContentRating("USA Parental Rating", "TVPG").hashCode());
+		assertNotEquals(r, ContentRating.valueOf("USA Parental Rating", "TV14"));
+	}
+}
@@ -16,8 +16,11 @@
 package org.schedulesdirect.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -25,15 +28,21 @@ import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
-import org.powermock.reflect.Whitebox;
+import org.schedulesdirect.api.cache.ObjectCache;
 import org.schedulesdirect.api.exception.InvalidCredentialsException;
 import org.schedulesdirect.api.exception.ServiceOfflineException;
 import org.schedulesdirect.api.json.DefaultJsonRequest;
@@ -50,14 +59,6 @@ public class NetworkEpgClientTest extends SdjsonTestSuite {
 	@Before
 	public void setup() {
 		FACTORY.clear();
-		Field f = Whitebox.getField(NetworkEpgClient.class, "CACHE");
-		try {
-			@SuppressWarnings("unchecked")
-			Map<String, Object> cache = (Map<String, Object>)f.get(null);
-			cache.clear();
-		} catch (IllegalArgumentException | IllegalAccessException e) {
-			throw new RuntimeException(e);
-		}
 	}
 	
 	@Test
@@ -137,6 +138,46 @@ public class NetworkEpgClientTest extends SdjsonTestSuite {
 		verifyNoMoreInteractions(req);
 	}
 	
+	@Test
+	public void testSubmitForJsonAsync() throws Exception {
+		FACTORY.addValidTokenResponse();
+		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
+		DefaultJsonRequest req = mock(DefaultJsonRequest.class);
+		when(req.submitForJson(any(Object.class))).thenReturn("{\"code\":0}");
+		try {
+			assertEquals("{\"code\":0}", c.submitForJsonAsync(req, null).get());
+			verify(req).submitForJson(null);
+		} finally {
+			c.close();
+		}
+	}
+	
+	@Test(timeout=10000)
+	public void testFetchDetailsFetchesLineupsConcurrently() throws Exception {
+		FACTORY.addValidTokenResponse();
+		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
+		// each lineup waits for the other to start; fetched one at a time, the barrier would time out
+		final CyclicBarrier bothStarted = new CyclicBarrier(2);
+		Answer<Void> await = new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				bothStarted.await(5, TimeUnit.SECONDS);
+				return null;
+			}
+		};
+		Lineup l1 = mock(Lineup.class);
+		Lineup l2 = mock(Lineup.class);
+		doAnswer(await).when(l1).fetchDetails(true);
+		doAnswer(await).when(l2).fetchDetails(true);
+		try {
+			c.fetchDetails(new Lineup[] { l1, l2 }, true);
+			verify(l1).fetchDetails(true);
+			verify(l2).fetchDetails(true);
+		} finally {
+			c.close();
+		}
+	}
+	
 	@Test(expected=IOException.class)
 	public void testGetLineupsHandlesError() throws Exception {
 		FACTORY.addValidTokenResponse();
@@ -187,9 +228,7 @@ public class NetworkEpgClientTest extends SdjsonTestSuite {
 		DefaultJsonRequest req = mock(DefaultJsonRequest.class);
 		FACTORY.add(req);
 		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
-		Field f = Whitebox.getField(NetworkEpgClient.class, "CACHE");
-		@SuppressWarnings("unchecked")
-		Map<String, Object> cache = (Map<String, Object>)f.get(null);
+		ObjectCache cache = c.getCache();
 		cache.put("__STAT__null", new Airing[0]);
 		c.fetchSchedule(mock(Station.class));
 		verifyZeroInteractions(req);
@@ -223,9 +262,7 @@ public class NetworkEpgClientTest extends SdjsonTestSuite {
 		when(l.getStations()).thenReturn(new Station[0]);
 		
 		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
-		Field f = Whitebox.getField(NetworkEpgClient.class, "CACHE");
-		@SuppressWarnings("unchecked")
-		Map<String, Object> cache = (Map<String, Object>)f.get(null);
+		ObjectCache cache = c.getCache();
 		cache.put("__STAT__null", new Airing[0]);
 		
 		c.fetchSchedules(l);
@@ -252,9 +289,7 @@ public class NetworkEpgClientTest extends SdjsonTestSuite {
 		FACTORY.add(req);
 		
 		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
-		Field f = Whitebox.getField(NetworkEpgClient.class, "CACHE");
-		@SuppressWarnings("unchecked")
-		Map<String, Object> cache = (Map<String, Object>)f.get(null);
+		ObjectCache cache = c.getCache();
 		cache.put("__PROG__null", mock(Program.class));
 		
 		c.fetchPrograms(new String[] {null});
@@ -269,9 +304,7 @@ public class NetworkEpgClientTest extends SdjsonTestSuite {
 		FACTORY.add(req);
 		
 		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
-		Field f = Whitebox.getField(NetworkEpgClient.class, "CACHE");
-		@SuppressWarnings("unchecked")
-		Map<String, Object> cache = (Map<String, Object>)f.get(null);
+		ObjectCache cache = c.getCache();
 		cache.put("__PROG__null", mock(Program.class));
 		
 		Map<String, Program> progs = c.fetchPrograms(new String[] {null, "abcd"});
@@ -279,4 +312,165 @@ public class NetworkEpgClientTest extends SdjsonTestSuite {
 		verifyNoMoreInteractions(req);
 		assertEquals(1, progs.keySet().size()); // b/c we "pull" one from cache and just mock an empty response to network req		
 	}
+	
+	@Test
+	public void testFetchProgramsInChunks() throws Exception {
+		System.setProperty("sdjson.programs.chunk-size", "2");
+		try {
+			FACTORY.addValidTokenResponse();
+			DefaultJsonRequest req = mock(DefaultJsonRequest.class);
+			when(req.submitForInputStream(any(Object.class))).thenAnswer(new Answer<ByteArrayInputStream>() {
+				@Override
+				public ByteArrayInputStream answer(InvocationOnMock invocation) throws Throwable {
+					return new ByteArrayInputStream("".getBytes("UTF-8"));
+				}
+			});
+			FACTORY.add(req);
+			
+			final AtomicInteger chunks = new AtomicInteger(0);
+			NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
+			c.setFetchProgressListener(new FetchProgressListener() {
+				@Override
+				public void chunkCompleted(String resource, int completed, int total, int records) {
+					assertEquals(RestNouns.PROGRAMS, resource);
+					assertEquals(3, total);
+					chunks.incrementAndGet();
+				}
+			});
+			c.fetchPrograms(new String[] {"a", "b", "c", "d", "e"});
+			verify(req, times(3)).submitForInputStream(any(Object.class));
+			assertEquals(3, chunks.get());
+			c.close();
+		} finally {
+			System.clearProperty("sdjson.programs.chunk-size");
+		}
+	}
+	
+	@Test
+	public void testSyncSchedulesReusesUnchangedDays() throws Exception {
+		FACTORY.addValidTokenResponse();
+		DefaultJsonRequest req = mock(DefaultJsonRequest.class);
+		when(req.submitForInputStream(any(Object.class))).thenReturn(new ByteArrayInputStream("{\"foobar\":{\"2015-03-01\":{\"code\":0,\"md5\":\"abc\"}}}".getBytes("UTF-8")));
+		FACTORY.add(req);
+		
+		Station s = mock(Station.class);
+		when(s.getId()).thenReturn("foobar");
+		Lineup l = mock(Lineup.class);
+		when(l.getStations()).thenReturn(new Station[] {s});
+		Airing kept = mock(Airing.class);
+		when(kept.getGmtStart()).thenReturn(Config.get().getDateTimeFormat().parse("2015-03-01T12:00:00Z"));
+		Airing expired = mock(Airing.class);
+		when(expired.getGmtStart()).thenReturn(Config.get().getDateTimeFormat().parse("2015-02-28T12:00:00Z"));
+		Map<String, Airing[]> prev = new HashMap<>();
+		prev.put("foobar", new Airing[] {expired, kept});
+		Map<String, Map<String, String>> md5s = new HashMap<>();
+		md5s.put("foobar", new HashMap<String, String>());
+		md5s.get("foobar").put("2015-02-28", "old");
+		md5s.get("foobar").put("2015-03-01", "abc");
+		
+		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
+		Map<Station, Airing[]> scheds = c.syncSchedules(l, prev, md5s);
+		verify(req).submitForInputStream(any(Object.class)); // md5 request only
+		verifyNoMoreInteractions(req);
+		assertEquals(1, scheds.get(s).length);
+		assertSame(kept, scheds.get(s)[0]);
+		assertEquals(Collections.singletonMap("2015-03-01", "abc"), md5s.get("foobar"));
+	}
+	
+	@Test
+	public void testSyncSchedulesOnlyRecordsDaysReceived() throws Exception {
+		FACTORY.addValidTokenResponse();
+		DefaultJsonRequest req = mock(DefaultJsonRequest.class);
+		String md5Resp = "{\"foobar\":{\"2015-03-01\":{\"code\":0,\"md5\":\"abc\"},\"2015-03-02\":{\"code\":0,\"md5\":\"def\"}}}";
+		String scheds = "{\"stationID\":\"foobar\",\"programs\":[]}\n"
+				+ "{\"stationID\":\"other\",\"programs\":[],\"metadata\":{\"startDate\":\"2015-03-01\"}}";
+		when(req.submitForInputStream(any(Object.class))).thenReturn(new ByteArrayInputStream(md5Resp.getBytes("UTF-8")), new ByteArrayInputStream(scheds.getBytes("UTF-8")));
+		FACTORY.add(req);
+		
+		Station s = mock(Station.class);
+		when(s.getId()).thenReturn("foobar");
+		Station other = mock(Station.class);
+		when(other.getId()).thenReturn("other");
+		Lineup l = mock(Lineup.class);
+		when(l.getStations()).thenReturn(new Station[] {s, other});
+		when(l.getStation("foobar")).thenReturn(s);
+		when(l.getStation("other")).thenReturn(other);
+		Map<String, Map<String, String>> md5s = new HashMap<>();
+		md5s.put("elsewhere", Collections.singletonMap("2015-03-01", "xyz"));
+		
+		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
+		c.syncSchedules(l, new HashMap<String, Airing[]>(), md5s);
+		verify(req, times(2)).submitForInputStream(any(Object.class));
+		// neither response can be matched to a day's md5, so every day is retried next sync
+		assertEquals(Collections.emptyMap(), md5s.get("foobar"));
+		assertEquals(Collections.emptyMap(), md5s.get("other"));
+		// a station of another lineup sharing the map is left alone
+		assertEquals(Collections.singletonMap("2015-03-01", "xyz"), md5s.get("elsewhere"));
+	}
+	
+	@Test
+	public void testFetchSchedulesUsesCurrentLocalPrograms() throws Exception {
+		FACTORY.addValidTokenResponse();
+		DefaultJsonRequest req = mock(DefaultJsonRequest.class);
+		String sched = "{\"stationID\":\"foobar\",\"programs\":[{\"programID\":\"EP1\",\"md5\":\"abc\",\"airDateTime\":\"2015-03-01T12:00:00Z\",\"duration\":1800}]}";
+		when(req.submitForInputStream(any(Object.class))).thenReturn(new ByteArrayInputStream(sched.getBytes("UTF-8")));
+		FACTORY.add(req);
+		
+		Station s = mock(Station.class);
+		when(s.getId()).thenReturn("foobar");
+		Lineup l = mock(Lineup.class);
+		when(l.getStations()).thenReturn(new Station[] {s});
+		when(l.getStation("foobar")).thenReturn(s);
+		Program p = mock(Program.class);
+		when(p.getId()).thenReturn("EP1");
+		when(p.getMd5()).thenReturn("abc");
+		EpgClient local = mock(EpgClient.class);
+		when(local.fetchProgram("EP1")).thenReturn(p);
+		
+		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
+		c.setLocalProgramSource(local);
+		Map<Station, Airing[]> scheds = c.fetchSchedules(l);
+		verify(req).submitForInputStream(any(Object.class)); // schedules only, no programs request
+		verifyNoMoreInteractions(req);
+		assertSame(p, scheds.get(s)[0].getProgram());
+	}
+	
+	@Test
+	public void testFetchProgramsBatchesArtwork() throws Exception {
+		FACTORY.addValidTokenResponse();
+		DefaultJsonRequest req = mock(DefaultJsonRequest.class);
+		String progs = "{\"programID\":\"SH0123456700001\",\"md5\":\"a\",\"titles\":[{\"title120\":\"A\"}],\"hasImageArtwork\":true}\n"
+				+ "{\"programID\":\"SH0123456700002\",\"md5\":\"b\",\"titles\":[{\"title120\":\"B\"}],\"hasImageArtwork\":true}\n"
+				+ "{\"programID\":\"SH7654321000001\",\"md5\":\"c\",\"titles\":[{\"title120\":\"C\"}],\"hasImageArtwork\":true}";
+		when(req.submitForInputStream(any(Object.class))).thenReturn(new ByteArrayInputStream(progs.getBytes("UTF-8")));
+		when(req.submitForJson(any(Object.class))).thenReturn("[{\"programID\":\"SH01234567\",\"data\":[{\"uri\":\"http://foo/a.jpg\"}]},{\"programID\":\"SH76543210\",\"data\":[]}]");
+		FACTORY.add(req);
+		
+		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
+		Map<String, Program> result = c.fetchPrograms(new String[] {"SH0123456700001", "SH0123456700002", "SH7654321000001"});
+		verify(req, times(1)).submitForJson(any(Object.class));
+		assertEquals(1, result.get("SH0123456700001").getArtworks().length);
+		assertSame(result.get("SH0123456700001").getArtworks(), result.get("SH0123456700002").getArtworks());
+		assertEquals(0, result.get("SH7654321000001").getArtworks().length);
+		c.close();
+	}
+	
+	@Test
+	public void testFetchProgramsBatchesSeriesInfo() throws Exception {
+		FACTORY.addValidTokenResponse();
+		DefaultJsonRequest req = mock(DefaultJsonRequest.class);
+		String episodes = "{\"programID\":\"EP012345670001\",\"md5\":\"a\",\"titles\":[{\"title120\":\"A\"}],\"entityType\":\"EPISODE\"}\n"
+				+ "{\"programID\":\"EP012345670002\",\"md5\":\"b\",\"titles\":[{\"title120\":\"A\"}],\"entityType\":\"EPISODE\"}";
+		String series = "{\"programID\":\"SH012345670000\",\"md5\":\"c\",\"titles\":[{\"title120\":\"A\"}]}";
+		when(req.submitForInputStream(any(Object.class))).thenReturn(new ByteArrayInputStream(episodes.getBytes("UTF-8")), new ByteArrayInputStream(series.getBytes("UTF-8")));
+		FACTORY.add(req);
+		
+		NetworkEpgClient c = new NetworkEpgClient("foo", "bar", FACTORY);
+		Map<String, Program> result = c.fetchPrograms(new String[] {"EP012345670001", "EP012345670002"});
+		verify(req, times(2)).submitForInputStream(any(Object.class));
+		Program s = result.get("EP012345670001").getSeriesInfo();
+		assertEquals("SH012345670000", s.getId());
+		assertSame(s, result.get("EP012345670002").getSeriesInfo());
+		c.close();
+	}
 }
@@ -15,8 +15,10 @@
  */
 package org.schedulesdirect.api;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -232,4 +234,47 @@ public class ProgramTest extends SdjsonTestSuite {
 		assertTrue(p.getKeywords().containsKey("General"));
 		assertEquals(2, p.getKeywords().get("General").size());
 	}
+	
+	@Test
+	public void validateLazyDecodingMatchesEager() throws Exception {
+		JSONObject src = getRandomSampleProgram();
+		final String PROP = "sdjson.programs.lazy";
+		Program eager = new Program(src, CLNT);
+		System.setProperty(PROP, "1");
+		Program lazy;
+		try {
+			lazy = new Program(src, CLNT);
+		} finally {
+			System.clearProperty(PROP);
+		}
+		assertEquals(eager.getMd5(), lazy.getMd5());
+		assertEquals(eager.getDescription(), lazy.getDescription());
+		assertArrayEquals(eager.getShortDescriptions(), lazy.getShortDescriptions());
+		assertEquals(eager.getCredits().length, lazy.getCredits().length);
+		assertEquals(eager.getMetadata(), lazy.getMetadata());
+		assertEquals(eager.getKeywords(), lazy.getKeywords());
+		assertEquals(eager.toString(), lazy.toString());
+	}
+
+	@Test
+	public void validateLazyDecodingSurfacesErrors() throws Exception {
+		JSONObject src = new JSONObject(getRandomSampleProgram().toString());
+		src.put("metadata", "invalid");
+		final String PROP = "sdjson.programs.lazy";
+		System.setProperty(PROP, "1");
+		Program lazy;
+		try {
+			lazy = new Program(src, CLNT);
+		} finally {
+			System.clearProperty(PROP);
+		}
+		for(int i = 0; i < 2; ++i) {
+			try {
+				lazy.getMetadata();
+				fail("Invalid details were decoded!");
+			} catch(IllegalStateException e) {
+				assertTrue(e.getCause() instanceof InvalidJsonObjectException);
+			}
+		}
+	}
 }
@@ -0,0 +1,261 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.schedulesdirect.api.json.DefaultJsonRequest;
+import org.schedulesdirect.api.json.DefaultJsonRequest.Action;
+import org.schedulesdirect.api.json.IJsonRequestFactory;
+import org.schedulesdirect.test.SdjsonTestSuite;
+import org.schedulesdirect.test.utils.JsonResponseBuilder;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ DefaultJsonRequest.class })
+public class ZipCacheWriterTest extends SdjsonTestSuite {
+
+	static private final String LINEUP_URI = "/20141201/lineups/USA-TEST-X";
+	static private final String LINEUPS = "{\"lineups\":[{\"name\":\"Test\",\"location\":\"Watertown\",\"uri\":\"" + LINEUP_URI + "\",\"transport\":\"Cable\"}]}";
+	static private final String MAP = "{\"map\":[{\"stationID\":\"35045\",\"channel\":\"7\"}],\"stations\":[{\"name\":\"WWNYDT (WWNY-DT)\",\"stationID\":\"35045\",\"callsign\":\"WWNYDT\"}],\"metadata\":{\"modified\":\"2015-03-01T00:00:00Z\"}}";
+	static private final String SCHED = "{\"stationID\":\"35045\",\"programs\":["
+			+ "{\"programID\":\"EP000000010001\",\"airDateTime\":\"2015-03-01T12:00:00Z\",\"duration\":1800},"
+			+ "{\"programID\":\"EP000000010002\",\"airDateTime\":\"2015-03-01T12:30:00Z\",\"duration\":1800}"
+			+ "]}";
+
+	/*
+	 * Answers each resource with a canned response and counts the requests made of it
+	 */
+	static private final class Factory implements IJsonRequestFactory {
+		private final Map<String, DefaultJsonRequest> reqs = new HashMap<>();
+		private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+		private void add(String resource, DefaultJsonRequest req) {
+			reqs.put(resource, req);
+			counts.put(resource, new AtomicInteger());
+		}
+
+		private int count(String resource) {
+			return counts.get(resource).get();
+		}
+
+		@Override
+		public DefaultJsonRequest get(Action action, String resource, String hash, String userAgent, String baseUrl) {
+			return get(action, resource);
+		}
+
+		@Override
+		public DefaultJsonRequest get(Action action, String resource) {
+			counts.get(resource).incrementAndGet();
+			return reqs.get(resource);
+		}
+
+		@Override
+		public DefaultJsonRequest get(Action action, URL url) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	static private String program(String id) {
+		JSONObject o = new JSONObject();
+		o.put("programID", id);
+		o.put("titles", new JSONArray().put(new JSONObject().put("title120", "Title " + id)));
+		o.put("md5", "md5" + id);
+		o.put("hasImageArtwork", true);
+		return o.toString();
+	}
+
+	private File dest;
+	private Factory factory;
+	private volatile String sched = SCHED;
+	private final Set<String> requested = Collections.synchronizedSet(new HashSet<String>());
+
+	@Before
+	public void setup() throws Exception {
+		dest = Files.createTempFile("sdjson_", ".zip").toFile();
+		dest.delete();
+		factory = new Factory();
+		factory.add(RestNouns.LOGIN_TOKEN, request("{\"token\":\"12345abcd\"}"));
+		factory.add(RestNouns.STATUS, request(JsonResponseBuilder.buildStatusResponse(null)));
+		factory.add(RestNouns.LINEUPS, request(LINEUPS));
+		factory.add("lineups/USA-TEST-X", request(MAP));
+		factory.add(RestNouns.METADATA, request("[{\"programID\":\"EP00000001\",\"data\":[]},{\"programID\":\"SH00000001\",\"data\":[]}]"));
+		DefaultJsonRequest scheds = mock(DefaultJsonRequest.class);
+		when(scheds.submitForInputStream(any(Object.class))).thenAnswer(new Answer<InputStream>() {
+			@Override
+			public InputStream answer(InvocationOnMock invocation) throws Throwable {
+				return new ByteArrayInputStream(sched.getBytes("UTF-8"));
+			}
+		});
+		factory.add(RestNouns.SCHEDULES, scheds);
+		DefaultJsonRequest progs = mock(DefaultJsonRequest.class);
+		when(progs.submitForInputStream(any(Object.class))).thenAnswer(new Answer<InputStream>() {
+			@Override
+			public InputStream answer(InvocationOnMock invocation) throws Throwable {
+				JSONArray ids = ((JSONObject)invocation.getArguments()[0]).getJSONArray("request");
+				StringBuilder sb = new StringBuilder();
+				for(int i = 0; i < ids.length(); ++i) {
+					requested.add(ids.getString(i));
+					sb.append(program(ids.getString(i))).append('\n');
+				}
+				return new ByteArrayInputStream(sb.toString().getBytes("UTF-8"));
+			}
+		});
+		factory.add(RestNouns.PROGRAMS, progs);
+	}
+
+	@After
+	public void teardown() {
+		dest.delete();
+		new File(dest.getPath() + ZipCacheWriter.PART_EXT).delete();
+	}
+
+	private DefaultJsonRequest request(String resp) throws IOException {
+		DefaultJsonRequest req = mock(DefaultJsonRequest.class);
+		when(req.submitForJson(any(Object.class))).thenReturn(resp);
+		return req;
+	}
+
+	@Test
+	public void testWrittenZipIsReadable() throws Exception {
+		new ZipCacheWriter(new NetworkEpgClient("foo", "bar", factory)).write(dest);
+		assertFalse(new File(dest.getPath() + ZipCacheWriter.PART_EXT).exists());
+		ZipEpgClient c = new ZipEpgClient(dest);
+		try {
+			Station s = c.getLineups()[0].getStations()[0];
+			Airing[] airings = s.getAirings();
+			assertEquals(2, airings.length);
+			assertEquals("Title EP000000010001", airings[0].getProgram().getTitle());
+			assertNotNull(c.getIndex().getProgram("SH000000010000"));
+			assertNotNull(c.getIndex().getArtwork("EP00000001"));
+			assertEquals(1, factory.count(RestNouns.SCHEDULES));
+			assertEquals(2, factory.count(RestNouns.PROGRAMS)); // episodes, then their series
+		} finally {
+			c.close();
+		}
+	}
+
+	@Test
+	public void testResumesFromPartFile() throws Exception {
+		try(ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(dest.getPath() + ZipCacheWriter.PART_EXT))) {
+			zip.putNextEntry(new ZipEntry("maps/USA-TEST-X.txt"));
+			zip.write(MAP.getBytes("UTF-8"));
+			zip.putNextEntry(new ZipEntry("schedules/35045.txt"));
+			zip.write(SCHED.getBytes("UTF-8"));
+			zip.putNextEntry(new ZipEntry("programs/EP000000010001.txt"));
+			zip.write(program("EP000000010001").getBytes("UTF-8"));
+			zip.closeEntry();
+		}
+		new ZipCacheWriter(new NetworkEpgClient("foo", "bar", factory)).write(dest);
+		assertEquals(0, factory.count("lineups/USA-TEST-X"));
+		assertEquals(0, factory.count(RestNouns.SCHEDULES));
+		ZipEpgClient c = new ZipEpgClient(dest);
+		try {
+			assertEquals(2, c.getLineups()[0].getStations()[0].getAirings().length);
+			assertTrue(c.getIndex().getProgram("EP000000010002") != null);
+		} finally {
+			c.close();
+		}
+	}
+
+	@Test
+	public void testUpdateOnlyDownloadsChangedPrograms() throws Exception {
+		String airing = "{\"programID\":\"%s\",\"airDateTime\":\"2015-03-01T%s:00Z\",\"duration\":1800,\"md5\":\"%s\"}";
+		sched = String.format("{\"stationID\":\"35045\",\"programs\":[%s,%s]}",
+				String.format(airing, "EP000000010001", "12:00", "md5EP000000010001"),
+				String.format(airing, "EP000000010002", "12:30", "md5EP000000010002"));
+		ZipCacheWriter w = new ZipCacheWriter(new NetworkEpgClient("foo", "bar", factory));
+		w.write(dest);
+		requested.clear();
+		sched = String.format("{\"stationID\":\"35045\",\"programs\":[%s,%s]}",
+				String.format(airing, "EP000000010001", "12:00", "md5EP000000010001"),
+				String.format(airing, "EP000000010003", "12:30", "md5EP000000010003"));
+		w.update(dest, dest);
+		// the schedules list no md5 for the series, so its info is downloaded again
+		assertEquals(new HashSet<>(Arrays.asList("EP000000010003", "SH000000010000")), requested);
+		ZipEpgClient c = new ZipEpgClient(dest);
+		try {
+			assertEquals("md5EP000000010001", c.getIndex().getProgram("EP000000010001").getMd5());
+			assertNull(c.getIndex().getProgram("EP000000010002"));
+			assertNotNull(c.getIndex().getProgram("SH000000010000"));
+			assertNotNull(c.getIndex().getArtwork("EP00000001"));
+			Airing[] airings = c.getLineups()[0].getStations()[0].getAirings();
+			assertEquals(2, airings.length);
+			assertEquals("Title EP000000010003", airings[1].getProgram().getTitle());
+		} finally {
+			c.close();
+		}
+	}
+
+	@Test
+	public void testUpdateComparesSeriesInfoMd5s() throws Exception {
+		String airing = "{\"programID\":\"%s\",\"airDateTime\":\"2015-03-01T%s:00Z\",\"duration\":1800,\"md5\":\"%s\"}";
+		String unchanged = String.format("{\"stationID\":\"35045\",\"programs\":[%s,%s]}",
+				String.format(airing, "EP000000010001", "12:00", "md5EP000000010001"),
+				String.format(airing, "SH000000010000", "12:30", "md5SH000000010000"));
+		sched = unchanged;
+		ZipCacheWriter w = new ZipCacheWriter(new NetworkEpgClient("foo", "bar", factory));
+		w.write(dest);
+		requested.clear();
+		w.update(dest, dest);
+		assertEquals(Collections.emptySet(), requested);
+		sched = unchanged.replace("md5SH000000010000", "md5changed");
+		int before = factory.count(RestNouns.PROGRAMS);
+		w.update(dest, dest);
+		assertEquals(Collections.singleton("SH000000010000"), requested);
+		assertEquals(2, factory.count(RestNouns.PROGRAMS) - before); // the program, then its series info
+		ZipEpgClient c = new ZipEpgClient(dest);
+		try {
+			assertEquals("md5SH000000010000", c.getIndex().getSeriesInfo("SH000000010000").getMd5());
+		} finally {
+			c.close();
+		}
+	}
+}
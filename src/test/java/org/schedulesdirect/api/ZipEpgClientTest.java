@@ -24,7 +24,13 @@ import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.Before;
@@ -94,10 +100,21 @@ public class ZipEpgClientTest extends SdjsonTestSuite {
 	
 	@Test(expected=IOException.class)
 	public void testHandleWrongVersionFileInZip() throws Exception {
-		initVfs(ZipEpgClient.ZIP_VER - 1);
+		initVfs(ZipEpgClient.ZIP_VER + 1);
 		new ZipEpgClient(src);
 	}
 	
+	@Test
+	public void testReadsOldestSupportedVersion() throws Exception {
+		initVfs(ZipEpgClient.MIN_ZIP_VER);
+		ZipEpgClient c = new ZipEpgClient(src);
+		try {
+			assertEquals(0, c.getIndex().size());
+		} finally {
+			c.close();
+		}
+	}
+	
 	@Test(expected=IllegalStateException.class)
 	public void testGetUserStatusThrowsWhenClosed() throws Exception {
 		initVfs();
@@ -187,4 +204,79 @@ public class ZipEpgClientTest extends SdjsonTestSuite {
 		EpgClient c = new ZipEpgClient(src);
 		assertNull(c.fetchProgram(pId));
 	}
+	
+	@Test
+	public void testConcurrentArtworkReadsShareOneLoad() throws Exception {
+		initVfs(false);
+		try {
+			Files.createDirectory(vfs.getPath("artwork"));
+			Path p = vfs.getPath("artwork", "EP00000001.txt");
+			Files.write(p, "{\"data\":[{\"uri\":\"http://example.com/a.jpg\",\"aspect\":\"4x3\",\"size\":\"Md\"}]}".getBytes(ZipEpgClient.ZIP_CHARSET));
+			vfs.close();
+		} catch(IOException e) {
+			throw new RuntimeException(e);
+		}
+		final EpgClient c = new ZipEpgClient(src);
+		ExecutorService exe = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Artwork[]>> results = new ArrayList<>();
+			for(int i = 0; i < 32; ++i) {
+				final String id = String.format("EP00000001%04d", i);
+				results.add(exe.submit(new Callable<Artwork[]>() {
+					@Override
+					public Artwork[] call() throws Exception {
+						return c.fetchArtwork(id);
+					}
+				}));
+			}
+			Artwork first = results.get(0).get()[0];
+			assertEquals("4x3", first.getAspect());
+			for(Future<Artwork[]> f : results) {
+				assertEquals(1, f.get().length);
+				assertSame(first, f.get()[0]);
+			}
+		} finally {
+			exe.shutdown();
+			c.close();
+		}
+	}
+
+	@Test
+	public void testGetLineupsLoadsSchedulesOnFirstAccess() throws Exception {
+		initVfs(false);
+		try {
+			Files.write(vfs.getPath(ZipEpgClient.LINEUPS_LIST), "{\"lineups\":[{\"name\":\"Test\",\"location\":\"Watertown\",\"uri\":\"/20141201/lineups/USA-TEST-X\",\"transport\":\"Cable\"}]}".getBytes(ZipEpgClient.ZIP_CHARSET));
+			Files.createDirectory(vfs.getPath("maps"));
+			Files.write(vfs.getPath("maps", "USA-TEST-X.txt"), ("{\"map\":[{\"stationID\":\"1\",\"channel\":\"7\"},{\"stationID\":\"2\",\"channel\":\"8\"}],"
+					+ "\"stations\":[{\"stationID\":\"1\",\"name\":\"One\",\"callsign\":\"ONE\"},{\"stationID\":\"2\",\"name\":\"Two\",\"callsign\":\"TWO\"}],"
+					+ "\"metadata\":{\"modified\":\"2015-03-01T00:00:00Z\"}}").getBytes(ZipEpgClient.ZIP_CHARSET));
+			for(int i = 1; i <= 2; ++i) {
+				String id = String.format("EP0000000%d0001", i);
+				Files.write(vfs.getPath("schedules", String.format("%d.txt", i)), String.format("{\"programs\":[{\"programID\":\"%s\",\"airDateTime\":\"2015-03-01T12:00:00Z\",\"duration\":1800}]}", id).getBytes(ZipEpgClient.ZIP_CHARSET));
+				Files.write(vfs.getPath("programs", id + ".txt"), String.format("{\"programID\":\"%s\",\"titles\":[{\"title120\":\"Show %d\"}],\"md5\":\"abc%d\"}", id, i, i).getBytes(ZipEpgClient.ZIP_CHARSET));
+			}
+			vfs.close();
+		} catch(IOException e) {
+			throw new RuntimeException(e);
+		}
+		ZipEpgClient c = new ZipEpgClient(src);
+		try {
+			Lineup l = c.getLineups()[0];
+			Station one = l.getStation("1");
+			Station two = l.getStation("2");
+			assertEquals("ONE", one.getCallsign());
+			assertFalse(one.isScheduleLoaded());
+			assertFalse(two.isScheduleLoaded());
+			assertEquals("Show 1", one.getAirings()[0].getProgram().getTitle());
+			assertTrue(one.isScheduleLoaded());
+			assertFalse(two.isScheduleLoaded());
+			Airing[] loaded = one.getAirings();
+			c.preload();
+			assertTrue(two.isScheduleLoaded());
+			assertSame(loaded, one.getAirings());
+			assertEquals("Show 2", two.getAirings()[0].getProgram().getTitle());
+		} finally {
+			c.close();
+		}
+	}
 }
@@ -0,0 +1,79 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class ZipIndexTest extends SdjsonTestSuite {
+
+	private Path src;
+	private FileSystem vfs;
+
+	@Before
+	public void setup() throws Exception {
+		src = Files.createTempFile("sdjson_", ".zip");
+		Files.delete(src);
+		vfs = FileSystems.newFileSystem(new URI(String.format("jar:%s", src.toUri().toString())), Collections.singletonMap("create", "true"));
+		Files.createDirectory(vfs.getPath("programs"));
+		Files.createDirectory(vfs.getPath("seriesInfo"));
+		Files.write(vfs.getPath("programs", "EP000000010001.txt"), "{}".getBytes(ZipEpgClient.ZIP_CHARSET));
+		Files.write(vfs.getPath("programs", "SH000000010000.txt"), "{}".getBytes(ZipEpgClient.ZIP_CHARSET));
+		Files.write(vfs.getPath("seriesInfo", "SH000000010000.txt"), "{\"a\":1}".getBytes(ZipEpgClient.ZIP_CHARSET));
+		Files.write(vfs.getPath("seriesInfo", "SH000000020000.txt"), "{\"a\":1}".getBytes(ZipEpgClient.ZIP_CHARSET));
+	}
+
+	@After
+	public void teardown() throws Exception {
+		vfs.close();
+		Files.deleteIfExists(src);
+	}
+
+	@Test
+	public void testScannedIndexResolvesSeriesInfo() throws Exception {
+		ZipIndex idx = ZipIndex.load(vfs);
+		assertEquals("programs/EP000000010001.txt", idx.getProgram("EP000000010001").getName());
+		assertEquals("programs/SH000000010000.txt", idx.getProgram("SH000000010000").getName());
+		assertEquals("seriesInfo/SH000000020000.txt", idx.getProgram("SH000000020000").getName());
+		assertEquals(7, idx.getProgram("SH000000020000").getSize());
+		assertEquals("seriesInfo/SH000000010000.txt", idx.getSeriesInfo("SH000000010000").getName());
+		assertNull(idx.getSeriesInfo("EP000000010001"));
+		assertNull(idx.getProgram("EP000000030001"));
+		assertNull(idx.getSchedule("10001"));
+	}
+
+	@Test
+	public void testStoredIndexIsUsed() throws Exception {
+		ZipIndex.write(vfs);
+		Files.write(vfs.getPath("programs", "EP000000040001.txt"), "{}".getBytes(ZipEpgClient.ZIP_CHARSET));
+		ZipIndex idx = ZipIndex.load(vfs);
+		assertNull(idx.getProgram("EP000000040001"));
+		assertEquals("seriesInfo/SH000000020000.txt", idx.getProgram("SH000000020000").getName());
+		assertEquals(3, idx.size());
+	}
+}
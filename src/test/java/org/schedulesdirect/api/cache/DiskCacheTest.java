@@ -0,0 +1,152 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class DiskCacheTest extends SdjsonTestSuite {
+
+	private File dir;
+
+	@Before
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("sdjson_cache_").toFile();
+	}
+
+	@After
+	public void teardown() {
+		try {
+			FileUtils.deleteDirectory(dir);
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Test
+	public void testGetChecksMd5AndAge() throws Exception {
+		try(DiskCache c = new DiskCache(dir, 1024 * 1024)) {
+			c.put("a", "md5a", "{\"a\":1}");
+			assertEquals("{\"a\":1}", c.get("a", "md5a", 0));
+			assertEquals("{\"a\":1}", c.get("a", null, 0));
+			assertNull(c.get("a", "other", 0));
+			Thread.sleep(10);
+			assertNull(c.get("a", null, 1));
+			assertNull(c.get("b", null, 0));
+		}
+	}
+
+	@Test
+	public void testRecordsSurviveReopen() throws Exception {
+		try(DiskCache c = new DiskCache(dir, 1024 * 1024)) {
+			c.put("a", "1", "A");
+			c.put("b", "1", "B");
+			c.put("a", "2", "A2");
+			c.remove("b");
+		}
+		try(DiskCache c = new DiskCache(dir, 1024 * 1024)) {
+			assertEquals(1, c.size());
+			assertEquals("A2", c.get("a", "2", 0));
+			assertNull(c.get("b", null, 0));
+		}
+	}
+
+	@Test
+	public void testCorruptTailIsTruncated() throws Exception {
+		try(DiskCache c = new DiskCache(dir, 1024 * 1024)) {
+			c.put("a", "1", "A");
+			c.put("b", "1", "B");
+		}
+		File log = new File(dir, DiskCache.LOG_FILE);
+		long len = log.length();
+		try(RandomAccessFile f = new RandomAccessFile(log, "rw")) {
+			f.setLength(len - 3);
+		}
+		try(DiskCache c = new DiskCache(dir, 1024 * 1024)) {
+			assertEquals("A", c.get("a", null, 0));
+			assertNull(c.get("b", null, 0));
+			c.put("c", "1", "C");
+		}
+		try(DiskCache c = new DiskCache(dir, 1024 * 1024)) {
+			assertEquals(2, c.size());
+			assertEquals("C", c.get("c", null, 0));
+		}
+	}
+
+	@Test
+	public void testCompactionEnforcesSizeCap() throws Exception {
+		char[] chars = new char[1000];
+		Arrays.fill(chars, 'x');
+		String data = new String(chars);
+		try(DiskCache c = new DiskCache(dir, 16 * 1024)) {
+			for(int i = 0; i < 100; ++i)
+				c.put(Integer.toString(i), null, data);
+			assertTrue(new File(dir, DiskCache.LOG_FILE).length() <= 16 * 1024);
+			assertNull(c.get("0", null, 0));
+			assertEquals(data, c.get("99", null, 0));
+		}
+		try(DiskCache c = new DiskCache(dir, 16 * 1024)) {
+			assertEquals(data, c.get("99", null, 0));
+		}
+	}
+
+	@Test
+	public void testInterruptedWriterDoesNotBreakCache() throws Exception {
+		try(DiskCache c = new DiskCache(dir, 1024 * 1024)) {
+			c.put("a", "1", "A");
+			Thread.currentThread().interrupt();
+			try {
+				c.put("b", "1", "B");
+				fail("Interrupted write succeeded!");
+			} catch(ClosedByInterruptException e) {
+				assertTrue(Thread.interrupted());
+			}
+			assertEquals("A", c.get("a", null, 0));
+			assertNull(c.get("b", null, 0));
+			c.put("c", "1", "C");
+			assertEquals("C", c.get("c", null, 0));
+		}
+		try(DiskCache c = new DiskCache(dir, 1024 * 1024)) {
+			assertEquals(2, c.size());
+			assertEquals("C", c.get("c", null, 0));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testDirectoryIsLocked() throws Exception {
+		DiskCache c = new DiskCache(dir, 1024 * 1024);
+		try {
+			new DiskCache(dir, 1024 * 1024).close();
+		} finally {
+			c.close();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class InternerTest extends SdjsonTestSuite {
+
+	@Test
+	public void testEqualValuesShareOneInstance() {
+		Interner<List<String>> i = new Interner<>();
+		List<String> first = Arrays.asList("a", "b");
+		List<String> second = Arrays.asList("a", "b");
+		assertSame(first, i.intern(first));
+		assertSame(first, i.intern(second));
+		for(int n = 0; n < 1000; ++n)
+			i.intern(Arrays.asList("x", Integer.toString(n)));
+		assertSame(first, i.intern(Arrays.asList("a", "b")));
+		assertEquals(1001, i.size());
+	}
+
+	@Test
+	public void testEquivalenceDecidesSharing() {
+		Interner<String> i = new Interner<>(new Interner.Equivalence<String>() {
+			@Override
+			public boolean equivalent(String a, String b) {
+				return a.equals(b) && a.length() < 3;
+			}
+
+			@Override
+			public int hash(String val) {
+				return val.hashCode();
+			}
+		});
+		String shortVal = new String("ab");
+		assertSame(shortVal, i.intern(shortVal));
+		assertSame(shortVal, i.intern(new String("ab")));
+		String longVal = new String("abc");
+		assertSame(longVal, i.intern(longVal));
+		assertNotSame(longVal, i.intern(new String("abc")));
+	}
+}
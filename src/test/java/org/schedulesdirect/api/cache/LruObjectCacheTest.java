@@ -0,0 +1,72 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *       
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class LruObjectCacheTest extends SdjsonTestSuite {
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		ObjectCache c = new LruObjectCache(1, 0, null);
+		c.put("a", "A");
+		c.put("b", "B");
+		assertNull(c.get("a"));
+		assertEquals("B", c.get("b"));
+		CacheStats stats = c.getStats();
+		assertEquals(1, stats.getHits());
+		assertEquals(1, stats.getMisses());
+		assertEquals(1, stats.getEvictions());
+		assertEquals(1, stats.getSize());
+	}
+	
+	@Test
+	public void testAccessRefreshesEntry() {
+		ObjectCache c = new LruObjectCache(2, 0, null);
+		c.put("a", "A");
+		c.get("a");
+		c.put("a", "A2");
+		assertEquals("A2", c.get("a"));
+		assertEquals(1, c.getStats().getSize());
+	}
+	
+	@Test
+	public void testExpiresEntries() throws Exception {
+		ObjectCache c = new LruObjectCache(10, 1, null);
+		c.put("a", "A");
+		Thread.sleep(10);
+		assertNull(c.get("a"));
+		assertEquals(1, c.getStats().getEvictions());
+		assertEquals(0, c.getStats().getSize());
+	}
+	
+	@Test
+	public void testWeigher() {
+		ObjectCache c = new LruObjectCache(10, 0, new LruObjectCache.Weigher() {
+			@Override
+			public int weigh(String key, Object val) {
+				return ((String)val).length();
+			}
+		});
+		c.put("a", "123456");
+		c.put("b", "123456");
+		assertEquals(1, c.getStats().getSize());
+	}
+}
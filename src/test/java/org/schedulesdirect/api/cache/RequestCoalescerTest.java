@@ -0,0 +1,102 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class RequestCoalescerTest extends SdjsonTestSuite {
+
+	@Test
+	public void testConcurrentLoadsShareOneCall() throws Exception {
+		final RequestCoalescer<String, String> c = new RequestCoalescer<>();
+		final AtomicInteger calls = new AtomicInteger(0);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Callable<String> loader = new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				calls.incrementAndGet();
+				started.countDown();
+				release.await();
+				return "value";
+			}
+		};
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			results.add(pool.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return c.load("k", loader);
+				}
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			for(int i = 0; i < 3; ++i)
+				results.add(pool.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return c.load("k", loader);
+					}
+				}));
+			Thread.sleep(50);
+			release.countDown();
+			for(Future<String> f : results)
+				assertEquals("value", f.get(5, TimeUnit.SECONDS));
+			assertEquals(1, calls.get());
+			assertEquals(0, c.getInFlightCount());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFailureIsRethrownAndNotRemembered() throws Exception {
+		RequestCoalescer<String, String> c = new RequestCoalescer<>();
+		try {
+			c.load("k", new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					throw new IOException("boom");
+				}
+			});
+			fail("Expected the load to fail!");
+		} catch(IOException e) {
+			assertEquals("boom", e.getMessage());
+		}
+		assertEquals("ok", c.load("k", new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return "ok";
+			}
+		}));
+	}
+}
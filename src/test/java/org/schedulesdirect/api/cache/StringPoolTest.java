@@ -0,0 +1,50 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class StringPoolTest extends SdjsonTestSuite {
+
+	@Test
+	public void testEqualValuesShareOneInstance() {
+		StringPool p = new StringPool();
+		String first = new String("Comedy");
+		String second = new String("Comedy");
+		assertNotSame(first, second);
+		assertSame(first, p.intern(first));
+		assertSame(first, p.intern(second));
+		assertEquals(1, p.size());
+		assertNull(p.intern(null));
+	}
+
+	@Test
+	public void testLongValuesAreNotPooled() {
+		StringPool p = new StringPool(4);
+		String first = new String("Drama");
+		assertSame(first, p.intern(first));
+		assertNotSame(first, p.intern(new String("Drama")));
+		String shortVal = p.intern(new String("abc"));
+		assertSame(shortVal, p.intern(new String("abc")));
+		assertEquals(1, p.size());
+	}
+}
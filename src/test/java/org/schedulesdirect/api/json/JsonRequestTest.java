@@ -15,14 +15,105 @@
  */
 package org.schedulesdirect.api.json;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.junit.Test;
 import org.schedulesdirect.api.json.DefaultJsonRequest.Action;
+import org.schedulesdirect.api.utils.JsonNodeUtils;
+import org.schedulesdirect.api.utils.JsonRecordReader;
 import org.schedulesdirect.test.SdjsonTestSuite;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
 public class JsonRequestTest extends SdjsonTestSuite {
 	
 	@Test(expected=IllegalStateException.class)
 	public void testSubmitRawInvalidState() throws Exception {
 		JsonRequestFactory.get().get(Action.GET, "foo").submitForJson(null);
-	}	
+	}
+	
+	@Test(timeout=10000)
+	public void testSubmitForInputStreamDoesNotBufferResponse() throws Exception {
+		final CountDownLatch firstRead = new CountDownLatch(1);
+		HttpServer srv = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		srv.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange ex) throws IOException {
+				ex.sendResponseHeaders(200, 0);
+				try(OutputStream out = ex.getResponseBody()) {
+					out.write("{\"programID\":\"EP000000010001\"}\n".getBytes("UTF-8"));
+					out.flush();
+					// the rest of the response is only sent once the client has read the first record
+					if(!firstRead.await(5, TimeUnit.SECONDS))
+						return;
+					out.write("{\"programID\":\"EP000000010002\"}\n".getBytes("UTF-8"));
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		srv.start();
+		JsonRequestFactory factory = new JsonRequestFactory();
+		try {
+			InputStream ins = factory.get(Action.POST, "programs", null, null, String.format("http://localhost:%d", srv.getAddress().getPort())).submitForInputStream("[]");
+			try(JsonRecordReader r = new JsonRecordReader(ins, "test")) {
+				assertEquals("EP000000010001", JsonNodeUtils.getString(r.nextNode(), "programID"));
+				firstRead.countDown();
+				assertEquals("EP000000010002", JsonNodeUtils.getString(r.nextNode(), "programID"));
+				assertNull(r.nextNode());
+			}
+		} finally {
+			factory.close();
+			srv.stop(0);
+		}
+	}
+
+	@Test(timeout=10000)
+	public void testRequestTimesOutWaitingForExhaustedPool() throws Exception {
+		final CountDownLatch done = new CountDownLatch(1);
+		HttpServer srv = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		srv.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange ex) throws IOException {
+				ex.sendResponseHeaders(200, 0);
+				try(OutputStream out = ex.getResponseBody()) {
+					out.write("{}\n".getBytes("UTF-8"));
+					out.flush();
+					// the response is held open, and its connection with it, until the test is done
+					done.await(5, TimeUnit.SECONDS);
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		srv.start();
+		JsonRequestFactory factory = new JsonRequestFactory(new HttpClientPool(1, 1, 5000, 5000, 60000, 250));
+		String url = String.format("http://localhost:%d", srv.getAddress().getPort());
+		try(InputStream held = factory.get(Action.POST, "programs", null, null, url).submitForInputStream("[]")) {
+			assertEquals('{', held.read());
+			try {
+				factory.get(Action.POST, "programs", null, null, url).submitForInputStream("[]");
+				fail("Request was sent without a free connection!");
+			} catch(ConnectionPoolTimeoutException e) {
+				// expected
+			} finally {
+				done.countDown();
+			}
+		} finally {
+			factory.close();
+			srv.stop(0);
+		}
+	}
 }
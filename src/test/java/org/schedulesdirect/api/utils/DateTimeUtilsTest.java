@@ -0,0 +1,54 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *       
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.schedulesdirect.api.Config;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class DateTimeUtilsTest extends SdjsonTestSuite {
+
+	@Test
+	public void testMatchesSimpleDateFormat() throws Exception {
+		SimpleDateFormat fmt = Config.get().getDateTimeFormat();
+		SimpleDateFormat local = new SimpleDateFormat("yyyy-MM-dd");
+		SimpleDateFormat utcDay = new SimpleDateFormat("yyyy-MM-dd");
+		utcDay.setTimeZone(TimeZone.getTimeZone("UTC"));
+		Random r = new Random(1500L);
+		for(int i = 0; i < 5000; ++i) {
+			String val = fmt.format(new Date((long)(r.nextDouble() * 8000000000000L) - 2000000000000L));
+			assertEquals(val, fmt.parse(val), DateTimeUtils.parseDateTime(val));
+			assertEquals(val, local.parse(val.substring(0, 10)), DateTimeUtils.parseLocalDate(val.substring(0, 10)));
+			assertEquals(val, utcDay.format(fmt.parse(val)), DateTimeUtils.formatUtcDay(fmt.parse(val).getTime()));
+		}
+		// out of range fields roll over like the lenient SimpleDateFormat does
+		assertEquals(fmt.parse("2015-02-30T25:61:00Z"), DateTimeUtils.parseDateTime("2015-02-30T25:61:00Z"));
+		assertEquals(fmt.parse("2015-13-01T00:00:00Z"), DateTimeUtils.parseDateTime("2015-13-01T00:00:00Z"));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testRejectsGarbage() throws Exception {
+		DateTimeUtils.parseDateTime("2015-03-xxT00:00:00Z");
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *       
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.schedulesdirect.api.Config;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class JsonNodeUtilsTest extends SdjsonTestSuite {
+
+	static private final String SRC = "{\"str\":\"foo\",\"num\":5,\"numStr\":\"7\",\"nil\":null,\"bool\":true,\"boolStr\":\"true\",\"obj\":{\"a\":1},\"arr\":[\"x\"]}";
+	
+	private JsonNode node() throws Exception {
+		return Config.get().getObjectMapper().readTree(SRC);
+	}
+	
+	@Test
+	public void testOptMatchesOrgJson() throws Exception {
+		JsonNode n = node();
+		JSONObject o = new JSONObject(SRC);
+		for(String k : new String[] { "str", "num", "numStr", "nil", "bool", "missing" }) {
+			assertEquals(k, o.optString(k), JsonNodeUtils.optString(n, k));
+			assertEquals(k, o.optString(k, null), JsonNodeUtils.optString(n, k, null));
+			assertEquals(k, o.optBoolean(k), JsonNodeUtils.optBoolean(n, k));
+		}
+		assertEquals(o.optBoolean("boolStr"), JsonNodeUtils.optBoolean(n, "boolStr"));
+	}
+	
+	@Test
+	public void testRequiredGetters() throws Exception {
+		JsonNode n = node();
+		assertEquals("foo", JsonNodeUtils.getString(n, "str"));
+		assertEquals(5, JsonNodeUtils.getInt(n, "num"));
+		assertEquals(7, JsonNodeUtils.getInt(n, "numStr"));
+		assertEquals("x", JsonNodeUtils.getString(JsonNodeUtils.getArray(n, "arr"), 0));
+		assertTrue(JsonNodeUtils.optObject(n, "obj") != null);
+		assertNull(JsonNodeUtils.optArray(n, "obj"));
+		assertFalse(JsonNodeUtils.toValue(n.get("obj")) instanceof JsonNode);
+	}
+	
+	@Test(expected=JSONException.class)
+	public void testGetStringMissing() throws Exception {
+		JsonNodeUtils.getString(node(), "missing");
+	}
+	
+	@Test(expected=JSONException.class)
+	public void testGetStringNotString() throws Exception {
+		JsonNodeUtils.getString(node(), "num");
+	}
+}
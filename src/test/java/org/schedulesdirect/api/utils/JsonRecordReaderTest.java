@@ -0,0 +1,66 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *       
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.schedulesdirect.api.exception.JsonEncodingException;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class JsonRecordReaderTest extends SdjsonTestSuite {
+
+	private JsonRecordReader reader(String input) throws Exception {
+		return new JsonRecordReader(new ByteArrayInputStream(input.getBytes("UTF-8")), "Test");
+	}
+	
+	@Test
+	public void testEmptyStream() throws Exception {
+		try(JsonRecordReader r = reader("")) {
+			assertNull(r.next());
+		}
+	}
+	
+	@Test
+	public void testReadsEachLine() throws Exception {
+		try(JsonRecordReader r = reader("{\"id\":1}\n{\"id\":2}\n\n{\"id\":3}\n")) {
+			for(int i = 1; i <= 3; ++i) {
+				JSONObject o = r.next();
+				assertEquals(i, o.getInt("id"));
+			}
+			assertNull(r.next());
+		}
+	}
+	
+	@Test(expected=JsonEncodingException.class)
+	public void testRejectsNonObjectRecord() throws Exception {
+		try(JsonRecordReader r = reader("{\"id\":1}\n[1,2]\n")) {
+			r.next();
+			r.next();
+		}
+	}
+	
+	@Test(expected=JsonEncodingException.class)
+	public void testRejectsInvalidJson() throws Exception {
+		try(JsonRecordReader r = reader("{\"id\":1\n")) {
+			r.next();
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ *      Copyright 2015 Battams, Derek
+ *
+ *       Licensed under the Apache License, Version 2.0 (the "License");
+ *       you may not use this file except in compliance with the License.
+ *       You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *       Unless required by applicable law or agreed to in writing, software
+ *       distributed under the License is distributed on an "AS IS" BASIS,
+ *       WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *       See the License for the specific language governing permissions and
+ *       limitations under the License.
+ */
+package org.schedulesdirect.api.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedulesdirect.test.SdjsonTestSuite;
+
+public class MappedZipFileTest extends SdjsonTestSuite {
+
+	private File src;
+
+	@Before
+	public void setup() throws Exception {
+		src = File.createTempFile("sdjson_", ".zip");
+	}
+
+	@After
+	public void teardown() {
+		src.delete();
+	}
+
+	@Test
+	public void testReadsStoredAndDeflatedEntries() throws Exception {
+		byte[] text = "{\"programID\":\"EP000000010001\"}".getBytes("UTF-8");
+		byte[] noise = new byte[100000];
+		new Random(21L).nextBytes(noise);
+		try(ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(src))) {
+			ZipEntry e = new ZipEntry("programs/EP000000010001.txt");
+			zos.putNextEntry(e);
+			zos.write(text);
+			zos.closeEntry();
+			e = new ZipEntry("stored.bin");
+			e.setMethod(ZipEntry.STORED);
+			e.setSize(noise.length);
+			CRC32 crc = new CRC32();
+			crc.update(noise);
+			e.setCrc(crc.getValue());
+			zos.putNextEntry(e);
+			zos.write(noise);
+			zos.closeEntry();
+		}
+		MappedZipFile z = new MappedZipFile(src);
+		assertEquals(2, z.getNames().size());
+		assertEquals(text.length, z.getSize("programs/EP000000010001.txt"));
+		try(InputStream ins = z.open("programs/EP000000010001.txt")) {
+			assertArrayEquals(text, IOUtils.toByteArray(ins));
+		}
+		try(InputStream ins = z.open("stored.bin")) {
+			assertArrayEquals(noise, IOUtils.toByteArray(ins));
+		}
+		assertNull(z.open("missing.txt"));
+		assertFalse(z.contains("missing.txt"));
+	}
+
+	@Test
+	public void testUnmappedReadsSurviveInterruptsUntilClosed() throws Exception {
+		byte[] text = "{\"programID\":\"EP000000010001\"}".getBytes("UTF-8");
+		try(ZipWriter w = new ZipWriter(src)) {
+			w.write("programs/EP000000010001.txt", text);
+		}
+		MappedZipFile z = new MappedZipFile(src, false);
+		try {
+			Thread.currentThread().interrupt();
+			try {
+				z.open("programs/EP000000010001.txt");
+				fail("Interrupted read succeeded!");
+			} catch(ClosedByInterruptException e) {
+				assertTrue(Thread.interrupted());
+			}
+			try(InputStream ins = z.open("programs/EP000000010001.txt")) {
+				assertArrayEquals(text, IOUtils.toByteArray(ins));
+			}
+		} finally {
+			z.close();
+		}
+		try {
+			z.open("programs/EP000000010001.txt");
+			fail("Read of a closed zip succeeded!");
+		} catch(IOException e) {}
+		assertTrue(src.delete());
+	}
+
+	@Test
+	public void testReadsZipFileSystemArchives() throws Exception {
+		src.delete();
+		try(FileSystem vfs = FileSystems.newFileSystem(new URI(String.format("jar:%s", src.toURI())), Collections.singletonMap("create", "true"))) {
+			Files.createDirectory(vfs.getPath("artwork"));
+			Files.write(vfs.getPath("artwork", "SH00000001.txt"), "{\"data\":[]}".getBytes("UTF-8"));
+		}
+		try(InputStream ins = new MappedZipFile(src).open("artwork/SH00000001.txt")) {
+			assertEquals("{\"data\":[]}", IOUtils.toString(ins, "UTF-8"));
+		}
+	}
+
+	@Test
+	public void testZipWriterCopiesEntriesAndWritesZip64Counts() throws Exception {
+		byte[] text = "{\"programID\":\"EP000000010001\",\"titles\":[{\"title120\":\"Test\"}]}".getBytes("UTF-8");
+		try(ZipWriter w = new ZipWriter(src)) {
+			w.write("programs/EP000000010001.txt", text);
+			w.write("empty.txt", new byte[0]);
+		}
+		File copy = File.createTempFile("sdjson_", ".zip");
+		try {
+			MappedZipFile z = new MappedZipFile(src);
+			int count = 70000;
+			try(ZipWriter w = new ZipWriter(copy)) {
+				w.copy(z, "programs/EP000000010001.txt");
+				for(int i = 1; i < count; ++i)
+					w.write(String.format("e/%d", i), new byte[] {(byte)i});
+			}
+			MappedZipFile c = new MappedZipFile(copy);
+			assertEquals(count, c.getNames().size());
+			assertEquals(z.getEntry("programs/EP000000010001.txt").compressedSize, c.getEntry("programs/EP000000010001.txt").compressedSize);
+			try(InputStream ins = c.open("programs/EP000000010001.txt")) {
+				assertArrayEquals(text, IOUtils.toByteArray(ins));
+			}
+			try(ZipFile zf = new ZipFile(copy)) {
+				assertEquals(count, zf.size());
+				try(InputStream ins = zf.getInputStream(zf.getEntry("e/69999"))) {
+					assertEquals(69999 & 0xFF, ins.read());
+				}
+			}
+		} finally {
+			copy.delete();
+		}
+	}
+
+	@Test(expected = ZipException.class)
+	public void testRejectsNonZipFiles() throws Exception {
+		Files.write(src.toPath(), "not a zip".getBytes("UTF-8"));
+		new MappedZipFile(src);
+	}
+}